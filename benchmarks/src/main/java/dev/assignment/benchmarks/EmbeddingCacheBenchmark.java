@@ -0,0 +1,73 @@
+package dev.assignment.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.assignment.service.EmbeddingCacheService;
+import dev.assignment.service.SnapshotEmbeddingStore;
+
+/**
+ * Saving and loading the Java-serialized embedding cache. The cache file is
+ * written to embeddings_cache/ under a throwaway session id and deleted
+ * afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EmbeddingCacheBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int segments;
+
+    private final String sessionId = "benchmark-" + UUID.randomUUID();
+    private SnapshotEmbeddingStore store;
+    private Map<String, Long> indexedFiles;
+
+    @Setup
+    public void setUp() {
+        store = new SnapshotEmbeddingStore();
+        new SyntheticData(42).fill(store, segments);
+
+        indexedFiles = new HashMap<>();
+        for (int file = 0; file * SyntheticData.SEGMENTS_PER_FILE < segments; file++) {
+            indexedFiles.put(SyntheticData.fileName(file), 0L);
+        }
+
+        EmbeddingCacheService.saveCache(sessionId, store, indexedFiles);
+    }
+
+    @TearDown
+    public void tearDown() {
+        EmbeddingCacheService.deleteCache(sessionId);
+    }
+
+    @Benchmark
+    public void save() {
+        EmbeddingCacheService.saveCache(sessionId, store, indexedFiles);
+    }
+
+    @Benchmark
+    public SnapshotEmbeddingStore load() {
+        SnapshotEmbeddingStore loaded = new SnapshotEmbeddingStore();
+        EmbeddingCacheService.loadCache(sessionId, loaded, new HashMap<>());
+        return loaded;
+    }
+}
@@ -0,0 +1,62 @@
+package dev.assignment.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.assignment.service.SnapshotEmbeddingStore;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * Top-k search over stores of increasing size, with the retrieval settings
+ * of RAGService. The 1M case holds about 6 GB of vectors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx10g")
+public class EmbeddingStoreSearchBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int segments;
+
+    @Param({ "snapshot", "in-memory" })
+    public String store;
+
+    private EmbeddingStore<TextSegment> embeddingStore;
+    private EmbeddingSearchRequest request;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(42);
+        embeddingStore = store.equals("snapshot") ? new SnapshotEmbeddingStore() : new InMemoryEmbeddingStore<>();
+        data.fill(embeddingStore, segments);
+
+        request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(data.embedding())
+                .maxResults(15)
+                .minScore(0.5)
+                .build();
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> search() {
+        return embeddingStore.search(request);
+    }
+}
@@ -0,0 +1,64 @@
+package dev.assignment.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.assignment.service.SnapshotEmbeddingStore;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * Cost of removing and re-indexing one file in a populated store, as done
+ * by DocumentIndexingService.removeFileFromIndex and indexDocument. Each
+ * operation leaves the store as it found it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IndexUpdateBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int segments;
+
+    private SnapshotEmbeddingStore store;
+    private String fileName;
+    private List<Embedding> fileEmbeddings;
+    private List<TextSegment> fileSegments;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(42);
+        store = new SnapshotEmbeddingStore();
+        data.fill(store, segments);
+
+        fileName = SyntheticData.fileName(0);
+        fileEmbeddings = data.embeddings(SyntheticData.SEGMENTS_PER_FILE);
+        fileSegments = data.segments(fileName, SyntheticData.SEGMENTS_PER_FILE);
+    }
+
+    @Benchmark
+    public void replaceFile() {
+        store.replaceFile(fileName, fileEmbeddings, fileSegments);
+    }
+
+    @Benchmark
+    public void removeAndRestoreFile() {
+        store.removeFile(fileName);
+        store.replaceFile(fileName, fileEmbeddings, fileSegments);
+    }
+}
@@ -0,0 +1,126 @@
+package dev.assignment.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.assignment.service.PdfTextExtractor;
+import dev.assignment.service.ResourceService;
+
+/**
+ * Reading document text from generated fixtures: a 1 MB text file and a
+ * 100-page PDF. PDF text is served from the extracted-text cache after the
+ * first read; extractPdf measures the uncached extraction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadFileContentBenchmark {
+
+    private static final int TEXT_WORDS = 150_000;
+    private static final int PDF_PAGES = 100;
+    private static final int LINES_PER_PAGE = 45;
+
+    private Path fixtureDir;
+    private File textFile;
+    private File pdfFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        SyntheticData data = new SyntheticData(42);
+        fixtureDir = Files.createTempDirectory("rag-benchmark");
+
+        textFile = fixtureDir.resolve("fixture.txt").toFile();
+        Files.writeString(textFile.toPath(), data.text(TEXT_WORDS));
+
+        pdfFile = fixtureDir.resolve("fixture.pdf").toFile();
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 0; page < PDF_PAGES; page++) {
+                PDPage pdPage = new PDPage();
+                document.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 750);
+                    for (int line = 0; line < LINES_PER_PAGE; line++) {
+                        content.showText(data.text(14));
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(pdfFile);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(fixtureDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public String readText() throws IOException {
+        return ResourceService.readFileContent(textFile);
+    }
+
+    @Benchmark
+    public long streamText() throws IOException {
+        return drain(textFile);
+    }
+
+    @Benchmark
+    public String readPdf() throws IOException {
+        return ResourceService.readFileContent(pdfFile);
+    }
+
+    @Benchmark
+    public long streamPdf() throws IOException {
+        return drain(pdfFile);
+    }
+
+    @Benchmark
+    public String extractPdf() throws IOException {
+        return PdfTextExtractor.extractText(pdfFile);
+    }
+
+    private static long drain(File file) throws IOException {
+        char[] buffer = new char[8192];
+        long count = 0;
+        try (Reader reader = ResourceService.openContentReader(file)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                count += read;
+            }
+        }
+        return count;
+    }
+}
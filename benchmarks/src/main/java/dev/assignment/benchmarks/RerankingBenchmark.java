@@ -0,0 +1,85 @@
+package dev.assignment.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.assignment.service.CrossEncoderReranker;
+import dev.assignment.service.RerankingService;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+
+/**
+ * Re-ranking of retrieved candidates. 15 is the number of candidates
+ * RAGService retrieves before re-ranking by default, 45 the widened pool.
+ * The cross-encoder needs a model and is only measured on request:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar RerankingBenchmark \
+ *     -p reranker=hybrid,cross-encoder -jvmArgsAppend -DRERANKER_MODEL=models/ms-marco-MiniLM-L-6-v2/model.onnx
+ * </pre>
+ *
+ * The cross-encoder is timed without its latency budget. Its ranking
+ * quality is compared by {@code RerankingEvaluator}, which needs real
+ * documents and questions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RerankingBenchmark {
+
+    @Param({ "15", "45", "100" })
+    public int candidates;
+
+    @Param({ "hybrid" })
+    public String reranker;
+
+    private final RerankingService rerankingService = new RerankingService();
+    private CrossEncoderReranker crossEncoder;
+    private List<TextSegment> segments;
+    private String query;
+    private List<EmbeddingMatch<TextSegment>> matches;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(42);
+        query = data.text(12);
+
+        segments = data.segments(SyntheticData.fileName(0), candidates);
+        matches = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            matches.add(new EmbeddingMatch<>(0.9 - i * 0.001, "segment-" + i, data.embedding(), segments.get(i)));
+        }
+
+        if (reranker.equals("cross-encoder")) {
+            crossEncoder = CrossEncoderReranker.fromConfig();
+            if (crossEncoder == null) {
+                throw new IllegalStateException("Set RERANKER_MODEL to benchmark the cross-encoder");
+            }
+        }
+    }
+
+    @Benchmark
+    public Object rerank() {
+        if (crossEncoder != null) {
+            return crossEncoder.score(query, segments);
+        }
+        // rerankHybrid sorts a copy, so the input order is the same every time
+        return rerankingService.rerankHybrid(query, matches);
+    }
+}
@@ -0,0 +1,101 @@
+package dev.assignment.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dev.assignment.util.SegmentMetadata;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+/**
+ * Seeded generator of embeddings and segment text, so the benchmarks run
+ * offline and every run measures the same data
+ */
+final class SyntheticData {
+
+    /**
+     * Dimension of text-embedding-3-small
+     */
+    static final int DIMENSIONS = 1536;
+
+    static final int SEGMENTS_PER_FILE = 100;
+
+    private static final String[] WORDS = {
+            "retrieval", "augmented", "generation", "embedding", "vector", "index", "segment", "document",
+            "query", "context", "model", "session", "knowledge", "base", "chunk", "overlap", "token",
+            "search", "score", "rerank", "cosine", "similarity", "cache", "storage", "database", "file",
+            "page", "text", "answer", "question", "source", "the", "a", "of", "and", "to", "in", "is",
+            "for", "with", "that", "on", "as", "by", "this", "from", "are", "be", "it", "or",
+    };
+
+    private final Random random;
+
+    SyntheticData(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * A random unit vector
+     */
+    Embedding embedding() {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return new Embedding(vector);
+    }
+
+    String text(int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(i % 15 == 0 ? ". " : " ");
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.append('.').toString();
+    }
+
+    static String fileName(int file) {
+        return String.format("file-%06d.txt", file);
+    }
+
+    List<TextSegment> segments(String fileName, int count) {
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Metadata metadata = new Metadata();
+            metadata.put(SegmentMetadata.FILE_NAME, fileName);
+            metadata.put(SegmentMetadata.INDEX, i);
+            segments.add(TextSegment.from(text(80), metadata));
+        }
+        return segments;
+    }
+
+    List<Embedding> embeddings(int count) {
+        List<Embedding> embeddings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            embeddings.add(embedding());
+        }
+        return embeddings;
+    }
+
+    /**
+     * Fill a store with the given number of segments, written one file at a
+     * time like the indexer does
+     */
+    void fill(EmbeddingStore<TextSegment> store, int segmentCount) {
+        for (int file = 0; file * SEGMENTS_PER_FILE < segmentCount; file++) {
+            int count = Math.min(SEGMENTS_PER_FILE, segmentCount - file * SEGMENTS_PER_FILE);
+            store.addAll(embeddings(count), segments(fileName(file), count));
+        }
+    }
+}
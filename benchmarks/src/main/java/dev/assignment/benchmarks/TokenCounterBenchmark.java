@@ -0,0 +1,51 @@
+package dev.assignment.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.assignment.util.TokenCounter;
+
+/**
+ * Counting tokens with the bundled BPE vocabularies. A segment-sized text is
+ * what chunking counts per line or sentence; 1 MB divided by the average
+ * time gives the throughput in MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenCounterBenchmark {
+
+    @Param({ "100", "150000" })
+    public int words;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = new SyntheticData(42).text(words);
+    }
+
+    @Benchmark
+    public int countEmbedding() {
+        return TokenCounter.count(text);
+    }
+
+    @Benchmark
+    public int countChat() {
+        return TokenCounter.count(text, "gpt-4o-mini");
+    }
+}
@@ -2,6 +2,15 @@ package dev.assignment;
 
 import java.io.IOException;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.metrics.FlightRecording;
+import dev.assignment.metrics.MetricsServer;
+import dev.assignment.service.DatabaseService;
+import dev.assignment.service.SessionRuntimeManager;
+import dev.assignment.service.TaskScheduler;
+import dev.assignment.util.AppConfig;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -13,10 +22,29 @@ import javafx.stage.Stage;
  */
 public class App extends Application {
 
+    private static final Logger logger = LogManager.getLogger(App.class);
+
     private static Scene scene;
+    private MetricsServer metricsServer;
 
     @Override
     public void start(Stage stage) throws IOException {
+        int metricsPort = AppConfig.getInt(AppConfig.METRICS_PORT, 0);
+        if (metricsPort > 0) {
+            try {
+                metricsServer = MetricsServer.start(metricsPort);
+            } catch (IOException e) {
+                logger.warn("Could not start the metrics endpoint on port {}", metricsPort, e);
+            }
+        }
+        if (AppConfig.getBoolean(AppConfig.JFR_RECORDING, false)) {
+            try {
+                FlightRecording.getInstance().start();
+            } catch (IOException e) {
+                logger.warn("Could not start the flight recording", e);
+            }
+        }
+
         double screenWidth = javafx.stage.Screen.getPrimary().getBounds().getWidth();
         double screenHeight = javafx.stage.Screen.getPrimary().getBounds().getHeight();
 
@@ -28,6 +56,23 @@ public class App extends Application {
         stage.setY((screenHeight - stage.getHeight()) / 2);
     }
 
+    @Override
+    public void stop() {
+        // Let running jobs checkpoint before the database closes
+        TaskScheduler.getInstance().shutdown();
+        SessionRuntimeManager.getInstance().shutdown();
+
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+        FlightRecording.getInstance().stop();
+
+        DatabaseService databaseService = DatabaseService.getInstance();
+        if (databaseService != null) {
+            databaseService.close();
+        }
+    }
+
     static void setRoot(String fxml) throws IOException {
         scene.setRoot(loadFXML(fxml));
     }
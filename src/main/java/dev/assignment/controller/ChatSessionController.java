@@ -7,10 +7,13 @@ import dev.assignment.handler.ChatHistoryHandler;
 import dev.assignment.handler.KnowledgebaseHandler;
 import dev.assignment.handler.MessageHandler;
 import dev.assignment.handler.SessionStateHandler;
+import dev.assignment.model.MessageSearchResult;
 import dev.assignment.model.Session;
+import dev.assignment.service.DatabaseService;
 import dev.assignment.view.SessionSidebar;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextArea;
 import javafx.scene.layout.VBox;
 
@@ -37,6 +40,7 @@ public class ChatSessionController {
             Label sessionNameLabel,
             Label sessionCreatedLabel,
             VBox chatContainer,
+            ScrollPane chatScrollPane,
             TextArea messageInput,
             Button sendButton,
             Label statusLabel,
@@ -59,6 +63,7 @@ public class ChatSessionController {
 
         this.chatHistoryHandler = new ChatHistoryHandler(
                 chatContainer,
+                chatScrollPane,
                 statusLabel,
                 sessionStateHandler);
 
@@ -127,14 +132,44 @@ public class ChatSessionController {
         knowledgebaseHandler.initializeSession();
     }
 
+    /**
+     * Handle selection of a chat search result: open its session and jump to
+     * the matching message.
+     */
+    public void handleSearchResultSelected(MessageSearchResult result) {
+        DatabaseService databaseService = DatabaseService.getInstance();
+        if (databaseService == null) {
+            return;
+        }
+
+        Session session = databaseService.getSession(result.sessionId());
+        if (session == null) {
+            logger.warn("Search result refers to a missing session: {}", result.sessionId());
+            return;
+        }
+
+        logger.info("Search result selected: session='{}', message={}", session.getName(), result.messageId());
+        chatHistoryHandler.setFocusMessage(result.messageId());
+
+        Session currentSession = sessionStateHandler.getCurrentSession();
+        if (currentSession != null && currentSession.getId().equals(session.getId())) {
+            chatHistoryHandler.clearChatContainer();
+            chatHistoryHandler.loadChatHistory();
+        } else {
+            handleSessionSelected(session);
+        }
+    }
+
     /**
      * Handle session changes (update, delete, etc.)
      */
     public void handleSessionChanged() {
-        sessionStateHandler.handleSessionChanged();
+        boolean reindex = sessionStateHandler.handleSessionChanged();
 
         if (sessionStateHandler.getCurrentSession() == null) {
             chatHistoryHandler.clearChatContainer();
+        } else if (reindex) {
+            knowledgebaseHandler.initializeSession();
         }
     }
 
@@ -1,7 +1,9 @@
 package dev.assignment.controller;
 
+import dev.assignment.metrics.FlightRecording;
 import dev.assignment.service.APIKeyService;
 import dev.assignment.service.DatabaseService;
+import dev.assignment.service.TaskScheduler;
 import dev.assignment.view.AlertHelper;
 import dev.assignment.view.SessionSidebar;
 import javafx.fxml.FXML;
@@ -54,6 +56,9 @@ public class MainController {
     @FXML
     private Button clearSessionButton;
 
+    @FXML
+    private Button saveRecordingButton;
+
     @FXML
     private Button toggleThemeButton;
 
@@ -97,7 +102,7 @@ public class MainController {
         if (hasApiKey) {
             statusLabel.setText("Validating API Key...");
 
-            new Thread(() -> {
+            TaskScheduler.getInstance().runIo("validate-api-key", () -> {
                 boolean isValid = apiKeyService.validateApiKey();
 
                 javafx.application.Platform.runLater(() -> {
@@ -114,7 +119,7 @@ public class MainController {
                                 "The provided OpenAI API key is invalid. Please check your .env file or provide a valid key.");
                     }
                 });
-            }).start();
+            });
 
         } else {
             statusLabel.setText("No API Key - Chat disabled");
@@ -126,6 +131,7 @@ public class MainController {
                 sessionNameLabel,
                 sessionCreatedLabel,
                 chatContainer,
+                chatScrollPane,
                 messageInput,
                 sendButton,
                 statusLabel,
@@ -136,6 +142,7 @@ public class MainController {
 
         sessionSidebar.setOnSessionSelected(chatSessionController::handleSessionSelected);
         sessionSidebar.setOnSessionChanged(chatSessionController::handleSessionChanged);
+        sessionSidebar.setOnSearchResultSelected(chatSessionController::handleSearchResultSelected);
 
         sessionSidebar.loadSessions();
 
@@ -147,6 +154,10 @@ public class MainController {
             toggleThemeButton.setOnAction(e -> handleToggleTheme());
         }
 
+        boolean recording = FlightRecording.getInstance().isRunning();
+        saveRecordingButton.setVisible(recording);
+        saveRecordingButton.setManaged(recording);
+
         javafx.application.Platform.runLater(() -> {
             Scene scene = root.getScene();
             if (scene != null) {
@@ -185,6 +196,28 @@ public class MainController {
         chatSessionController.handleSendMessage();
     }
 
+    /**
+     * Dump the continuous flight recording, e.g. right after a freeze
+     */
+    @FXML
+    private void handleSaveRecording() {
+        saveRecordingButton.setDisable(true);
+        TaskScheduler.getInstance().runIo("dump-recording", () -> {
+            try {
+                java.nio.file.Path file = FlightRecording.getInstance().dump();
+                javafx.application.Platform.runLater(
+                        () -> statusLabel.setText("Recording saved to " + file.toAbsolutePath()));
+            } catch (Exception e) {
+                javafx.application.Platform.runLater(() -> AlertHelper.showError(
+                        "Recording Error",
+                        "Failed to Save Recording",
+                        e.getMessage()));
+            } finally {
+                javafx.application.Platform.runLater(() -> saveRecordingButton.setDisable(false));
+            }
+        });
+    }
+
     @FXML
     private void handleToggleTheme() {
         var scene = toggleThemeButton.getScene();
@@ -3,13 +3,16 @@ package dev.assignment.controller;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import dev.assignment.handler.ResourceDeletionHandler;
 import dev.assignment.handler.ResourceImportHandler;
 import dev.assignment.handler.ResourceDeletionHandler.DeletionResult;
 import dev.assignment.handler.ResourceImportHandler.ImportResult;
+import dev.assignment.model.DocumentStats;
 import dev.assignment.model.Resource;
+import dev.assignment.service.BulkImportService;
 import dev.assignment.service.RAGService;
 import dev.assignment.service.ResourceService;
 import dev.assignment.util.ResourceValidator;
@@ -41,7 +44,7 @@ public class ResourceManagementController {
 
     @FXML
     private void initialize() {
-        resourceListView.setCellFactory(listView -> new ResourceListCell());
+        resourceListView.setCellFactory(listView -> new ResourceListCell(this::loadStats));
         resourceListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
     }
 
@@ -78,6 +81,11 @@ public class ResourceManagementController {
         resourceListView.getItems().addAll(resourceService.getAllResources());
     }
 
+    private CompletableFuture<DocumentStats> loadStats(Resource resource) {
+        boolean indexed = ragService != null && ragService.isFileIndexed(resource.getFileName());
+        return resourceService.loadStatsAsync(resource, indexed);
+    }
+
     private void notifyResourcesChanged() {
         if (onResourcesChangedCallback != null) {
             onResourcesChangedCallback.run();
@@ -208,7 +216,12 @@ public class ResourceManagementController {
                     result.success, result.failed, result.skipped);
 
             if (result.failed > 0) {
-                AlertHelper.showWarning("Import Complete with Errors", message);
+                String failures = result.files.stream()
+                        .filter(file -> file.status() == BulkImportService.Status.FAILED)
+                        .limit(5)
+                        .map(file -> file.fileName() + ": " + file.error())
+                        .collect(Collectors.joining("\n"));
+                AlertHelper.showWarning("Import Complete with Errors", message + "\n\n" + failures);
             } else {
                 AlertHelper.showInfo("Import Complete", message);
             }
@@ -10,12 +10,15 @@ import dev.assignment.model.ChatMessage;
 import dev.assignment.model.Session;
 import dev.assignment.service.DatabaseService;
 import dev.assignment.service.RAGService;
+import dev.assignment.service.TaskScheduler;
 import dev.assignment.view.AlertHelper;
 import dev.assignment.view.ChatAreaMessage;
 import dev.assignment.view.ChatMessageEntry;
 import javafx.application.Platform;
+import javafx.scene.Node;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.VBox;
 
 /**
@@ -25,19 +28,37 @@ public class ChatHistoryHandler {
 
     private static final Logger logger = LogManager.getLogger(ChatHistoryHandler.class);
 
+    /**
+     * Number of messages shown on each side of a search hit
+     */
+    private static final int SEARCH_HIT_CONTEXT = 10;
+
     private final VBox chatContainer;
+    private final ScrollPane chatScrollPane;
     private final Label statusLabel;
     private final SessionStateHandler sessionStateHandler;
 
+    private String focusMessageId;
+
     public ChatHistoryHandler(
             VBox chatContainer,
+            ScrollPane chatScrollPane,
             Label statusLabel,
             SessionStateHandler sessionStateHandler) {
         this.chatContainer = chatContainer;
+        this.chatScrollPane = chatScrollPane;
         this.statusLabel = statusLabel;
         this.sessionStateHandler = sessionStateHandler;
     }
 
+    /**
+     * Make the next history load show only the messages around this one
+     * and scroll to it.
+     */
+    public void setFocusMessage(String messageId) {
+        this.focusMessageId = messageId;
+    }
+
     /**
      * Load chat history from database.
      */
@@ -55,7 +76,11 @@ public class ChatHistoryHandler {
         chatContainer.getChildren().add(loadingMessage);
         statusLabel.setText("Loading chat history...");
         sessionStateHandler.setInputControlsDisabled(true);
-        new Thread(() -> {
+
+        String focusId = focusMessageId;
+        focusMessageId = null;
+
+        TaskScheduler.getInstance().runIo("load-chat-history", () -> {
             DatabaseService databaseService = DatabaseService.getInstance();
             if (databaseService == null) {
                 Platform.runLater(() -> {
@@ -69,12 +94,16 @@ public class ChatHistoryHandler {
                 return;
             }
 
-            List<ChatMessage> history = databaseService.getChatHistory(currentSession.getId());
+            List<ChatMessage> history = focusId != null
+                    ? databaseService.getChatHistoryAround(currentSession.getId(), focusId, SEARCH_HIT_CONTEXT)
+                    : databaseService.getChatHistory(currentSession.getId());
 
             Platform.runLater(() -> {
                 chatContainer.getChildren().remove(loadingMessage);
 
-                if (history.isEmpty()) {
+                if (focusId != null && !history.isEmpty()) {
+                    showMessagesAround(history, focusId);
+                } else if (history.isEmpty()) {
                     ChatAreaMessage emptyMessage = new ChatAreaMessage(
                             "Start a conversation!\n\n" +
                                     "Send a message to chat with your knowledgebase.");
@@ -92,7 +121,47 @@ public class ChatHistoryHandler {
                 statusLabel.setText("Ready");
                 sessionStateHandler.setInputControlsDisabled(false);
             });
-        }).start();
+        });
+    }
+
+    /**
+     * Show a window of messages around a search hit and scroll to the hit.
+     */
+    private void showMessagesAround(List<ChatMessage> messages, String focusId) {
+        ChatAreaMessage notice = new ChatAreaMessage(
+                "Showing messages around the search result.\n" +
+                        "Select the session again to see the full history.");
+        chatContainer.getChildren().add(notice);
+
+        ChatMessageEntry focusEntry = null;
+        for (ChatMessage message : messages) {
+            ChatMessageEntry messageBox = new ChatMessageEntry(message);
+            if (message.id().equals(focusId)) {
+                messageBox.markAsSearchHit();
+                focusEntry = messageBox;
+            }
+            chatContainer.getChildren().add(messageBox);
+        }
+        logger.info("Showing {} messages around search hit {}", messages.size(), focusId);
+
+        if (focusEntry != null) {
+            scrollTo(focusEntry);
+        }
+    }
+
+    /**
+     * Scroll the chat area so that an entry is visible.
+     */
+    private void scrollTo(Node entry) {
+        Platform.runLater(() -> {
+            chatScrollPane.layout();
+            double contentHeight = chatContainer.getHeight();
+            double viewportHeight = chatScrollPane.getViewportBounds().getHeight();
+            if (contentHeight > viewportHeight) {
+                double y = entry.getBoundsInParent().getMinY();
+                chatScrollPane.setVvalue(Math.min(1.0, y / (contentHeight - viewportHeight)));
+            }
+        });
     }
 
     /**
@@ -2,6 +2,7 @@ package dev.assignment.handler;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -9,9 +10,10 @@ import org.apache.logging.log4j.Logger;
 import dev.assignment.controller.ResourceManagementController;
 import dev.assignment.model.Resource;
 import dev.assignment.model.Session;
-import dev.assignment.service.APIKeyService;
-import dev.assignment.service.RAGService;
+import dev.assignment.service.CancellationToken;
 import dev.assignment.service.ResourceService;
+import dev.assignment.service.SessionRuntimeManager.SessionRuntime;
+import dev.assignment.service.TaskScheduler;
 import dev.assignment.view.AlertHelper;
 import dev.assignment.view.ChatAreaMessage;
 import dev.assignment.view.ChatMessageEntry;
@@ -35,6 +37,7 @@ public class KnowledgebaseHandler {
     private final Label statusLabel;
     private final SessionStateHandler sessionStateHandler;
     private final ChatHistoryHandler chatHistoryHandler;
+    private CancellationToken indexingToken;
 
     public KnowledgebaseHandler(
             VBox chatContainer,
@@ -51,6 +54,13 @@ public class KnowledgebaseHandler {
      * Initialize session and handle knowledgebase indexing.
      */
     public void initializeSession() {
+        // A newer initialization supersedes indexing still running for the
+        // previous one; finished files are kept
+        if (indexingToken != null) {
+            indexingToken.cancel();
+            indexingToken = null;
+        }
+
         Session currentSession = sessionStateHandler.getCurrentSession();
         if (currentSession == null) {
             logger.warn("Cannot initialize: No session selected");
@@ -62,8 +72,7 @@ public class KnowledgebaseHandler {
 
         chatContainer.getChildren().clear();
 
-        APIKeyService apiKeyService = APIKeyService.getInstance();
-        if (!apiKeyService.hasApiKey()) {
+        if (!SessionStateHandler.canIndex(currentSession)) {
             sessionStateHandler.setInputControlsDisabled(true);
             logger.warn("API key not available - chat functionality disabled for session: {}",
                     currentSession.getName());
@@ -98,19 +107,24 @@ public class KnowledgebaseHandler {
                         "Please check the bottom left corner for indexing progress.");
         chatContainer.getChildren().add(indexingMessage);
 
-     
-        new Thread(() -> {
+        CancellationToken token = new CancellationToken();
+        indexingToken = token;
+        // Resolved on the lane, after an index clear queued before this job
+        SessionRuntime runtime = sessionStateHandler.getRuntime();
+
+        TaskScheduler.getInstance().runExclusive(currentSession.getId(), "index-knowledgebase", token, () -> {
             try {
-                RAGService ragService = sessionStateHandler.getRagService();
-                ragService.indexKnowledgebase(resourceService, (message, current, total) -> {
+                runtime.getRagService().indexKnowledgebase(resourceService, (message, current, total) -> {
                     Platform.runLater(() -> {
-                        if (total > 0) {
+                        if (token.isCancelled()) {
+                            return;
+                        } else if (total > 0) {
                             statusLabel.setText(String.format("Indexing... (%d/%d) - %s", current, total, message));
                         } else {
                             statusLabel.setText(message);
                         }
                     });
-                });
+                }, token);
                 Platform.runLater(() -> {
                     chatContainer.getChildren().remove(indexingMessage);
 
@@ -118,7 +132,9 @@ public class KnowledgebaseHandler {
 
                     logger.info("Knowledgebase indexed successfully");
                 });
-            } catch (Exception e) { 
+            } catch (CancellationException e) {
+                logger.info("Indexing of session '{}' cancelled", currentSession.getName());
+            } catch (Exception e) {
                 logger.error("Error indexing knowledgebase", e);
                 Platform.runLater(() -> {
                     chatContainer.getChildren().remove(indexingMessage);
@@ -132,7 +148,7 @@ public class KnowledgebaseHandler {
                             e.getMessage());
                 });
             }
-        }).start();
+        });
     }
 
     /**
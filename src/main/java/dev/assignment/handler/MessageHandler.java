@@ -4,10 +4,14 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import dev.assignment.model.ChatMessage;
+import dev.assignment.model.MessageSource;
 import dev.assignment.model.Session;
+import dev.assignment.service.APIKeyService;
 import dev.assignment.service.DatabaseService;
 import dev.assignment.service.RAGService;
+import dev.assignment.service.TaskScheduler;
 import dev.assignment.util.Constants;
+import dev.assignment.util.TokenCounter;
 import dev.assignment.view.AlertHelper;
 import dev.assignment.view.ChatAreaMessage;
 import dev.assignment.view.ChatMessageEntry;
@@ -59,6 +63,22 @@ public class MessageHandler {
             return;
         }
 
+        int queryTokens = TokenCounter.count(userMessage, null);
+        if (queryTokens > Constants.MAX_QUERY_TOKENS) {
+            AlertHelper.showWarning("Query Too Long", "Your query exceeds the maximum length",
+                    String.format("Please limit your query to %d tokens. Current length: %d tokens.",
+                            Constants.MAX_QUERY_TOKENS, queryTokens));
+            return;
+        }
+
+        // A session using the local embedding model is indexed without a key,
+        // but answering still needs one
+        if (!APIKeyService.getInstance().hasApiKey()) {
+            AlertHelper.showWarning("API Key Required", "An OpenAI API key is required to chat",
+                    "Set your API key to send messages.");
+            return;
+        }
+
         RAGService ragService = sessionStateHandler.getRagService();
         if (ragService == null) {
             logger.warn("Cannot send message: RAG service not initialized (API key may be missing)");
@@ -86,7 +106,7 @@ public class MessageHandler {
 
         DatabaseService databaseService = DatabaseService.getInstance();
         if (databaseService != null) {
-            databaseService.saveChatMessage(currentSession.getId(), userChatMessage);
+            databaseService.queueChatMessage(currentSession.getId(), userChatMessage);
         }
 
         ChatMessage aiChatMessage = new ChatMessage("...", false);
@@ -96,28 +116,27 @@ public class MessageHandler {
         toggleAllControlsCallback.run();
         statusLabel.setText("Generating response...");
         String finalUserMessage = userMessage;
-        new Thread(() -> {
+        TaskScheduler.getInstance().runIo("rag-query", () -> {
             try {
                 logger.info("Querying RAG service...");
                 dev.assignment.model.QueryResponse queryResponse = ragService.query(finalUserMessage);
                 String responseText = queryResponse.response();
-                java.util.List<String> sources = queryResponse.sources();
+                java.util.List<MessageSource> sources = queryResponse.sources();
+
+                ChatMessage finalAiMessage = new ChatMessage(responseText, false, sources);
+                String sourcesText = finalAiMessage.sourcesText();
+                DatabaseService db = DatabaseService.getInstance();
+                if (db != null) {
+                    db.queueChatMessage(currentSession.getId(), finalAiMessage);
+                }
 
                 Platform.runLater(() -> {
                     aiMessageBox.updateText(responseText);
 
-                    String sourcesText = null;
-                    if (sources != null && !sources.isEmpty()) {
-                        sourcesText = String.join(", ", sources);
+                    if (sourcesText != null) {
                         aiMessageBox.setSources(sourcesText);
                     }
 
-                    ChatMessage finalAiMessage = new ChatMessage(responseText, false, sourcesText);
-                    DatabaseService db = DatabaseService.getInstance();
-                    if (db != null) {
-                        db.saveChatMessage(currentSession.getId(), finalAiMessage);
-                    }
-
                     toggleAllControlsCallback.run();
                     statusLabel.setText("Ready");
                     messageInput.requestFocus();
@@ -139,6 +158,6 @@ public class MessageHandler {
                     messageInput.requestFocus();
                 });
             }
-        }).start();
+        });
     }
 }
@@ -5,7 +5,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import dev.assignment.model.Resource;
+import dev.assignment.service.DatabaseService;
 import dev.assignment.service.RAGService;
 import dev.assignment.service.ResourceService;
 
@@ -14,6 +18,8 @@ import dev.assignment.service.ResourceService;
  */
 public class ResourceDeletionHandler {
 
+    private static final Logger logger = LogManager.getLogger(ResourceDeletionHandler.class);
+
     private final ResourceService resourceService;
     private final RAGService ragService;
 
@@ -29,6 +35,7 @@ public class ResourceDeletionHandler {
         String fileName = resource.getFileName();
         resourceService.deleteResource(resource);
         removeFromIndex(fileName);
+        logCitingMessages(fileName);
     }
 
     /**
@@ -61,6 +68,18 @@ public class ResourceDeletionHandler {
         }
     }
 
+    private void logCitingMessages(String fileName) {
+        DatabaseService databaseService = DatabaseService.getInstance();
+        if (databaseService == null)
+            return;
+
+        List<String> citingMessages = databaseService.getMessagesCitingFile(resourceService.getSessionId(), fileName);
+        if (!citingMessages.isEmpty()) {
+            logger.info("Deleted file '{}' was cited by {} message(s) in session {}",
+                    fileName, citingMessages.size(), resourceService.getSessionId());
+        }
+    }
+
     /**
      * Result of deletion operation
      */
@@ -3,8 +3,15 @@ package dev.assignment.handler;
 import java.io.File;
 import java.util.List;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.service.BulkImportService;
+import dev.assignment.service.BulkImportService.FileResult;
+import dev.assignment.service.CancellationToken;
 import dev.assignment.service.RAGService;
 import dev.assignment.service.ResourceService;
+import dev.assignment.service.TaskScheduler;
 import dev.assignment.view.ProgressDialog;
 import javafx.application.Platform;
 import javafx.stage.Stage;
@@ -14,6 +21,8 @@ import javafx.stage.Stage;
  */
 public class ResourceImportHandler {
 
+    private static final Logger logger = LogManager.getLogger(ResourceImportHandler.class);
+
     private final ResourceService resourceService;
     private final RAGService ragService;
     private final Runnable onImportComplete;
@@ -32,7 +41,10 @@ public class ResourceImportHandler {
             Runnable onSuccess, java.util.function.Consumer<String> onError) {
         ProgressDialog progressDialog = new ProgressDialog(ownerStage);
 
-        Thread importThread = new Thread(() -> {
+        CancellationToken token = new CancellationToken();
+        progressDialog.setOnCancel(token::cancel);
+
+        TaskScheduler.getInstance().runExclusive(resourceService.getSessionId(), "import-file", token, () -> {
             try {
                 if (progressDialog.isCancelled())
                     return;
@@ -69,8 +81,6 @@ public class ResourceImportHandler {
             }
         });
 
-        progressDialog.setOnCancel(importThread::interrupt);
-        importThread.start();
         progressDialog.show();
     }
 
@@ -81,8 +91,27 @@ public class ResourceImportHandler {
             java.util.function.Consumer<ImportResult> onComplete) {
         ProgressDialog progressDialog = new ProgressDialog(ownerStage);
 
-        Thread processingThread = new Thread(() -> {
-            ImportResult result = processFiles(files, progressDialog);
+        CancellationToken token = new CancellationToken();
+        progressDialog.setOnCancel(token::cancel);
+
+        TaskScheduler.getInstance().runExclusive(resourceService.getSessionId(), "import-files", token, () -> {
+            ImportResult result = processFiles(files, progressDialog, token);
+            Platform.runLater(() -> {
+                progressDialog.close();
+                onImportComplete.run();
+                onComplete.accept(result);
+            });
+        }).whenComplete((ignored, error) -> {
+            if (error == null) {
+                return;
+            }
+            // Cancelled while queued, or failed before any file was processed
+            ImportResult result = new ImportResult();
+            result.cancelled = token.isCancelled();
+            if (!result.cancelled) {
+                result.failed = files.size();
+                files.forEach(file -> result.failedFiles.add(file.getName()));
+            }
             Platform.runLater(() -> {
                 progressDialog.close();
                 onImportComplete.run();
@@ -90,74 +119,45 @@ public class ResourceImportHandler {
             });
         });
 
-        progressDialog.setOnCancel(processingThread::interrupt);
-        processingThread.setDaemon(true);
-        processingThread.start();
         progressDialog.show();
     }
 
-    private ImportResult processFiles(List<File> files, ProgressDialog progressDialog) {
+    private ImportResult processFiles(List<File> files, ProgressDialog progressDialog, CancellationToken token) {
         ImportResult result = new ImportResult();
         int total = files.size();
 
-        for (int i = 0; i < files.size(); i++) {
-            if (progressDialog.isCancelled() || Thread.currentThread().isInterrupted()) {
-                result.cancelled = true;
-                break;
-            }
-
-            File file = files.get(i);
-            FileMetadata metadata = new FileMetadata(file);
-            int currentIndex = i + 1;
-
-            try {
-                if (resourceService.resourceExists(metadata.targetFileName)) {
-                    result.skipped++;
-                    continue;
-                }
-
-                Platform.runLater(() -> progressDialog.updateProgress(currentIndex, total,
-                        "Processing " + file.getName() + "..."));
-
-                if (progressDialog.isCancelled())
-                    break;
-
-                resourceService.importResource(file, message -> {
-                    if (!progressDialog.isCancelled()) {
-                        Platform.runLater(() -> progressDialog.updateProgress(currentIndex, total, message));
-                    }
-                });
-
-                if (progressDialog.isCancelled())
-                    break;
-
-                if (ragService != null) {
-                    Platform.runLater(() -> progressDialog.updateProgress(currentIndex, total,
-                            "Indexing " + file.getName() + "..."));
-
-                    File importedFile = new File(resourceService.getStoragePath().toFile(), metadata.targetFileName);
-                    ragService.indexSingleFile(importedFile);
+        Platform.runLater(() -> progressDialog.updateProgress(0, total, "Importing " + total + " files..."));
+
+        BulkImportService importService = new BulkImportService(resourceService, ragService);
+        List<FileResult> fileResults = importService.importFiles(files, token,
+                (fileResult, completed, count) -> Platform.runLater(() -> progressDialog.updateProgress(
+                        completed, count, describe(fileResult))));
+
+        for (FileResult fileResult : fileResults) {
+            result.files.add(fileResult);
+            switch (fileResult.status()) {
+                case IMPORTED -> result.success++;
+                case SKIPPED -> result.skipped++;
+                case CANCELLED -> result.cancelled = true;
+                case FAILED -> {
+                    result.failed++;
+                    result.failedFiles.add(fileResult.fileName());
                 }
-
-                result.success++;
-
-            } catch (Exception e) {
-                result.failed++;
-                result.failedFiles.add(file.getName());
-                System.err.println("Failed to import " + file.getName() + ": " + e.getMessage());
-            }
-
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
             }
         }
 
         return result;
     }
 
+    private static String describe(FileResult fileResult) {
+        return switch (fileResult.status()) {
+            case IMPORTED -> "Imported " + fileResult.fileName();
+            case SKIPPED -> "Skipped " + fileResult.fileName() + " (already exists)";
+            case CANCELLED -> "Cancelled " + fileResult.fileName();
+            case FAILED -> "Failed to import " + fileResult.fileName();
+        };
+    }
+
     private void indexFile(String targetFileName, ProgressDialog progressDialog) {
         if (ragService == null)
             return;
@@ -168,7 +168,7 @@ public class ResourceImportHandler {
             File importedFile = new File(resourceService.getStoragePath().toFile(), targetFileName);
             ragService.indexSingleFile(importedFile);
         } catch (Exception e) {
-            System.err.println("Failed to index file: " + e.getMessage());
+            logger.error("Failed to index {}", targetFileName, e);
         }
     }
 
@@ -181,18 +181,6 @@ public class ResourceImportHandler {
         public int skipped = 0;
         public boolean cancelled = false;
         public List<String> failedFiles = new java.util.ArrayList<>();
-    }
-
-    /**
-     * File metadata helper
-     */
-    private static class FileMetadata {
-        final String fileName;
-        final String targetFileName;
-
-        FileMetadata(File file) {
-            this.fileName = file.getName();
-            this.targetFileName = fileName;
-        }
+        public List<FileResult> files = new java.util.ArrayList<>();
     }
 }
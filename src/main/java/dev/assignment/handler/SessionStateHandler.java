@@ -8,12 +8,17 @@ import dev.assignment.service.APIKeyService;
 import dev.assignment.service.DatabaseService;
 import dev.assignment.service.RAGService;
 import dev.assignment.service.ResourceService;
+import dev.assignment.service.SessionRuntimeManager;
+import dev.assignment.service.SessionRuntimeManager.SessionRuntime;
+import dev.assignment.util.Constants;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
 
 /**
  * Handles session state management including selection, updates, and UI state.
+ * Session services come from the {@link SessionRuntimeManager}, so switching
+ * back to a recently used session does not reload its index.
  */
 public class SessionStateHandler {
 
@@ -28,8 +33,8 @@ public class SessionStateHandler {
     private final Button sendButton;
 
     private Session currentSession;
+    private SessionRuntime runtime;
     private ResourceService resourceService;
-    private RAGService ragService;
 
     public SessionStateHandler(
             Label sessionNameLabel,
@@ -66,13 +71,20 @@ public class SessionStateHandler {
             logger.info("Clearing current session");
         }
 
+        SessionRuntimeManager runtimeManager = SessionRuntimeManager.getInstance();
+        if (runtime != null) {
+            runtimeManager.release(runtime);
+            runtime = null;
+        }
+
         this.currentSession = session;
         if (session != null) {
-            this.resourceService = new ResourceService(session.getId());
+            this.runtime = runtimeManager.acquire(session.getId());
+            this.resourceService = runtime.getResourceService();
             logger.debug("Initialized ResourceService for session: {}", session.getId());
 
-            if (APIKeyService.getInstance().hasApiKey()) {
-                this.ragService = new RAGService(session.getId(), session.getModel());
+            if (canIndex(session)) {
+                runtime.getRagService();
                 logger.info("Initialized RAGService with model={}",
                         session.getModel());
             } else {
@@ -80,7 +92,6 @@ public class SessionStateHandler {
             }
         } else {
             this.resourceService = null;
-            this.ragService = null;
             logger.debug("Cleared ResourceService and RAGService");
         }
     }
@@ -93,10 +104,32 @@ public class SessionStateHandler {
     }
 
     /**
-     * Get the RAG service for the current session.
+     * Get the RAG service for the current session, or null if it cannot be
+     * indexed. Always the runtime's current service, so a cleared or reloaded
+     * index is never used through a stale reference.
      */
     public RAGService getRagService() {
-        return ragService;
+        if (runtime == null || !canIndex(currentSession)) {
+            return null;
+        }
+        return runtime.getRagService();
+    }
+
+    /**
+     * Whether a session's knowledge base can be indexed: with an API key, or
+     * offline with the local embedding model
+     */
+    public static boolean canIndex(Session session) {
+        return APIKeyService.getInstance().hasApiKey() || (session != null
+                && Constants.LOCAL_EMBEDDING_MODEL.equals(session.getEmbeddingConfig().model()));
+    }
+
+    /**
+     * Get the runtime of the current session, e.g. to reach its RAG service
+     * from a job queued on the session's lane.
+     */
+    public SessionRuntime getRuntime() {
+        return runtime;
     }
 
     /**
@@ -107,7 +140,7 @@ public class SessionStateHandler {
             logger.info("Updating RAGService: sessionId={}, model={}",
                     currentSession.getId(), newModel);
 
-            this.ragService = new RAGService(currentSession.getId(), newModel);
+            SessionRuntimeManager.getInstance().reload(currentSession.getId());
 
             logger.info("RAGService successfully updated");
         } else {
@@ -117,14 +150,17 @@ public class SessionStateHandler {
 
     /**
      * Handle session changes (update, delete, etc.)
+     *
+     * @return true if the knowledge base has to be re-indexed because the
+     *         chunking settings or the embedding model changed
      */
-    public void handleSessionChanged() {
+    public boolean handleSessionChanged() {
         logger.info("========== Session Changed Event ==========");
 
         if (currentSession == null) {
             logger.info("No current session, clearing UI display");
             updateSessionInfoDisplay(null);
-            return;
+            return false;
         }
 
         logger.info("Current session: id={}, name='{}'", currentSession.getId(), currentSession.getName());
@@ -132,7 +168,7 @@ public class SessionStateHandler {
         DatabaseService databaseService = DatabaseService.getInstance();
         if (databaseService == null) {
             logger.error("Database unavailable, cannot refresh session");
-            return;
+            return false;
         }
 
         Session updatedSession = databaseService.getSession(currentSession.getId());
@@ -141,7 +177,7 @@ public class SessionStateHandler {
                     currentSession.getId(), currentSession.getName());
             setCurrentSession(null);
             updateSessionInfoDisplay(null);
-            return;
+            return false;
         }
 
         String oldModel = currentSession.getModel();
@@ -151,6 +187,9 @@ public class SessionStateHandler {
 
         boolean nameChanged = !oldName.equals(newName);
         boolean modelChanged = !oldModel.equals(newModel);
+        boolean chunkingChanged = !currentSession.getChunkingConfig().equals(updatedSession.getChunkingConfig());
+        boolean retrievalChanged = !currentSession.getRetrievalConfig().equals(updatedSession.getRetrievalConfig());
+        boolean embeddingChanged = !currentSession.getEmbeddingConfig().equals(updatedSession.getEmbeddingConfig());
 
         if (nameChanged) {
             logger.info("Session name changed: '{}' -> '{}'", oldName, newName);
@@ -159,23 +198,55 @@ public class SessionStateHandler {
             logger.info("Model changed: {} -> {}", oldModel, newModel);
         }
 
-        if (!nameChanged && !modelChanged) {
+        if (chunkingChanged) {
+            logger.info("Chunking changed: {} -> {}", currentSession.getChunkingConfig(),
+                    updatedSession.getChunkingConfig());
+        }
+        if (embeddingChanged) {
+            logger.info("Embedding model changed: {} -> {}", currentSession.getEmbeddingConfig(),
+                    updatedSession.getEmbeddingConfig());
+        }
+        if (retrievalChanged) {
+            logger.info("Retrieval changed: {} -> {}", currentSession.getRetrievalConfig(),
+                    updatedSession.getRetrievalConfig());
+        }
+
+        if (!nameChanged && !modelChanged && !chunkingChanged && !retrievalChanged && !embeddingChanged) {
             logger.debug("No changes detected in session properties");
         }
 
         currentSession = updatedSession;
         updateSessionInfoDisplay(currentSession);
 
-        if (modelChanged) {
+        // Retrieval settings apply to the next query, the index stays
+        if (retrievalChanged) {
+            SessionRuntimeManager.getInstance().updateRetrieval(currentSession.getId(),
+                    currentSession.getRetrievalConfig());
+        }
+
+        boolean reindex = false;
+        if (chunkingChanged || embeddingChanged) {
+            // The old index must not be reused even when it cannot be rebuilt
+            // now. It is cleared on the session's lane, ahead of the re-index,
+            // and the RAG service is recreated with all new settings after it.
+            logger.info("Index settings changed, clearing the index");
+            SessionRuntimeManager.getInstance().clearIndex(currentSession.getId());
+            reindex = canIndex(currentSession);
+            if (!reindex) {
+                logger.warn("API key not available, the knowledge base is re-indexed when the session "
+                        + "is next opened with one");
+            }
+        } else if (modelChanged) {
             if (!APIKeyService.getInstance().hasApiKey()) {
                 logger.warn("API key not available, cannot reinitialize RAGService");
             } else {
-                logger.info("Model changed, reinitializing RAGService");
+                logger.info("Session settings changed, reinitializing RAGService");
                 updateRagService(newModel);
             }
         }
 
         logger.info("========== Session Update Complete ==========");
+        return reindex;
     }
 
     /**
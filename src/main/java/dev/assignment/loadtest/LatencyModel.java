@@ -0,0 +1,49 @@
+package dev.assignment.loadtest;
+
+import java.util.Random;
+
+/**
+ * Simulated response latency. Parsed from specs such as {@code fixed:50},
+ * {@code uniform:20:80}, {@code normal:100:25} or {@code lognormal:80:0.5}
+ * (median in milliseconds and sigma); all values are in milliseconds.
+ */
+public interface LatencyModel {
+
+    LatencyModel NONE = random -> 0;
+
+    /**
+     * Draw one latency in milliseconds, never negative
+     */
+    long sampleMillis(Random random);
+
+    static LatencyModel parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            return switch (parts[0]) {
+                case "none" -> NONE;
+                case "fixed" -> {
+                    long millis = Long.parseLong(parts[1]);
+                    yield random -> millis;
+                }
+                case "uniform" -> {
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    yield random -> min + (max > min ? random.nextLong(max - min + 1) : 0);
+                }
+                case "normal" -> {
+                    double mean = Double.parseDouble(parts[1]);
+                    double stddev = Double.parseDouble(parts[2]);
+                    yield random -> Math.max(0, Math.round(mean + random.nextGaussian() * stddev));
+                }
+                case "lognormal" -> {
+                    double logMedian = Math.log(Double.parseDouble(parts[1]));
+                    double sigma = Double.parseDouble(parts[2]);
+                    yield random -> Math.round(Math.exp(logMedian + random.nextGaussian() * sigma));
+                }
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            };
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency spec: " + spec, e);
+        }
+    }
+}
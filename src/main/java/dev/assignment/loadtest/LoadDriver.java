@@ -0,0 +1,349 @@
+package dev.assignment.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.metrics.FlightRecording;
+import dev.assignment.metrics.LatencyHistogram;
+import dev.assignment.metrics.MetricsRegistry;
+import dev.assignment.metrics.MetricsServer;
+import dev.assignment.metrics.Timer;
+import dev.assignment.model.Resource;
+import dev.assignment.model.Session;
+import dev.assignment.service.APIKeyService;
+import dev.assignment.service.DatabaseService;
+import dev.assignment.service.OpenAiModels;
+import dev.assignment.service.RAGService;
+import dev.assignment.service.ResourceService;
+import dev.assignment.util.AppConfig;
+
+/**
+ * Headless load generator for the RAG pipeline. Replays a number of
+ * concurrent sessions that each import generated documents and then issue
+ * queries, and reports latency percentiles and throughput per stage.
+ *
+ * <pre>
+ * LoadDriver [--sessions 8] [--files 10] [--file-words 2000] [--queries 20] [--seed 42]
+ *            [--base-url URL] [--metrics-port PORT] [--jfr] [stub options, see StubOpenAiServer]
+ * </pre>
+ *
+ * Besides the stages timed by the driver, the report lists the internal
+ * query and indexing stages recorded in {@link MetricsRegistry}; with
+ * --metrics-port they can also be scraped while the run is in progress.
+ * With --jfr the run is recorded with Flight Recorder and dumped to
+ * recordings/.
+ *
+ * Without --base-url or OPENAI_BASE_URL a stub server is started on a free
+ * port, so no API key is needed and nothing is billed. Sessions are created
+ * in rag_sessions.db as "Load test N" and deleted again at the end.
+ */
+public class LoadDriver {
+
+    private static final Logger logger = LogManager.getLogger(LoadDriver.class);
+
+    private static final String MODEL = "gpt-4o-mini";
+    private static final String[] STAGES = { "copy", "index", "commit", "query" };
+
+    private static final String[] WORDS = {
+            "invoice", "contract", "revenue", "schedule", "warranty", "delivery", "supplier", "payment",
+            "quarter", "budget", "policy", "employee", "training", "safety", "audit", "report",
+            "customer", "support", "release", "feature", "migration", "database", "network", "latency",
+            "security", "access", "backup", "storage", "deadline", "approval", "meeting", "project",
+    };
+
+    private final int sessions;
+    private final int files;
+    private final int fileWords;
+    private final int queries;
+    private final long seed;
+    private final Map<String, StageStats> stages = new LinkedHashMap<>();
+
+    private LoadDriver(Map<String, String> options) {
+        this.sessions = Integer.parseInt(options.getOrDefault("sessions", "8"));
+        this.files = Integer.parseInt(options.getOrDefault("files", "10"));
+        this.fileWords = Integer.parseInt(options.getOrDefault("file-words", "2000"));
+        this.queries = Integer.parseInt(options.getOrDefault("queries", "20"));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        for (String stage : STAGES) {
+            stages.put(stage, new StageStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = StubOpenAiServer.parseOptions(args);
+
+        StubOpenAiServer stub = null;
+        String baseUrl = options.getOrDefault("base-url", OpenAiModels.baseUrl());
+        if (baseUrl == null) {
+            Map<String, String> stubOptions = new LinkedHashMap<>(options);
+            stubOptions.putIfAbsent("port", "0");
+            stub = new StubOpenAiServer(StubOpenAiServer.Config.fromOptions(stubOptions));
+            stub.start();
+            baseUrl = stub.baseUrl();
+        }
+        System.setProperty(AppConfig.OPENAI_BASE_URL, baseUrl);
+
+        String apiKey = stub != null ? "stub" : AppConfig.getString("OPENAI_API_KEY", null);
+        if (apiKey == null) {
+            System.err.println("OPENAI_API_KEY is required when running against " + baseUrl);
+            System.exit(1);
+        }
+        APIKeyService.getInstance().setApiKey(apiKey);
+        // Open the database before the sessions race to create it
+        DatabaseService.getInstance();
+
+        MetricsServer metricsServer = options.containsKey("metrics-port")
+                ? MetricsServer.start(Integer.parseInt(options.get("metrics-port")))
+                : null;
+
+        boolean recording = options.containsKey("jfr");
+        if (recording) {
+            FlightRecording.getInstance().start();
+        }
+
+        LoadDriver driver = new LoadDriver(options);
+        try {
+            long elapsedNanos = driver.run();
+            driver.printReport(elapsedNanos, baseUrl);
+            printInternalStages();
+            if (stub != null) {
+                printStubStats(stub);
+            }
+            if (recording) {
+                System.out.println("\nFlight recording saved to " + FlightRecording.getInstance().dump());
+            }
+        } finally {
+            if (stub != null) {
+                stub.close();
+            }
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Run all sessions concurrently and return the wall-clock time
+     */
+    private long run() throws Exception {
+        Path documentsDir = Files.createTempDirectory("rag-load");
+        try {
+            List<List<File>> documents = new ArrayList<>();
+            for (int s = 0; s < sessions; s++) {
+                documents.add(writeDocuments(documentsDir.resolve("session-" + s), new Random(seed + s)));
+            }
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> runs = new ArrayList<>();
+            long startNanos;
+            try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("load-session-", 0).factory())) {
+                for (int s = 0; s < sessions; s++) {
+                    int index = s;
+                    runs.add(executor.submit(() -> {
+                        start.await();
+                        runSession(index, documents.get(index));
+                        return null;
+                    }));
+                }
+                startNanos = System.nanoTime();
+                start.countDown();
+            }
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            for (Future<?> run : runs) {
+                try {
+                    run.get();
+                } catch (Exception e) {
+                    logger.error("Load session failed", e);
+                }
+            }
+            return elapsedNanos;
+        } finally {
+            deleteDirectory(documentsDir);
+        }
+    }
+
+    private void runSession(int index, List<File> documents) throws IOException {
+        DatabaseService databaseService = DatabaseService.getInstance();
+        Session session = databaseService.createSession("Load test " + (index + 1));
+        try {
+            ResourceService resourceService = new ResourceService(session.getId());
+            RAGService ragService = new RAGService(session.getId(), MODEL);
+
+            for (File document : documents) {
+                Resource resource = stages.get("copy").time(
+                        () -> resourceService.copyResource(document, () -> false));
+                if (resource != null) {
+                    stages.get("index").time(() -> {
+                        ragService.indexFile(resource.getFile(), () -> false);
+                        return null;
+                    });
+                }
+            }
+            stages.get("commit").time(() -> {
+                ragService.commitIndex();
+                return null;
+            });
+
+            Random random = new Random(seed * 31 + index);
+            for (int q = 0; q < queries; q++) {
+                String question = "What does the " + words(random, 3) + " section say about "
+                        + words(random, 2) + "?";
+                stages.get("query").time(() -> ragService.query(question));
+            }
+        } finally {
+            databaseService.deleteSession(session.getId());
+        }
+    }
+
+    private List<File> writeDocuments(Path dir, Random random) throws IOException {
+        Files.createDirectories(dir);
+        List<File> documents = new ArrayList<>(files);
+        for (int f = 0; f < files; f++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < fileWords; w++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+                text.append(w % 12 == 11 ? ".\n" : " ");
+                if (w % 120 == 119) {
+                    text.append('\n');
+                }
+            }
+            Path file = dir.resolve("document-" + f + ".txt");
+            Files.writeString(file, text);
+            documents.add(file.toFile());
+        }
+        return documents;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private void printReport(long elapsedNanos, String baseUrl) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%d sessions, %d files of %d words and %d queries each, against %s%n",
+                sessions, files, fileWords, queries, baseUrl);
+        System.out.printf("Wall-clock time %.1f s%n%n", seconds);
+        System.out.printf("%-8s %7s %7s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms", "ops/s");
+        stages.forEach((name, stats) -> {
+            long[] sorted = stats.sortedNanos();
+            System.out.printf("%-8s %7d %7d %9.1f %9.1f %9.1f %9.1f %9.2f%n",
+                    name, sorted.length, stats.errors(),
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    percentile(sorted, 100), sorted.length / seconds);
+        });
+    }
+
+    private static void printInternalStages() {
+        System.out.printf("%n%-32s %7s %9s %9s %9s %9s%n", "internal stage", "count", "p50 ms", "p95 ms",
+                "p99 ms", "max ms");
+        for (Timer timer : MetricsRegistry.getInstance().timers()) {
+            LatencyHistogram.Snapshot snapshot = timer.snapshot();
+            if (snapshot.count() == 0) {
+                continue;
+            }
+            System.out.printf("%-32s %7d %9.1f %9.1f %9.1f %9.1f%n", timer.getName(), snapshot.count(),
+                    snapshot.percentile(50) / 1e6, snapshot.percentile(95) / 1e6,
+                    snapshot.percentile(99) / 1e6, snapshot.maxNanos() / 1e6);
+        }
+    }
+
+    private static void printStubStats(StubOpenAiServer stub) {
+        System.out.printf("%n%-22s %9s %9s%n", "stub endpoint", "requests", "429s");
+        for (StubOpenAiServer.EndpointStats stats : stub.stats()) {
+            System.out.printf("%-22s %9d %9d%n", stats.endpoint(), stats.requests(), stats.rateLimited());
+        }
+    }
+
+    /**
+     * Nearest-rank percentile in milliseconds
+     */
+    private static double percentile(long[] sortedNanos, int percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private interface Operation<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Latencies of the successful operations of one stage and the number of
+     * failed ones
+     */
+    private static final class StageStats {
+        private long[] nanos = new long[256];
+        private int count;
+        private int errors;
+
+        <T> T time(Operation<T> operation) {
+            long start = System.nanoTime();
+            try {
+                T result = operation.run();
+                record(System.nanoTime() - start);
+                return result;
+            } catch (Exception e) {
+                logger.warn("Operation failed: {}", e.getMessage());
+                synchronized (this) {
+                    errors++;
+                }
+                return null;
+            }
+        }
+
+        private synchronized void record(long elapsedNanos) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = elapsedNanos;
+        }
+
+        synchronized long[] sortedNanos() {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        synchronized int errors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package dev.assignment.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import dev.assignment.util.TokenCounter;
+
+/**
+ * Local stand-in for the OpenAI embeddings and chat-completions endpoints,
+ * so the RAG pipeline can be load-tested without API costs. Embeddings are
+ * unit vectors seeded from a SHA-256 hash of the input, so the same text
+ * always gets the same vector. Responses are delayed according to the
+ * configured latency models, and a share of requests is rejected with 429.
+ *
+ * <pre>
+ * StubOpenAiServer [--port 8089] [--embedding-latency lognormal:80:0.4]
+ *                  [--chat-latency lognormal:500:0.4] [--token-latency fixed:15]
+ *                  [--rate-limit 0.0] [--dimensions 1536] [--completion-tokens 60] [--seed 42]
+ * </pre>
+ *
+ * Point the application at it with OPENAI_BASE_URL=http://127.0.0.1:8089/v1.
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(StubOpenAiServer.class);
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final String[] VOCABULARY = {
+            "the", "document", "describes", "index", "retrieval", "context", "answer", "segment",
+            "session", "embedding", "query", "model", "source", "result", "section", "detail",
+            "based", "on", "provided", "information", "this", "shows", "that", "and", "with", "its",
+    };
+
+    /**
+     * Stub behaviour. Chat latency is the time to the first token; every
+     * further token adds one draw of the token latency.
+     */
+    public record Config(int port, LatencyModel embeddingLatency, LatencyModel chatLatency,
+            LatencyModel tokenLatency, double rateLimitRate, int dimensions, int completionTokens, long seed) {
+
+        public static Config fromOptions(Map<String, String> options) {
+            return new Config(
+                    Integer.parseInt(options.getOrDefault("port", "8089")),
+                    LatencyModel.parse(options.getOrDefault("embedding-latency", "lognormal:80:0.4")),
+                    LatencyModel.parse(options.getOrDefault("chat-latency", "lognormal:500:0.4")),
+                    LatencyModel.parse(options.getOrDefault("token-latency", "fixed:15")),
+                    Double.parseDouble(options.getOrDefault("rate-limit", "0.0")),
+                    Integer.parseInt(options.getOrDefault("dimensions", "1536")),
+                    Integer.parseInt(options.getOrDefault("completion-tokens", "60")),
+                    Long.parseLong(options.getOrDefault("seed", "42")));
+        }
+    }
+
+    /**
+     * Requests served and rejected per endpoint
+     */
+    public record EndpointStats(String endpoint, long requests, long rateLimited) {
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, RequestBody body) throws IOException, InterruptedException;
+    }
+
+    private static final class Counters {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong rateLimited = new AtomicLong();
+    }
+
+    private final Config config;
+    private final Random random;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Counters> counters = new LinkedHashMap<>();
+    private final AtomicLong completionIds = new AtomicLong();
+
+    public StubOpenAiServer(Config config) throws IOException {
+        this.config = config;
+        this.random = new Random(config.seed());
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.port()), 0);
+        server.setExecutor(executor);
+        route("/v1/embeddings", this::embeddings);
+        route("/v1/chat/completions", this::chatCompletions);
+    }
+
+    public static void main(String[] args) throws IOException {
+        StubOpenAiServer server = new StubOpenAiServer(Config.fromOptions(parseOptions(args)));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "stub-shutdown"));
+        System.out.println("Stub OpenAI server listening on " + server.baseUrl());
+    }
+
+    /**
+     * Parse {@code --name value} pairs; a flag without a value maps to "true"
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String name = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(name, args[++i]);
+            } else {
+                options.put(name, "true");
+            }
+        }
+        return options;
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Stub OpenAI server started on {}", baseUrl());
+    }
+
+    /**
+     * Base URL to configure as OPENAI_BASE_URL; resolves the actual port when
+     * started with port 0
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public List<EndpointStats> stats() {
+        List<EndpointStats> stats = new ArrayList<>();
+        counters.forEach((endpoint, count) -> stats.add(
+                new EndpointStats(endpoint, count.requests.get(), count.rateLimited.get())));
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void route(String path, Handler handler) {
+        Counters count = new Counters();
+        counters.put(path, count);
+        server.createContext(path, exchange -> {
+            try (exchange) {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    sendError(exchange, 405, "Method not allowed", "invalid_request_error");
+                    return;
+                }
+                count.requests.incrementAndGet();
+                if (random.nextDouble() < config.rateLimitRate()) {
+                    count.rateLimited.incrementAndGet();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    sendError(exchange, 429, "Rate limit reached (stub)", "rate_limit_exceeded");
+                    return;
+                }
+                RequestBody body;
+                try (InputStream in = exchange.getRequestBody()) {
+                    body = RequestBody.parse(in);
+                } catch (IOException e) {
+                    sendError(exchange, 400, "Invalid request body: " + e.getMessage(), "invalid_request_error");
+                    return;
+                }
+                handler.handle(exchange, body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                // Usually the client giving up on a slow response
+                logger.debug("Stub request to {} failed", path, e);
+            }
+        });
+    }
+
+    private void embeddings(HttpExchange exchange, RequestBody body) throws IOException, InterruptedException {
+        Thread.sleep(config.embeddingLatency().sampleMillis(random));
+
+        int dimensions = body.dimensions > 0 ? body.dimensions : config.dimensions();
+        int tokens = 0;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator json = JSON.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("object", "list");
+            json.writeArrayFieldStart("data");
+            for (int i = 0; i < body.input.size(); i++) {
+                String text = body.input.get(i);
+                tokens += TokenCounter.count(text);
+
+                json.writeStartObject();
+                json.writeStringField("object", "embedding");
+                json.writeNumberField("index", i);
+                json.writeArrayFieldStart("embedding");
+                for (float value : vectorFor(text, dimensions)) {
+                    json.writeNumber(value);
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeStringField("model", body.model);
+            json.writeObjectFieldStart("usage");
+            json.writeNumberField("prompt_tokens", tokens);
+            json.writeNumberField("total_tokens", tokens);
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+        sendJson(exchange, 200, out.toByteArray());
+    }
+
+    private void chatCompletions(HttpExchange exchange, RequestBody body) throws IOException, InterruptedException {
+        String id = "chatcmpl-stub-" + completionIds.incrementAndGet();
+        long created = System.currentTimeMillis() / 1000;
+        List<String> tokens = completionFor(body.lastMessage);
+        int promptTokens = Math.max(1, body.promptChars / TokenCounter.CHARS_PER_TOKEN);
+
+        Thread.sleep(config.chatLatency().sampleMillis(random));
+
+        if (!body.stream) {
+            for (int i = 1; i < tokens.size(); i++) {
+                Thread.sleep(config.tokenLatency().sampleMillis(random));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (JsonGenerator json = JSON.createGenerator(out)) {
+                json.writeStartObject();
+                writeHeader(json, id, "chat.completion", created, body.model);
+                json.writeArrayFieldStart("choices");
+                json.writeStartObject();
+                json.writeNumberField("index", 0);
+                json.writeObjectFieldStart("message");
+                json.writeStringField("role", "assistant");
+                json.writeStringField("content", String.join("", tokens));
+                json.writeEndObject();
+                json.writeStringField("finish_reason", "stop");
+                json.writeEndObject();
+                json.writeEndArray();
+                writeUsage(json, promptTokens, tokens.size());
+                json.writeEndObject();
+            }
+            sendJson(exchange, 200, out.toByteArray());
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream stream = exchange.getResponseBody()) {
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i > 0) {
+                    Thread.sleep(config.tokenLatency().sampleMillis(random));
+                }
+                sendEvent(stream, chunk(id, created, body.model, tokens.get(i), i == 0, null));
+            }
+            sendEvent(stream, chunk(id, created, body.model, null, false, "stop"));
+            if (body.includeUsage) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (JsonGenerator json = JSON.createGenerator(out)) {
+                    json.writeStartObject();
+                    writeHeader(json, id, "chat.completion.chunk", created, body.model);
+                    json.writeArrayFieldStart("choices");
+                    json.writeEndArray();
+                    writeUsage(json, promptTokens, tokens.size());
+                    json.writeEndObject();
+                }
+                sendEvent(stream, out.toByteArray());
+            }
+            sendEvent(stream, "[DONE]".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] chunk(String id, long created, String model, String content, boolean first,
+            String finishReason) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator json = JSON.createGenerator(out)) {
+            json.writeStartObject();
+            writeHeader(json, id, "chat.completion.chunk", created, model);
+            json.writeArrayFieldStart("choices");
+            json.writeStartObject();
+            json.writeNumberField("index", 0);
+            json.writeObjectFieldStart("delta");
+            if (first) {
+                json.writeStringField("role", "assistant");
+            }
+            if (content != null) {
+                json.writeStringField("content", content);
+            }
+            json.writeEndObject();
+            json.writeStringField("finish_reason", finishReason);
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeHeader(JsonGenerator json, String id, String object, long created, String model)
+            throws IOException {
+        json.writeStringField("id", id);
+        json.writeStringField("object", object);
+        json.writeNumberField("created", created);
+        json.writeStringField("model", model);
+    }
+
+    private static void writeUsage(JsonGenerator json, int promptTokens, int completionTokens) throws IOException {
+        json.writeObjectFieldStart("usage");
+        json.writeNumberField("prompt_tokens", promptTokens);
+        json.writeNumberField("completion_tokens", completionTokens);
+        json.writeNumberField("total_tokens", promptTokens + completionTokens);
+        json.writeEndObject();
+    }
+
+    private static void sendEvent(OutputStream stream, byte[] data) throws IOException {
+        stream.write("data: ".getBytes(StandardCharsets.UTF_8));
+        stream.write(data);
+        stream.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        stream.flush();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message, String code)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator json = JSON.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeObjectFieldStart("error");
+            json.writeStringField("message", message);
+            json.writeStringField("type", code);
+            json.writeStringField("code", code);
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+        sendJson(exchange, status, out.toByteArray());
+    }
+
+    /**
+     * Deterministic unit vector for a text: Gaussian components drawn from a
+     * generator seeded with the text's SHA-256 hash
+     */
+    static float[] vectorFor(String text, int dimensions) {
+        Random generator = new Random(ByteBuffer.wrap(sha256(text)).getLong());
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) generator.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    /**
+     * Completion tokens for a prompt, the same for the same last message
+     */
+    private List<String> completionFor(String lastMessage) {
+        Random generator = new Random(ByteBuffer.wrap(sha256(lastMessage)).getLong());
+        List<String> tokens = new ArrayList<>(config.completionTokens());
+        for (int i = 0; i < config.completionTokens(); i++) {
+            String word = VOCABULARY[generator.nextInt(VOCABULARY.length)];
+            tokens.add(i == 0 ? word : " " + word);
+        }
+        if (!tokens.isEmpty()) {
+            tokens.set(tokens.size() - 1, tokens.get(tokens.size() - 1) + ".");
+        }
+        return tokens;
+    }
+
+    private static byte[] sha256(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * The request fields the stub looks at
+     */
+    private static final class RequestBody {
+        String model = "stub";
+        final List<String> input = new ArrayList<>();
+        int dimensions;
+        boolean stream;
+        boolean includeUsage;
+        String lastMessage = "";
+        int promptChars;
+
+        static RequestBody parse(InputStream in) throws IOException {
+            RequestBody body = new RequestBody();
+            try (JsonParser parser = JSON.createParser(in)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("expected a JSON object");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "model" -> body.model = parser.getValueAsString(body.model);
+                        case "dimensions" -> body.dimensions = parser.getValueAsInt();
+                        case "stream" -> body.stream = value == JsonToken.VALUE_TRUE;
+                        case "input" -> body.readInput(parser, value);
+                        case "messages" -> body.readMessages(parser, value);
+                        case "stream_options" -> body.readStreamOptions(parser, value);
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            return body;
+        }
+
+        private void readInput(JsonParser parser, JsonToken value) throws IOException {
+            if (value == JsonToken.VALUE_STRING) {
+                input.add(parser.getText());
+                return;
+            }
+            if (value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return;
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                // Token arrays are not used by the application; embed them as empty text
+                input.add(parser.currentToken() == JsonToken.VALUE_STRING ? parser.getText() : "");
+                parser.skipChildren();
+            }
+        }
+
+        /**
+         * Collect the text of all messages, whether the content is a string or
+         * a list of parts
+         */
+        private void readMessages(JsonParser parser, JsonToken value) throws IOException {
+            if (value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return;
+            }
+            int depth = 1;
+            while (depth > 0) {
+                JsonToken token = parser.nextToken();
+                if (token == null) {
+                    throw new IOException("unexpected end of messages");
+                } else if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                } else if (token == JsonToken.VALUE_STRING
+                        && ("content".equals(parser.currentName()) || "text".equals(parser.currentName()))) {
+                    lastMessage = parser.getText();
+                    promptChars += lastMessage.length();
+                }
+            }
+        }
+
+        private void readStreamOptions(JsonParser parser, JsonToken value) throws IOException {
+            if (value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String option = parser.currentName();
+                JsonToken optionValue = parser.nextToken();
+                if ("include_usage".equals(option)) {
+                    includeUsage = optionValue == JsonToken.VALUE_TRUE;
+                }
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package dev.assignment.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Loading or saving a session's Java-serialized embedding cache
+ */
+@Name("dev.assignment.EmbeddingCache")
+@Label("Embedding Cache")
+@Category({ "RAG", "Storage" })
+@Description("Loading or saving the embedding cache of a session")
+@StackTrace(false)
+public class EmbeddingCacheEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Session")
+    public String sessionId;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Segments")
+    public int segments;
+
+    @Label("Files")
+    public int files;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
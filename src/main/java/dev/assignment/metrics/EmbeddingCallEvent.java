@@ -0,0 +1,30 @@
+package dev.assignment.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One embedding API call, including the retries it needed
+ */
+@Name("dev.assignment.EmbeddingCall")
+@Label("Embedding Call")
+@Category({ "RAG", "API" })
+@Description("Request to the embedding API, from the first attempt to the last retry")
+@StackTrace(false)
+public class EmbeddingCallEvent extends jdk.jfr.Event {
+
+    @Label("Batch Size")
+    public int batchSize;
+
+    @Label("Retries")
+    public int retries;
+
+    @Label("Input Tokens")
+    public int inputTokens;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,102 @@
+package dev.assignment.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Continuous Flight Recorder recording with the JDK's low-overhead "default"
+ * settings plus the application's events. Only the last half hour is kept,
+ * and a dump can be written on demand, e.g. after a user reports a freeze.
+ */
+public class FlightRecording {
+
+    private static final Logger logger = LogManager.getLogger(FlightRecording.class);
+
+    private static final String RECORDINGS_DIR = "recordings";
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+    private static final long MAX_SIZE_BYTES = 250L * 1024 * 1024;
+    private static final Duration SQL_THRESHOLD = Duration.ofMillis(1);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static FlightRecording instance;
+
+    private Recording recording;
+
+    private FlightRecording() {
+    }
+
+    public static synchronized FlightRecording getInstance() {
+        if (instance == null) {
+            instance = new FlightRecording();
+        }
+        return instance;
+    }
+
+    /**
+     * Start recording unless already running
+     */
+    public synchronized void start() throws IOException {
+        if (recording != null) {
+            return;
+        }
+        try {
+            Recording started = new Recording(Configuration.getConfiguration("default"));
+            started.setName("rag-continuous");
+            started.setToDisk(true);
+            started.setMaxAge(MAX_AGE);
+            started.setMaxSize(MAX_SIZE_BYTES);
+            started.enable(StageEvent.class);
+            started.enable(EmbeddingCacheEvent.class);
+            started.enable(EmbeddingCallEvent.class);
+            started.enable(VectorSearchEvent.class);
+            started.enable(RerankEvent.class);
+            started.enable(SqlEvent.class).withThreshold(SQL_THRESHOLD);
+            started.start();
+            recording = started;
+            logger.info("Continuous flight recording started");
+        } catch (ParseException e) {
+            throw new IOException("Invalid JFR configuration", e);
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return recording != null;
+    }
+
+    /**
+     * Write what has been recorded so far to recordings/ and keep recording
+     *
+     * @return the written file
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("No recording running");
+        }
+        Path file = Files.createDirectories(Path.of(RECORDINGS_DIR))
+                .resolve("rag-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+        recording.dump(file);
+        logger.info("Flight recording dumped to {}", file.toAbsolutePath());
+        return file;
+    }
+
+    /**
+     * Stop and discard the recording
+     */
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dev.assignment.metrics;
+
+/**
+ * The metrics recorded along the query and indexing paths
+ */
+public class Metrics {
+
+    private static final MetricsRegistry registry = MetricsRegistry.getInstance();
+
+    // Query path, in the order the stages run
+
+    public static final Timer QUERY_CONTEXTUALIZE = registry.timer("rag_query_contextualize_seconds",
+            "Building the history-aware retrieval query");
+    public static final Timer QUERY_EMBED = registry.timer("rag_query_embed_seconds",
+            "Embedding request for the query");
+    public static final Timer QUERY_SEARCH = registry.timer("rag_query_search_seconds",
+            "Vector search over the session's segments");
+    public static final Timer QUERY_RERANK = registry.timer("rag_query_rerank_seconds",
+            "Re-ranking the retrieved candidates");
+    public static final Timer QUERY_PROMPT_BUILD = registry.timer("rag_query_prompt_build_seconds",
+            "Assembling context and history into the chat request");
+    public static final Timer QUERY_FIRST_TOKEN = registry.timer("rag_query_first_token_seconds",
+            "Time from sending the chat request to the first streamed token");
+    public static final Timer QUERY_CHAT = registry.timer("rag_query_chat_seconds",
+            "Time from sending the chat request to the complete answer");
+    public static final Timer QUERY_TOTAL = registry.timer("rag_query_total_seconds",
+            "Whole query, from user message to complete answer");
+
+    public static final Counter QUERY_EMBEDDING_TOKENS = registry.counter("rag_query_embedding_tokens_total",
+            "Tokens sent to the embedding API for queries");
+    public static final Counter QUERY_PROMPT_TOKENS = registry.counter("rag_query_prompt_tokens_total",
+            "Prompt tokens sent to the chat model");
+    public static final Counter QUERY_COMPLETION_TOKENS = registry.counter("rag_query_completion_tokens_total",
+            "Completion tokens received from the chat model");
+    public static final Counter QUERY_CONTEXT_TOKENS = registry.counter("rag_query_context_tokens_total",
+            "Estimated tokens of retrieved context packed into prompts");
+    public static final Counter QUERY_MERGED_SEGMENTS = registry.counter("rag_query_merged_segments_total",
+            "Retrieved segments merged into an overlapping or adjacent segment of the same file");
+    public static final Counter QUERY_EMBEDDING_CACHE_HITS = registry.counter("rag_query_embedding_cache_hits_total",
+            "Queries whose embedding was cached, e.g. by follow-up prefetching");
+    public static final Counter QUERY_PREFETCHED_EMBEDDINGS = registry.counter(
+            "rag_query_prefetched_embeddings_total", "Follow-up queries embedded speculatively");
+    public static final Counter QUERY_PREFETCH_TOKENS = registry.counter("rag_query_prefetch_tokens_total",
+            "Tokens sent to the embedding API for follow-up prefetching");
+    public static final Counter RETRIEVAL_FIXED = registry.counter("rag_retrieval_fixed_total",
+            "Searches that kept the configured number of candidates");
+    public static final Counter RETRIEVAL_WIDENED = registry.counter("rag_retrieval_widened_total",
+            "Searches whose candidate pool was widened because the top scores were clustered");
+    public static final Counter RETRIEVAL_CUT_OFF = registry.counter("rag_retrieval_cut_off_total",
+            "Searches whose candidate pool was cut off at a sharp score drop");
+    public static final Counter RETRIEVAL_CANDIDATES = registry.counter("rag_retrieval_candidates_total",
+            "Candidates passed to the re-ranker");
+    public static final Counter RERANK_CROSS_ENCODER = registry.counter("rag_rerank_cross_encoder_total",
+            "Re-rankings scored by the cross-encoder model");
+    public static final Counter RERANK_FALLBACKS = registry.counter("rag_rerank_fallbacks_total",
+            "Re-rankings left to hybrid scoring because the cross-encoder was over its latency budget or failed");
+
+    // Indexing path
+
+    public static final Timer INDEX_EXTRACT = registry.timer("rag_index_extract_seconds",
+            "Opening a document's text, including PDF extraction on a cache miss");
+    public static final Timer INDEX_SPLIT = registry.timer("rag_index_split_seconds",
+            "Reading and chunking one document, excluding embedding requests");
+    public static final Timer INDEX_EMBED_BATCH = registry.timer("rag_index_embed_batch_seconds",
+            "Embedding request for one batch of segments");
+    public static final Timer INDEX_FILE = registry.timer("rag_index_file_seconds",
+            "Indexing one document end to end");
+    public static final Timer INDEX_CACHE_SAVE = registry.timer("rag_index_cache_save_seconds",
+            "Saving the index to the embedding storage");
+
+    public static final Counter INDEX_EMBEDDING_TOKENS = registry.counter("rag_index_embedding_tokens_total",
+            "Tokens sent to the embedding API while indexing");
+    public static final Counter INDEX_SEGMENTS = registry.counter("rag_index_segments_total",
+            "Segments embedded while indexing");
+
+    private Metrics() {
+        // Prevent instantiation
+    }
+}
@@ -0,0 +1,96 @@
+package dev.assignment.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of all timers and counters, rendered in the Prometheus text
+ * exposition format
+ */
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = { 0.5, 0.95, 0.99 };
+
+    private static MetricsRegistry instance;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Get or create the timer with the given name
+     */
+    public Timer timer(String name, String help) {
+        return timers.computeIfAbsent(name, key -> new Timer(key, help));
+    }
+
+    /**
+     * Get or create the counter with the given name, which should end in
+     * _total
+     */
+    public Counter counter(String name, String help) {
+        return counters.computeIfAbsent(name, key -> new Counter(key, help));
+    }
+
+    /**
+     * All timers, sorted by name
+     */
+    public List<Timer> timers() {
+        List<Timer> sorted = new ArrayList<>(timers.values());
+        sorted.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return sorted;
+    }
+
+    /**
+     * All counters, sorted by name
+     */
+    public List<Counter> counters() {
+        List<Counter> sorted = new ArrayList<>(counters.values());
+        sorted.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return sorted;
+    }
+
+    /**
+     * Render every metric in the Prometheus text format; timers are
+     * summaries in seconds
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Timer timer : timers()) {
+            LatencyHistogram.Snapshot snapshot = timer.snapshot();
+            header(out, timer.getName(), timer.getHelp(), "summary");
+            for (double quantile : QUANTILES) {
+                out.append(timer.getName()).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(snapshot.percentile(quantile * 100))).append('\n');
+            }
+            out.append(timer.getName()).append("_sum ").append(seconds(snapshot.sumNanos())).append('\n');
+            out.append(timer.getName()).append("_count ").append(snapshot.count()).append('\n');
+        }
+        for (Counter counter : counters()) {
+            header(out, counter.getName(), counter.getHelp(), "counter");
+            out.append(counter.getName()).append(' ').append(counter.get()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+}
@@ -0,0 +1,28 @@
+package dev.assignment.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One re-ranking of retrieved candidates
+ */
+@Name("dev.assignment.Rerank")
+@Label("Rerank")
+@Category({ "RAG", "Retrieval" })
+@Description("Re-ranking the candidates of a vector search")
+@StackTrace(false)
+public class RerankEvent extends jdk.jfr.Event {
+
+    @Label("Candidates")
+    public int candidates;
+
+    @Label("Query Length")
+    public int queryLength;
+
+    @Label("Cross-Encoder")
+    @Description("Scored by the cross-encoder model rather than the hybrid lexical scoring")
+    public boolean crossEncoder;
+}
@@ -0,0 +1,23 @@
+package dev.assignment.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One statement executed against the SQLite database. Keeps its stack
+ * trace, which shows the caller that waited on the database.
+ */
+@Name("dev.assignment.Sql")
+@Label("SQLite Statement")
+@Category({ "RAG", "Storage" })
+@Description("Statement executed on rag_sessions.db")
+public class SqlEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("SQL")
+    public String sql;
+}
@@ -0,0 +1,28 @@
+package dev.assignment.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event committed for every timed stage while a recording is running,
+ * so stage timings line up with GC, I/O and thread events in the same
+ * recording
+ */
+@Name("dev.assignment.Stage")
+@Label("RAG Stage")
+@Category({ "RAG", "Stages" })
+@Description("Duration of one stage of the query or indexing path")
+@StackTrace(false)
+class StageEvent extends jdk.jfr.Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
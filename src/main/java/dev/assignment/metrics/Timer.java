@@ -0,0 +1,51 @@
+package dev.assignment.metrics;
+
+/**
+ * Latency metric for one stage, exported as a Prometheus summary in seconds
+ * and as {@link StageEvent}s to JFR
+ */
+public class Timer {
+
+    private final String name;
+    private final String help;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    public void record(long nanos) {
+        histogram.record(nanos);
+
+        StageEvent event = new StageEvent();
+        if (event.isEnabled()) {
+            event.stage = name;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Record the time since {@code startNanos} and return the current
+     * {@link System#nanoTime()}, so consecutive stages can be timed with one
+     * clock read each
+     */
+    public long recordSince(long startNanos) {
+        long now = System.nanoTime();
+        record(now - startNanos);
+        return now;
+    }
+
+    public LatencyHistogram.Snapshot snapshot() {
+        return histogram.snapshot();
+    }
+}
@@ -0,0 +1,30 @@
+package dev.assignment.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One top-k search over a session's embedding store
+ */
+@Name("dev.assignment.VectorSearch")
+@Label("Vector Search")
+@Category({ "RAG", "Retrieval" })
+@Description("Exhaustive cosine search over the segments of a session")
+@StackTrace(false)
+public class VectorSearchEvent extends jdk.jfr.Event {
+
+    @Label("Candidates Scanned")
+    public int candidatesScanned;
+
+    @Label("Max Results")
+    public int maxResults;
+
+    @Label("Min Score")
+    public double minScore;
+
+    @Label("Matches")
+    public int matches;
+}
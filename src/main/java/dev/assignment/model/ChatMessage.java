@@ -1,6 +1,8 @@
 package dev.assignment.model;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Represents a chat message in the session
@@ -10,17 +12,29 @@ public record ChatMessage(
         String content,
         boolean isUser,
         LocalDateTime timestamp,
-        String sources // Optional sources for AI messages
+        List<MessageSource> sources // Optional sources for AI messages
 ) {
     public ChatMessage(String content, boolean isUser) {
-        this(java.util.UUID.randomUUID().toString(), content, isUser, LocalDateTime.now(), null);
+        this(java.util.UUID.randomUUID().toString(), content, isUser, LocalDateTime.now(), List.of());
     }
 
-    public ChatMessage(String content, boolean isUser, String sources) {
+    public ChatMessage(String content, boolean isUser, List<MessageSource> sources) {
         this(java.util.UUID.randomUUID().toString(), content, isUser, LocalDateTime.now(), sources);
     }
 
     public boolean hasSources() {
-        return sources != null && !sources.trim().isEmpty();
+        return sources != null && !sources.isEmpty();
+    }
+
+    /**
+     * Get the cited file names as a comma-separated string for display
+     */
+    public String sourcesText() {
+        if (!hasSources()) {
+            return null;
+        }
+        return sources.stream()
+                .map(MessageSource::fileName)
+                .collect(Collectors.joining(", "));
     }
 }
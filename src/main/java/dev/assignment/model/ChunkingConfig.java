@@ -0,0 +1,26 @@
+package dev.assignment.model;
+
+/**
+ * Chunk size and overlap of a session, both measured in tokens
+ */
+public record ChunkingConfig(int chunkSize, int chunkOverlap) {
+
+    public static final int MIN_CHUNK_SIZE = 32;
+    public static final int MAX_CHUNK_SIZE = 2048;
+
+    /**
+     * Roughly the 500/50 characters the recursive splitter used to produce
+     */
+    public static final ChunkingConfig DEFAULT = new ChunkingConfig(128, 16);
+
+    public ChunkingConfig {
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be between " + MIN_CHUNK_SIZE + " and "
+                    + MAX_CHUNK_SIZE + " tokens: " + chunkSize);
+        }
+        if (chunkOverlap < 0 || chunkOverlap > chunkSize / 2) {
+            throw new IllegalArgumentException("Chunk overlap must be between 0 and half the chunk size: "
+                    + chunkOverlap);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package dev.assignment.model;
+
+import java.io.File;
+
+/**
+ * Statistics of a knowledgebase document, computed once at import or index
+ * time and persisted so lists can render without reading the document.
+ * Page and segment counts are -1 when unknown.
+ */
+public record DocumentStats(String fileName, long fileSize, long lastModified, int characterCount,
+        int pageCount, int segmentCount, boolean indexed) {
+
+    /**
+     * Check whether these statistics still describe the file on disk
+     */
+    public boolean matches(File file) {
+        return file.length() == fileSize && file.lastModified() == lastModified;
+    }
+
+    /**
+     * Copy of these statistics with the index status and segment count set
+     */
+    public DocumentStats withIndex(boolean indexed, int segmentCount) {
+        return new DocumentStats(fileName, fileSize, lastModified, characterCount, pageCount, segmentCount, indexed);
+    }
+
+    /**
+     * Short summary for list rows, e.g. "12.3K chars · 40 pages"
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder(formatCharacterCount(characterCount));
+        if (pageCount > 0) {
+            summary.append(" · ").append(pageCount).append(pageCount == 1 ? " page" : " pages");
+        }
+        if (!indexed) {
+            summary.append(" · not indexed");
+        }
+        return summary.toString();
+    }
+
+    public static String formatCharacterCount(int count) {
+        if (count >= 1000000) {
+            return String.format("%.1fM chars", count / 1000000.0);
+        } else if (count >= 1000) {
+            return String.format("%.1fK chars", count / 1000.0);
+        } else {
+            return count + " chars";
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package dev.assignment.model;
+
+import dev.assignment.util.Constants;
+
+/**
+ * Embedding model of a session and the dimension of its vectors. Every
+ * vector in the session's index, storage and caches has this dimension.
+ */
+public record EmbeddingConfig(String model, int dimension) {
+
+    public static final EmbeddingConfig DEFAULT = forModel(Constants.DEFAULT_EMBEDDING_MODEL);
+
+    public EmbeddingConfig {
+        if (model == null || model.isBlank()) {
+            throw new IllegalArgumentException("Embedding model must be set");
+        }
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Embedding dimension must be positive: " + dimension);
+        }
+    }
+
+    /**
+     * The settings of one of {@link Constants#EMBEDDING_MODEL_DIMENSIONS}
+     */
+    public static EmbeddingConfig forModel(String model) {
+        Integer dimension = Constants.EMBEDDING_MODEL_DIMENSIONS.get(model);
+        if (dimension == null) {
+            throw new IllegalArgumentException("Unknown embedding model: " + model);
+        }
+        return new EmbeddingConfig(model, dimension);
+    }
+}
@@ -0,0 +1,16 @@
+package dev.assignment.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chat message matched by full-text search, with a highlighted snippet
+ */
+public record MessageSearchResult(
+        String messageId,
+        String sessionId,
+        String sessionName,
+        boolean isUser,
+        LocalDateTime timestamp,
+        String snippet // Matched terms wrapped in [ and ]
+) {
+}
@@ -0,0 +1,10 @@
+package dev.assignment.model;
+
+/**
+ * A knowledge base file cited by an AI message, with its best retrieval score
+ */
+public record MessageSource(String fileName, Double score) {
+    public MessageSource(String fileName) {
+        this(fileName, null);
+    }
+}
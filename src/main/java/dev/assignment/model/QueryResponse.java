@@ -5,7 +5,7 @@ import java.util.List;
 /**
  * Represents a response from the RAG system including sources
  */
-public record QueryResponse(String response, List<String> sources) {
+public record QueryResponse(String response, List<MessageSource> sources) {
     public boolean hasSources() {
         return sources != null && !sources.isEmpty();
     }
@@ -14,6 +14,7 @@ public class Resource {
     private final File file;
     private String content;
     private Integer characterCount;
+    private DocumentStats stats;
 
     public Resource(String fileName, File file) {
         this.fileName = fileName;
@@ -28,6 +29,21 @@ public class Resource {
         return file;
     }
 
+    /**
+     * Get the persisted statistics of this document, or null if they have not
+     * been computed yet
+     */
+    public DocumentStats getStats() {
+        return stats;
+    }
+
+    public void setStats(DocumentStats stats) {
+        this.stats = stats;
+        if (stats != null) {
+            this.characterCount = stats.characterCount();
+        }
+    }
+
     /**
      * Get the content of the file, loading it if necessary
      */
@@ -56,14 +72,7 @@ public class Resource {
      */
     public String getFormattedCharacterCount() {
         try {
-            int count = getCharacterCount();
-            if (count >= 1000000) {
-                return String.format("%.1fM chars", count / 1000000.0);
-            } else if (count >= 1000) {
-                return String.format("%.1fK chars", count / 1000.0);
-            } else {
-                return count + " chars";
-            }
+            return DocumentStats.formatCharacterCount(getCharacterCount());
         } catch (IOException e) {
             return "? chars";
         }
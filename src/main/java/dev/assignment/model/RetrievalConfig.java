@@ -0,0 +1,39 @@
+package dev.assignment.model;
+
+/**
+ * How many segments a session retrieves for a query. The vector search
+ * returns {@code candidates} segments scoring at least {@code minScore},
+ * widened up to {@code maxCandidates} when the top scores lie within
+ * {@code clusterMargin} of each other, and cut off at the first drop of
+ * {@code scoreGap} or more between consecutive scores. The re-ranked
+ * candidates are cut to {@code maxResults}.
+ */
+public record RetrievalConfig(int maxResults, int candidates, int maxCandidates, double minScore,
+        double clusterMargin, double scoreGap) {
+
+    public static final int MAX_RESULTS = 50;
+    public static final int MAX_CANDIDATES = 200;
+
+    /**
+     * The fixed 5 of 15 results at a score of 0.5 used before, widened to
+     * 45 candidates
+     */
+    public static final RetrievalConfig DEFAULT = new RetrievalConfig(5, 15, 45, 0.5, 0.02, 0.1);
+
+    public RetrievalConfig {
+        if (maxResults < 1 || maxResults > MAX_RESULTS) {
+            throw new IllegalArgumentException("Results must be between 1 and " + MAX_RESULTS + ": " + maxResults);
+        }
+        if (candidates < maxResults || maxCandidates < candidates || maxCandidates > MAX_CANDIDATES) {
+            throw new IllegalArgumentException("Candidates must be between the results and " + MAX_CANDIDATES
+                    + ", and at most the widened candidates: " + candidates + ", " + maxCandidates);
+        }
+        if (minScore < 0 || minScore > 1) {
+            throw new IllegalArgumentException("Minimum score must be between 0 and 1: " + minScore);
+        }
+        if (clusterMargin < 0 || clusterMargin > 1 || scoreGap <= 0 || scoreGap > 1) {
+            throw new IllegalArgumentException("Cluster margin and score gap must be between 0 and 1: "
+                    + clusterMargin + ", " + scoreGap);
+        }
+    }
+}
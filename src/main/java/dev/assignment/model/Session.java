@@ -14,6 +14,9 @@ public class Session {
     private String name;
     private String model;
     private final LocalDateTime createdAt;
+    private ChunkingConfig chunkingConfig;
+    private RetrievalConfig retrievalConfig;
+    private EmbeddingConfig embeddingConfig;
 
     /**
      * Create a new session with generated UUID
@@ -23,16 +26,31 @@ public class Session {
         this.name = name;
         this.model = Constants.DEFAULT_MODEL;
         this.createdAt = LocalDateTime.now();
+        this.chunkingConfig = ChunkingConfig.DEFAULT;
+        this.retrievalConfig = RetrievalConfig.DEFAULT;
+        this.embeddingConfig = EmbeddingConfig.DEFAULT;
     }
 
     /**
      * Load existing session from database
      */
     public Session(String id, String name, String model, LocalDateTime createdAt) {
+        this(id, name, model, createdAt, ChunkingConfig.DEFAULT, RetrievalConfig.DEFAULT, EmbeddingConfig.DEFAULT);
+    }
+
+    /**
+     * Load existing session with its chunking, retrieval and embedding
+     * settings from database
+     */
+    public Session(String id, String name, String model, LocalDateTime createdAt, ChunkingConfig chunkingConfig,
+            RetrievalConfig retrievalConfig, EmbeddingConfig embeddingConfig) {
         this.id = id;
         this.name = name;
         this.model = model;
         this.createdAt = createdAt;
+        this.chunkingConfig = chunkingConfig;
+        this.retrievalConfig = retrievalConfig;
+        this.embeddingConfig = embeddingConfig;
     }
 
     public String getId() {
@@ -55,6 +73,30 @@ public class Session {
         this.model = model;
     }
 
+    public ChunkingConfig getChunkingConfig() {
+        return chunkingConfig;
+    }
+
+    public void setChunkingConfig(ChunkingConfig chunkingConfig) {
+        this.chunkingConfig = chunkingConfig;
+    }
+
+    public RetrievalConfig getRetrievalConfig() {
+        return retrievalConfig;
+    }
+
+    public void setRetrievalConfig(RetrievalConfig retrievalConfig) {
+        this.retrievalConfig = retrievalConfig;
+    }
+
+    public EmbeddingConfig getEmbeddingConfig() {
+        return embeddingConfig;
+    }
+
+    public void setEmbeddingConfig(EmbeddingConfig embeddingConfig) {
+        this.embeddingConfig = embeddingConfig;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,18 @@
+package dev.assignment.server;
+
+/**
+ * Error answered with the given HTTP status and a JSON message
+ */
+class HttpError extends RuntimeException {
+
+    private final int status;
+
+    HttpError(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    int status() {
+        return status;
+    }
+}
@@ -0,0 +1,71 @@
+package dev.assignment.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Minimal JSON reading and writing on jackson-core's streaming API
+ */
+class Json {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    interface Writer {
+        void write(JsonGenerator json) throws IOException;
+    }
+
+    private Json() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Serialize whatever the writer generates
+     */
+    static byte[] write(Writer writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator json = FACTORY.createGenerator(out)) {
+            writer.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Read the scalar top-level fields of a JSON object as strings; nested
+     * values are skipped. An empty body is an empty object.
+     *
+     * @throws HttpError 400 if the body is not a JSON object
+     */
+    static Map<String, String> readFields(InputStream in) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return fields;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new HttpError(400, "Request body must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                    fields.put(name, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new HttpError(400, "Invalid JSON: " + e.getOriginalMessage());
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,697 @@
+package dev.assignment.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import dev.assignment.metrics.Counter;
+import dev.assignment.metrics.MetricsRegistry;
+import dev.assignment.metrics.MetricsServer;
+import dev.assignment.metrics.Timer;
+import dev.assignment.model.ChatMessage;
+import dev.assignment.model.DocumentStats;
+import dev.assignment.model.EmbeddingConfig;
+import dev.assignment.model.MessageSource;
+import dev.assignment.model.QueryResponse;
+import dev.assignment.model.Resource;
+import dev.assignment.model.RetrievalConfig;
+import dev.assignment.model.Session;
+import dev.assignment.service.APIKeyService;
+import dev.assignment.service.DatabaseService;
+import dev.assignment.service.RAGService;
+import dev.assignment.service.ResourceService;
+import dev.assignment.service.SessionRuntimeManager;
+import dev.assignment.service.SessionRuntimeManager.SessionRuntime;
+import dev.assignment.service.TaskScheduler;
+import dev.assignment.util.AppConfig;
+import dev.assignment.util.Constants;
+import dev.assignment.util.TokenCounter;
+
+/**
+ * Headless entry point serving the RAG engine over HTTP, for several
+ * clients sharing one backend. Uses the same services and rag_sessions.db
+ * as the desktop app, so sessions created by either show up in both.
+ *
+ * <pre>
+ * GET    /api/sessions                              list sessions
+ * POST   /api/sessions                {"name", "embeddingModel"}   create a session
+ * GET    /api/sessions/{id}                         session details
+ * DELETE /api/sessions/{id}                         delete a session
+ * PUT    /api/sessions/{id}/retrieval  {"maxResults", "candidates", ...}   change retrieval settings
+ * GET    /api/sessions/{id}/documents               list documents
+ * PUT    /api/sessions/{id}/documents/{file name}   upload a document (raw body), indexed in the background
+ * DELETE /api/sessions/{id}/documents/{file name}   delete a document
+ * GET    /api/sessions/{id}/index                   indexing status
+ * POST   /api/sessions/{id}/index                   re-index the knowledgebase (incremental)
+ * GET    /api/sessions/{id}/messages                chat history
+ * POST   /api/sessions/{id}/query     {"message"}   answer as JSON
+ * POST   /api/sessions/{id}/query/stream {"message"} answer as server-sent events
+ * GET    /metrics                                   Prometheus metrics
+ * GET    /health
+ * </pre>
+ *
+ * Requests are served on virtual threads. Queries of one session run one at
+ * a time, different sessions in parallel; the {@link SessionRuntimeManager}
+ * keeps recently used sessions loaded within the configured memory limits.
+ *
+ * <pre>
+ * RagServer [--host 127.0.0.1] [--port 8080]
+ * </pre>
+ */
+public class RagServer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(RagServer.class);
+
+    private static final String API_PREFIX = "/api/sessions";
+    private static final int UPLOAD_BUFFER_BYTES = 64 * 1024;
+
+    private static final MetricsRegistry registry = MetricsRegistry.getInstance();
+    private static final Timer REQUEST_TIMER = registry.timer("rag_server_request_seconds",
+            "HTTP API request, from routing to the last byte of the response");
+    private static final Timer QUERY_TIMER = registry.timer("rag_server_query_seconds",
+            "Query request including the wait for the session's turn");
+    private static final Timer UPLOAD_TIMER = registry.timer("rag_server_upload_seconds",
+            "Receiving and storing an uploaded document");
+    private static final Counter REQUESTS = registry.counter("rag_server_requests_total",
+            "HTTP API requests received");
+    private static final Counter ERRORS = registry.counter("rag_server_errors_total",
+            "HTTP API requests that failed with a server error");
+    private static final Counter REJECTED = registry.counter("rag_server_rejected_total",
+            "Queries rejected because too many were waiting for the session");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SessionRuntimeManager runtimes = SessionRuntimeManager.getInstance();
+    private final Map<String, SessionContext> sessions = new ConcurrentHashMap<>();
+
+    public RagServer(String host, int port) throws IOException {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 1).factory());
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.setExecutor(executor);
+        server.createContext(API_PREFIX, this::handleApi);
+        server.createContext("/metrics", MetricsServer.handler());
+        server.createContext("/health", exchange -> {
+            try (exchange) {
+                sendJson(exchange, 200, json -> {
+                    json.writeStartObject();
+                    json.writeStringField("status", "ok");
+                    json.writeEndObject();
+                });
+            }
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        String host = options.getOrDefault("host", "127.0.0.1");
+        int port = Integer.parseInt(options.getOrDefault("port",
+                String.valueOf(AppConfig.getInt(AppConfig.SERVER_PORT, 8080))));
+
+        String apiKey = AppConfig.getString("OPENAI_API_KEY", null);
+        if (apiKey == null) {
+            System.err.println("OPENAI_API_KEY is required");
+            System.exit(1);
+        }
+        APIKeyService.getInstance().setApiKey(apiKey);
+
+        if (DatabaseService.getInstance() == null) {
+            System.err.println("Could not open the database");
+            System.exit(1);
+        }
+
+        RagServer server = new RagServer(host, port);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-shutdown"));
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new java.util.HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    public void start() {
+        server.start();
+        logger.info("RAG server listening on http://{}:{}", server.getAddress().getHostString(),
+                server.getAddress().getPort());
+    }
+
+    /**
+     * Stop accepting requests, then let background jobs checkpoint
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+        runtimes.shutdown();
+        TaskScheduler.getInstance().shutdown();
+    }
+
+    private void handleApi(HttpExchange exchange) {
+        long start = System.nanoTime();
+        REQUESTS.increment(1);
+        try {
+            route(exchange);
+        } catch (HttpError e) {
+            if (e.status() == 429) {
+                REJECTED.increment(1);
+            }
+            sendError(exchange, e.status(), e.getMessage());
+        } catch (Exception e) {
+            ERRORS.increment(1);
+            logger.error("{} {} failed", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            sendError(exchange, 500, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            exchange.close();
+            REQUEST_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Dispatch on the method and the path with the session id and file name
+     * replaced by placeholders
+     */
+    private void route(HttpExchange exchange) throws Exception {
+        String path = exchange.getRequestURI().getPath().substring(API_PREFIX.length());
+        List<String> parts = new ArrayList<>();
+        for (String part : path.split("/")) {
+            if (!part.isEmpty()) {
+                parts.add(part);
+            }
+        }
+
+        StringBuilder shape = new StringBuilder(exchange.getRequestMethod()).append(' ');
+        for (int i = 0; i < parts.size(); i++) {
+            shape.append('/');
+            if (i == 0) {
+                shape.append("{id}");
+            } else if (i == 2 && parts.get(1).equals("documents")) {
+                shape.append("{name}");
+            } else {
+                shape.append(parts.get(i));
+            }
+        }
+
+        switch (shape.toString()) {
+            case "GET " -> listSessions(exchange);
+            case "POST " -> createSession(exchange);
+            case "GET /{id}" -> getSession(exchange, parts.get(0));
+            case "DELETE /{id}" -> deleteSession(exchange, parts.get(0));
+            case "PUT /{id}/retrieval" -> updateRetrieval(exchange, session(parts.get(0)));
+            case "GET /{id}/documents" -> listDocuments(exchange, context(parts.get(0)));
+            case "PUT /{id}/documents/{name}" -> uploadDocument(exchange, context(parts.get(0)), parts.get(2));
+            case "DELETE /{id}/documents/{name}" -> deleteDocument(exchange, context(parts.get(0)), parts.get(2));
+            case "GET /{id}/index" -> indexStatus(exchange, context(parts.get(0)));
+            case "POST /{id}/index" -> reindex(exchange, context(parts.get(0)));
+            case "GET /{id}/messages" -> listMessages(exchange, session(parts.get(0)));
+            case "POST /{id}/query" -> query(exchange, context(parts.get(0)));
+            case "POST /{id}/query/stream" -> streamQuery(exchange, context(parts.get(0)));
+            default -> throw new HttpError(404, "No such endpoint: " + exchange.getRequestMethod() + " "
+                    + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private Session session(String sessionId) {
+        Session session = DatabaseService.getInstance().getSession(sessionId);
+        if (session == null) {
+            throw new HttpError(404, "No such session: " + sessionId);
+        }
+        return session;
+    }
+
+    private SessionContext context(String sessionId) {
+        SessionContext context = sessions.get(sessionId);
+        if (context != null) {
+            return context;
+        }
+        session(sessionId);
+        return sessions.computeIfAbsent(sessionId, SessionContext::new);
+    }
+
+    /**
+     * Use a session's services outside a turn, keeping them loaded meanwhile
+     */
+    private <T> T withRuntime(SessionContext context, SessionRuntimeManager.Turn<T> body) throws Exception {
+        SessionRuntime runtime = runtimes.acquire(context.sessionId());
+        try {
+            return body.run(runtime);
+        } finally {
+            runtimes.release(runtime);
+        }
+    }
+
+    // Sessions
+
+    private void listSessions(HttpExchange exchange) throws Exception {
+        List<Session> all = DatabaseService.getInstance().getAllSessions();
+        sendJson(exchange, 200, json -> {
+            json.writeStartArray();
+            for (Session session : all) {
+                writeSession(json, session);
+            }
+            json.writeEndArray();
+        });
+    }
+
+    private void createSession(HttpExchange exchange) throws IOException {
+        Map<String, String> fields = Json.readFields(exchange.getRequestBody());
+        String name = fields.get("name");
+        if (name == null || name.isBlank()) {
+            throw new HttpError(400, "Missing session name");
+        }
+        EmbeddingConfig embedding;
+        try {
+            embedding = EmbeddingConfig.forModel(fields.getOrDefault("embeddingModel",
+                    Constants.DEFAULT_EMBEDDING_MODEL));
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, e.getMessage());
+        }
+
+        Session session = DatabaseService.getInstance().createSession(name.trim());
+        if (!embedding.equals(session.getEmbeddingConfig())) {
+            DatabaseService.getInstance().updateSessionEmbedding(session.getId(), embedding);
+            session.setEmbeddingConfig(embedding);
+        }
+        sendJson(exchange, 201, json -> writeSession(json, session));
+    }
+
+    private void getSession(HttpExchange exchange, String sessionId) throws IOException {
+        Session session = session(sessionId);
+        long historyTokens = DatabaseService.getInstance().getChatTokenCount(sessionId);
+        sendJson(exchange, 200, json -> {
+            json.writeStartObject();
+            writeSessionFields(json, session);
+            json.writeNumberField("historyTokens", historyTokens);
+            json.writeEndObject();
+        });
+    }
+
+    private void deleteSession(HttpExchange exchange, String sessionId) throws IOException {
+        session(sessionId);
+        sessions.remove(sessionId);
+        runtimes.remove(sessionId);
+        DatabaseService.getInstance().deleteSession(sessionId);
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    /**
+     * Change some or all retrieval settings; omitted ones keep their value
+     */
+    private void updateRetrieval(HttpExchange exchange, Session session) throws IOException {
+        Map<String, String> fields = Json.readFields(exchange.getRequestBody());
+        RetrievalConfig current = session.getRetrievalConfig();
+        RetrievalConfig retrieval;
+        try {
+            retrieval = new RetrievalConfig(
+                    intField(fields, "maxResults", current.maxResults()),
+                    intField(fields, "candidates", current.candidates()),
+                    intField(fields, "maxCandidates", current.maxCandidates()),
+                    doubleField(fields, "minScore", current.minScore()),
+                    doubleField(fields, "clusterMargin", current.clusterMargin()),
+                    doubleField(fields, "scoreGap", current.scoreGap()));
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, e.getMessage());
+        }
+
+        DatabaseService.getInstance().updateSessionRetrieval(session.getId(), retrieval);
+        runtimes.updateRetrieval(session.getId(), retrieval);
+        session.setRetrievalConfig(retrieval);
+        sendJson(exchange, 200, json -> writeSession(json, session));
+    }
+
+    private static int intField(Map<String, String> fields, String name, int defaultValue) {
+        String value = fields.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static double doubleField(Map<String, String> fields, String name, double defaultValue) {
+        String value = fields.get(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    // Documents and indexing
+
+    private void listDocuments(HttpExchange exchange, SessionContext context) throws Exception {
+        Json.Writer writer = withRuntime(context, runtime -> documentList(runtime.getResourceService(),
+                runtime.getRagService()));
+        sendJson(exchange, 200, writer);
+    }
+
+    private static Json.Writer documentList(ResourceService resourceService, RAGService ragService) {
+        List<Resource> resources = resourceService.getAllResources();
+        List<Boolean> indexed = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            indexed.add(ragService.isFileIndexed(resource.getFileName()));
+        }
+        return json -> {
+            json.writeStartArray();
+            for (int i = 0; i < resources.size(); i++) {
+                Resource resource = resources.get(i);
+                json.writeStartObject();
+                json.writeStringField("fileName", resource.getFileName());
+                json.writeNumberField("size", resource.getFile().length());
+                json.writeBooleanField("indexed", indexed.get(i));
+                DocumentStats stats = resource.getStats();
+                if (stats != null) {
+                    json.writeNumberField("characterCount", stats.characterCount());
+                    json.writeNumberField("segmentCount", stats.segmentCount());
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        };
+    }
+
+    /**
+     * Store the request body as a new document and queue its indexing
+     */
+    private void uploadDocument(HttpExchange exchange, SessionContext context, String fileName) throws Exception {
+        long start = System.nanoTime();
+        File file = withRuntime(context, runtime -> receiveDocument(exchange, runtime, fileName));
+        UPLOAD_TIMER.recordSince(start);
+
+        context.submitIndexing("index " + fileName, (runtime, cancelled, progress) -> {
+            progress.onProgress("Indexing " + fileName + "...", 0, 1);
+            RAGService ragService = runtime.getRagService();
+            ragService.indexFile(file, cancelled);
+            ragService.commitIndex();
+        });
+
+        sendJson(exchange, 202, json -> {
+            json.writeStartObject();
+            json.writeStringField("fileName", fileName);
+            json.writeNumberField("size", file.length());
+            json.writeStringField("status", "queued");
+            json.writeEndObject();
+        });
+    }
+
+    private static File receiveDocument(HttpExchange exchange, SessionRuntime runtime, String fileName)
+            throws IOException {
+        ResourceService resourceService = runtime.getResourceService();
+        checkFileName(fileName);
+        if (!resourceService.resourceExtensionValid(ResourceService.getFileExtension(fileName).toLowerCase())) {
+            throw new HttpError(415, "Unsupported file format: " + fileName);
+        }
+        if (resourceService.resourceExists(fileName)) {
+            throw new HttpError(409, "File already exists: " + fileName);
+        }
+        if (resourceService.getResourceCount() >= Constants.MAX_DOCUMENTS_PER_SESSION) {
+            throw new HttpError(409, "Document limit of " + Constants.MAX_DOCUMENTS_PER_SESSION + " reached");
+        }
+
+        Path uploadDir = Files.createTempDirectory("rag-upload");
+        Path upload = uploadDir.resolve(fileName);
+        Resource resource;
+        try {
+            long size = receive(exchange.getRequestBody(), upload);
+            resource = resourceService.copyResource(upload.toFile(), () -> false);
+            logger.info("Uploaded {} ({} bytes) to session {}", fileName, size, runtime.getSessionId());
+        } catch (FileAlreadyExistsException e) {
+            // A concurrent upload of the same name won
+            throw new HttpError(409, "File already exists: " + fileName);
+        } finally {
+            Files.deleteIfExists(upload);
+            Files.deleteIfExists(uploadDir);
+        }
+        return resource.getFile();
+    }
+
+    /**
+     * Copy an upload to a file, refusing bodies over the document size limit
+     */
+    private static long receive(InputStream body, Path target) throws IOException {
+        long size = 0;
+        byte[] buffer = new byte[UPLOAD_BUFFER_BYTES];
+        try (InputStream in = body; OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > Constants.MAX_DOCUMENT_SIZE_BYTES) {
+                    throw new HttpError(413, "Documents are limited to "
+                            + Constants.MAX_DOCUMENT_SIZE_BYTES / (1024 * 1024) + " MB");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Refuse names that are hidden, such as the text cache, or that could
+     * leave the session's folder
+     */
+    private static void checkFileName(String fileName) {
+        if (fileName.isEmpty() || fileName.startsWith(".") || fileName.contains("\\") || fileName.contains("/")) {
+            throw new HttpError(400, "Invalid file name: " + fileName);
+        }
+    }
+
+    private void deleteDocument(HttpExchange exchange, SessionContext context, String fileName) throws Exception {
+        checkFileName(fileName);
+        boolean exists = withRuntime(context, runtime -> {
+            Path storagePath = runtime.getResourceService().getStoragePath().toAbsolutePath().normalize();
+            Path file = storagePath.resolve(fileName).normalize();
+            return storagePath.equals(file.getParent()) && Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS);
+        });
+        if (!exists) {
+            throw new HttpError(404, "No such document: " + fileName);
+        }
+        context.submitIndexing("delete " + fileName, (runtime, cancelled, progress) -> {
+            runtime.getResourceService().deleteResource(fileName);
+            runtime.getRagService().removeFileFromIndexByName(fileName);
+        });
+        exchange.sendResponseHeaders(202, -1);
+    }
+
+    private void indexStatus(HttpExchange exchange, SessionContext context) throws IOException {
+        SessionContext.IndexStatus status = context.indexStatus();
+        sendJson(exchange, 200, json -> writeIndexStatus(json, status));
+    }
+
+    private void reindex(HttpExchange exchange, SessionContext context) throws IOException {
+        context.submitIndexing("index knowledgebase", (runtime, cancelled, progress) -> runtime.getRagService()
+                .indexKnowledgebase(runtime.getResourceService(), progress, cancelled));
+        SessionContext.IndexStatus status = context.indexStatus();
+        sendJson(exchange, 202, json -> writeIndexStatus(json, status));
+    }
+
+    // Chat
+
+    private void listMessages(HttpExchange exchange, Session session) throws IOException {
+        List<ChatMessage> messages = DatabaseService.getInstance().getChatHistory(session.getId());
+        sendJson(exchange, 200, json -> {
+            json.writeStartArray();
+            for (ChatMessage message : messages) {
+                json.writeStartObject();
+                json.writeStringField("id", message.id());
+                json.writeStringField("role", message.isUser() ? "user" : "assistant");
+                json.writeStringField("content", message.content());
+                json.writeStringField("timestamp", message.timestamp().toString());
+                writeSources(json, message.sources());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        });
+    }
+
+    private void query(HttpExchange exchange, SessionContext context) throws Exception {
+        long start = System.nanoTime();
+        String message = readMessage(exchange);
+        QueryResponse response = context.inTurn(runtime -> answer(runtime, message, null));
+        QUERY_TIMER.recordSince(start);
+
+        sendJson(exchange, 200, json -> {
+            json.writeStartObject();
+            json.writeStringField("answer", response.response());
+            writeSources(json, response.sources());
+            json.writeEndObject();
+        });
+    }
+
+    /**
+     * Stream the answer as server-sent events: "token" events with the text
+     * as it arrives, then one "done" event with the sources, or an "error"
+     * event. Headers are only sent once it is the session's turn, so a
+     * rejected query still gets a plain error status.
+     */
+    private void streamQuery(HttpExchange exchange, SessionContext context) throws Exception {
+        long start = System.nanoTime();
+        String message = readMessage(exchange);
+        context.inTurn(runtime -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            try {
+                QueryResponse response = answer(runtime, message, text -> {
+                    try {
+                        sendEvent(out, "token", json -> {
+                            json.writeStartObject();
+                            json.writeStringField("text", text);
+                            json.writeEndObject();
+                        });
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                sendEvent(out, "done", json -> {
+                    json.writeStartObject();
+                    json.writeStringField("answer", response.response());
+                    writeSources(json, response.sources());
+                    json.writeEndObject();
+                });
+            } catch (RuntimeException e) {
+                logger.error("Streaming query failed", e);
+                sendEvent(out, "error", json -> {
+                    json.writeStartObject();
+                    json.writeStringField("message", e.getMessage());
+                    json.writeEndObject();
+                });
+            }
+            return null;
+        });
+        QUERY_TIMER.recordSince(start);
+    }
+
+    private static String readMessage(HttpExchange exchange) throws IOException {
+        String message = Json.readFields(exchange.getRequestBody()).get("message");
+        if (message == null || message.isBlank()) {
+            throw new HttpError(400, "Missing message");
+        }
+        if (message.length() > Constants.MAX_QUERY_LENGTH) {
+            throw new HttpError(400, "Messages are limited to " + Constants.MAX_QUERY_LENGTH + " characters");
+        }
+        if (TokenCounter.count(message, null) > Constants.MAX_QUERY_TOKENS) {
+            throw new HttpError(400, "Messages are limited to " + Constants.MAX_QUERY_TOKENS + " tokens");
+        }
+        return message.trim();
+    }
+
+    /**
+     * Answer a message and store both sides of the exchange in the chat
+     * history, as the desktop app does
+     */
+    private static QueryResponse answer(SessionRuntime runtime, String message, Consumer<String> onPartialResponse) {
+        DatabaseService databaseService = DatabaseService.getInstance();
+        String sessionId = runtime.getSessionId();
+        databaseService.queueChatMessage(sessionId, new ChatMessage(message, true));
+
+        QueryResponse response = runtime.getRagService().query(message, onPartialResponse);
+        databaseService.queueChatMessage(sessionId, new ChatMessage(response.response(), false, response.sources()));
+        return response;
+    }
+
+    // Responses
+
+    private static void writeSession(JsonGenerator json, Session session) throws IOException {
+        json.writeStartObject();
+        writeSessionFields(json, session);
+        json.writeEndObject();
+    }
+
+    private static void writeSessionFields(JsonGenerator json, Session session) throws IOException {
+        json.writeStringField("id", session.getId());
+        json.writeStringField("name", session.getName());
+        json.writeStringField("model", session.getModel());
+        json.writeStringField("createdAt", session.getCreatedAt().toString());
+        json.writeStringField("embeddingModel", session.getEmbeddingConfig().model());
+        json.writeNumberField("embeddingDimension", session.getEmbeddingConfig().dimension());
+        RetrievalConfig retrieval = session.getRetrievalConfig();
+        json.writeObjectFieldStart("retrieval");
+        json.writeNumberField("maxResults", retrieval.maxResults());
+        json.writeNumberField("candidates", retrieval.candidates());
+        json.writeNumberField("maxCandidates", retrieval.maxCandidates());
+        json.writeNumberField("minScore", retrieval.minScore());
+        json.writeNumberField("clusterMargin", retrieval.clusterMargin());
+        json.writeNumberField("scoreGap", retrieval.scoreGap());
+        json.writeEndObject();
+    }
+
+    private static void writeIndexStatus(JsonGenerator json, SessionContext.IndexStatus status) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("state", status.state().name().toLowerCase());
+        json.writeStringField("message", status.message());
+        json.writeNumberField("current", status.current());
+        json.writeNumberField("total", status.total());
+        json.writeNumberField("queuedJobs", status.queuedJobs());
+        json.writeStringField("error", status.error());
+        json.writeEndObject();
+    }
+
+    private static void writeSources(JsonGenerator json, List<MessageSource> sources) throws IOException {
+        json.writeArrayFieldStart("sources");
+        if (sources != null) {
+            for (MessageSource source : sources) {
+                json.writeStartObject();
+                json.writeStringField("fileName", source.fileName());
+                if (source.score() != null) {
+                    json.writeNumberField("score", source.score());
+                }
+                json.writeEndObject();
+            }
+        }
+        json.writeEndArray();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Json.Writer writer) throws IOException {
+        byte[] body = Json.write(writer);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendEvent(OutputStream out, String event, Json.Writer writer) throws IOException {
+        out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+        out.write(Json.write(writer));
+        out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Answer with a JSON error unless the response has already started
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        try {
+            sendJson(exchange, status, json -> {
+                json.writeStartObject();
+                json.writeStringField("error", message);
+                json.writeEndObject();
+            });
+        } catch (IOException e) {
+            logger.debug("Could not send error response", e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package dev.assignment.server;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import dev.assignment.service.RAGService;
+import dev.assignment.service.SessionRuntimeManager;
+import dev.assignment.service.SessionRuntimeManager.SessionRuntime;
+
+/**
+ * Server-side state of one session served by {@link RagServer}: the
+ * progress of its knowledgebase jobs. Turns and jobs themselves are
+ * scheduled by the {@link SessionRuntimeManager}, which also loads and
+ * unloads the session's services.
+ */
+class SessionContext {
+
+    enum IndexState {
+        IDLE, QUEUED, RUNNING, FAILED
+    }
+
+    /**
+     * Progress of the knowledgebase jobs, as reported by the last one
+     */
+    record IndexStatus(IndexState state, String message, int current, int total, int queuedJobs, String error) {
+    }
+
+    interface IndexJob {
+        void run(SessionRuntime runtime, BooleanSupplier cancelled, RAGService.ProgressCallback progress)
+                throws IOException;
+    }
+
+    private final String sessionId;
+    private final SessionRuntimeManager manager = SessionRuntimeManager.getInstance();
+    private final AtomicInteger queuedJobs = new AtomicInteger();
+    private volatile IndexStatus indexStatus = new IndexStatus(IndexState.IDLE, null, 0, 0, 0, null);
+
+    SessionContext(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    String sessionId() {
+        return sessionId;
+    }
+
+    IndexStatus indexStatus() {
+        return indexStatus;
+    }
+
+    /**
+     * Run a query once the session's previous queries have finished
+     *
+     * @throws HttpError 429 if too many queries are already waiting, 503 if
+     *                   the turn did not come in time
+     */
+    <T> T inTurn(SessionRuntimeManager.Turn<T> body) throws Exception {
+        try {
+            return manager.runTurn(sessionId, body);
+        } catch (RejectedExecutionException e) {
+            throw new HttpError(429, e.getMessage());
+        } catch (TimeoutException e) {
+            throw new HttpError(503, e.getMessage());
+        }
+    }
+
+    /**
+     * Queue a job that changes the knowledgebase or index
+     */
+    CompletableFuture<Void> submitIndexing(String name, IndexJob job) {
+        int queued = queuedJobs.incrementAndGet();
+        if (indexStatus.state() != IndexState.RUNNING) {
+            indexStatus = new IndexStatus(IndexState.QUEUED, name, 0, 0, queued, null);
+        }
+
+        CompletableFuture<Void> future = manager.submitJob(sessionId, name, (runtime, cancelled) -> {
+            indexStatus = new IndexStatus(IndexState.RUNNING, name, 0, 0, queuedJobs.get(), null);
+            job.run(runtime, cancelled, (message, current, total) -> indexStatus = new IndexStatus(
+                    IndexState.RUNNING, message, current, total, queuedJobs.get(), null));
+        });
+        // Also counts jobs cancelled before they started
+        return future.whenComplete((result, error) -> {
+            int remaining = queuedJobs.decrementAndGet();
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error;
+                indexStatus = new IndexStatus(IndexState.FAILED, name, 0, 0, remaining, cause.getMessage());
+            } else {
+                indexStatus = new IndexStatus(remaining > 0 ? IndexState.QUEUED : IndexState.IDLE,
+                        name + " finished", 0, 0, remaining, null);
+            }
+        });
+    }
+}
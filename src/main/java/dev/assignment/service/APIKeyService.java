@@ -143,9 +143,7 @@ public class APIKeyService {
         }
 
         try {
-            dev.langchain4j.model.openai.OpenAiChatModel testModel = dev.langchain4j.model.openai.OpenAiChatModel
-                    .builder()
-                    .apiKey(apiKey)
+            dev.langchain4j.model.openai.OpenAiChatModel testModel = OpenAiModels.chatModel(apiKey)
                     .modelName("gpt-4o-mini")
                     .maxTokens(1)
                     .build();
@@ -171,9 +169,7 @@ public class APIKeyService {
         }
 
         try {
-            dev.langchain4j.model.openai.OpenAiChatModel testModel = dev.langchain4j.model.openai.OpenAiChatModel
-                    .builder()
-                    .apiKey(keyToValidate)
+            dev.langchain4j.model.openai.OpenAiChatModel testModel = OpenAiModels.chatModel(keyToValidate)
                     .modelName("gpt-4o-mini")
                     .maxTokens(1)
                     .build();
@@ -0,0 +1,97 @@
+package dev.assignment.service;
+
+import java.util.List;
+
+import dev.assignment.metrics.Metrics;
+import dev.assignment.model.RetrievalConfig;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+/**
+ * Picks how many candidates of a vector search are worth re-ranking from
+ * the shape of their scores. When the top scores are tightly clustered the
+ * embedding cannot tell the candidates apart, so the pool is widened and
+ * left to the re-ranker; when the scores drop sharply, everything below the
+ * drop is cut off. The search itself always asks for the widest pool, which
+ * costs the same as a narrow one on an exhaustive scan.
+ */
+public class AdaptiveRetriever {
+
+    /**
+     * How the candidate pool of a search was sized
+     */
+    public enum Path {
+        /** The configured number of candidates */
+        FIXED,
+        /** Widened because the top scores were clustered */
+        WIDENED,
+        /** Cut off at a sharp drop in the scores */
+        CUT_OFF
+    }
+
+    /**
+     * Candidates in descending score order and how their number was chosen
+     */
+    public record Candidates(List<EmbeddingMatch<TextSegment>> matches, Path path) {
+    }
+
+    private final RetrievalConfig config;
+
+    public AdaptiveRetriever(RetrievalConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Search the store and size the candidate pool, recording the path taken
+     */
+    public Candidates retrieve(EmbeddingStore<TextSegment> store, Embedding queryEmbedding) {
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(queryEmbedding)
+                .maxResults(config.maxCandidates())
+                .minScore(config.minScore())
+                .build();
+        Candidates candidates = select(store.search(request).matches());
+
+        switch (candidates.path()) {
+            case FIXED -> Metrics.RETRIEVAL_FIXED.increment(1);
+            case WIDENED -> Metrics.RETRIEVAL_WIDENED.increment(1);
+            case CUT_OFF -> Metrics.RETRIEVAL_CUT_OFF.increment(1);
+        }
+        Metrics.RETRIEVAL_CANDIDATES.increment(candidates.matches().size());
+        return candidates;
+    }
+
+    /**
+     * Size the pool of matches sorted by descending score. A sharp drop
+     * within the pool takes precedence over widening it.
+     */
+    Candidates select(List<EmbeddingMatch<TextSegment>> matches) {
+        int pool = Math.min(config.candidates(), matches.size());
+        if (pool == 0) {
+            return new Candidates(matches, Path.FIXED);
+        }
+
+        double top = matches.get(0).score();
+        for (int i = 1; i < pool; i++) {
+            if (matches.get(i - 1).score() - matches.get(i).score() >= config.scoreGap()) {
+                return new Candidates(matches.subList(0, i), Path.CUT_OFF);
+            }
+        }
+
+        // A full pool whose last score is still close to the top: keep every
+        // further candidate that is just as close
+        if (matches.size() > pool && top - matches.get(pool - 1).score() <= config.clusterMargin()) {
+            int widened = pool;
+            while (widened < matches.size() && top - matches.get(widened).score() <= config.clusterMargin()) {
+                widened++;
+            }
+            if (widened > pool) {
+                return new Candidates(matches.subList(0, widened), Path.WIDENED);
+            }
+        }
+        return new Candidates(matches.subList(0, pool), Path.FIXED);
+    }
+}
@@ -0,0 +1,196 @@
+package dev.assignment.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BooleanSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.util.AppConfig;
+
+/**
+ * Imports many files into a session's knowledgebase. Files are copied on a
+ * small slice of the task scheduler's I/O executor and handed to an
+ * indexing slice as soon as their copy completes, so copying, text
+ * extraction and embedding requests overlap.
+ * The index is saved at checkpoints and once at the end rather than after
+ * every file.
+ */
+public class BulkImportService {
+
+    private static final Logger logger = LogManager.getLogger(BulkImportService.class);
+
+    private static final int COPY_THREADS = 4;
+    private static final int DEFAULT_INDEXING_THREADS = Math.max(2,
+            Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Number of indexed files after which the index is saved, so a crash
+     * during a long import loses at most this many files
+     */
+    private static final int CHECKPOINT_INTERVAL = 25;
+
+    public enum Status {
+        IMPORTED, SKIPPED, FAILED, CANCELLED
+    }
+
+    /**
+     * Outcome of importing one file; the error is only set for failures
+     */
+    public record FileResult(String fileName, Status status, String error) {
+
+        static FileResult of(File file, Status status) {
+            return new FileResult(file.getName(), status, null);
+        }
+
+        static FileResult failed(File file, Throwable error) {
+            return new FileResult(file.getName(), Status.FAILED, error.getMessage());
+        }
+    }
+
+    /**
+     * Notified on the calling thread each time a file is finished
+     */
+    public interface Listener {
+        void onFileFinished(FileResult result, int completed, int total);
+    }
+
+    private final ResourceService resourceService;
+    private final RAGService ragService;
+
+    /**
+     * @param ragService the session's RAG service, or null to copy files
+     *                   without indexing them
+     */
+    public BulkImportService(ResourceService resourceService, RAGService ragService) {
+        this.resourceService = resourceService;
+        this.ragService = ragService;
+    }
+
+    /**
+     * Import the files and wait until every one of them is finished.
+     * Cancellation stops copies between slices and indexing between
+     * embedding batches; files cancelled after their copy are removed again.
+     */
+    public List<FileResult> importFiles(List<File> files, BooleanSupplier cancelled, Listener listener) {
+        List<FileResult> results = new ArrayList<>(files.size());
+        if (files.isEmpty()) {
+            return results;
+        }
+
+        int indexingThreads = Math.max(1, AppConfig.getInt(AppConfig.INDEXING_THREADS, DEFAULT_INDEXING_THREADS));
+        TaskScheduler scheduler = TaskScheduler.getInstance();
+        TaskScheduler.Slice copySlice = scheduler.ioSlice("import-copy", Math.min(COPY_THREADS, files.size()));
+        TaskScheduler.Slice indexSlice = scheduler.ioSlice("import-index",
+                Math.min(indexingThreads, files.size()));
+        BlockingQueue<FileResult> finished = new LinkedBlockingQueue<>();
+        long startTime = System.currentTimeMillis();
+
+        logger.info("Importing {} files with {} indexing threads", files.size(), indexingThreads);
+
+        for (File file : files) {
+            copySlice.supply(() -> copy(file, cancelled))
+                    .thenCompose(result -> result.status() == Status.IMPORTED && ragService != null
+                            ? indexSlice.supply(() -> index(file, cancelled))
+                            : CompletableFuture.completedFuture(result))
+                    .whenComplete((result, error) -> finished.add(
+                            result != null ? result : FileResult.failed(file, error)));
+        }
+
+        int sinceCheckpoint = 0;
+        for (int completed = 1; completed <= files.size(); completed++) {
+            FileResult result = take(finished);
+            results.add(result);
+            listener.onFileFinished(result, completed, files.size());
+
+            if (result.status() == Status.IMPORTED && ragService != null
+                    && ++sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                ragService.commitIndex();
+                sinceCheckpoint = 0;
+            }
+        }
+
+        if (sinceCheckpoint > 0) {
+            ragService.commitIndex();
+        }
+
+        logger.info("Imported {} files in {} ms", files.size(), System.currentTimeMillis() - startTime);
+        return results;
+    }
+
+    private FileResult copy(File file, BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            return FileResult.of(file, Status.CANCELLED);
+        }
+        if (resourceService.resourceExists(file.getName())) {
+            return FileResult.of(file, Status.SKIPPED);
+        }
+
+        try {
+            resourceService.copyResource(file, cancelled);
+            return FileResult.of(file, Status.IMPORTED);
+        } catch (FileAlreadyExistsException e) {
+            // Another file of the same name was imported first
+            return FileResult.of(file, Status.SKIPPED);
+        } catch (CancellationException e) {
+            return FileResult.of(file, Status.CANCELLED);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to import {}", file.getName(), e);
+            return FileResult.failed(file, e);
+        }
+    }
+
+    private FileResult index(File file, BooleanSupplier cancelled) {
+        File importedFile = resourceService.getStoragePath().resolve(file.getName()).toFile();
+        try {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Indexing cancelled");
+            }
+            ragService.indexFile(importedFile, cancelled);
+            return FileResult.of(file, Status.IMPORTED);
+        } catch (CancellationException e) {
+            discard(file.getName());
+            return FileResult.of(file, Status.CANCELLED);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to index {}", file.getName(), e);
+            return FileResult.failed(file, e);
+        }
+    }
+
+    /**
+     * Remove a copied file whose import was cancelled before it was indexed
+     */
+    private void discard(String fileName) {
+        try {
+            resourceService.deleteResource(fileName);
+        } catch (IOException e) {
+            logger.warn("Failed to remove cancelled import {}", fileName, e);
+        }
+    }
+
+    private static FileResult take(BlockingQueue<FileResult> finished) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return finished.take();
+                } catch (InterruptedException e) {
+                    // Running tasks still report back, so keep waiting for them
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package dev.assignment.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cooperative cancellation flag shared by the code that starts a background
+ * job and the job itself. Long-running work checks it between steps, e.g.
+ * between files or embedding batches.
+ */
+public class CancellationToken implements BooleanSupplier {
+
+    private volatile boolean cancelled = false;
+    private final List<Runnable> callbacks = new ArrayList<>();
+
+    /**
+     * Request cancellation and run the registered callbacks once
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (callbacks) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        toRun.forEach(Runnable::run);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+        return cancelled;
+    }
+
+    /**
+     * Stop the current job if cancellation was requested
+     *
+     * @throws CancellationException if the token is cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Task cancelled");
+        }
+    }
+
+    /**
+     * Run a callback on cancellation, or right away if already cancelled
+     */
+    public void onCancel(Runnable callback) {
+        synchronized (callbacks) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+}
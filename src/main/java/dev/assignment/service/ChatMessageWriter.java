@@ -0,0 +1,299 @@
+package dev.assignment.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.model.ChatMessage;
+import dev.assignment.model.MessageSource;
+import dev.assignment.util.TokenCounter;
+
+/**
+ * Single-writer queue that persists chat messages off the calling thread.
+ * Messages queued within one flush interval are written in a single
+ * transaction on a dedicated connection. A batch is retried while the
+ * database is busy; if it fails for another reason, e.g. a message of a
+ * session deleted meanwhile, its messages are written one by one so only
+ * the failing ones are dropped.
+ */
+class ChatMessageWriter {
+
+    private static final Logger logger = LogManager.getLogger(ChatMessageWriter.class);
+
+    private static final long FLUSH_INTERVAL_MS = 200;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    private final Connection connection;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    /**
+     * Guards closing together with every enqueue, so nothing is queued
+     * behind the shutdown marker where the writer would never see it
+     */
+    private final Object queueLock = new Object();
+    private volatile boolean closed = false;
+
+    ChatMessageWriter(Connection connection) {
+        this.connection = connection;
+        this.writerThread = new Thread(this::run, "chat-message-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue a message for persistence. Returns immediately. Messages arriving
+     * after {@link #close}, e.g. an answer completing during shutdown, are
+     * logged and dropped.
+     */
+    void submit(String sessionId, ChatMessage message) {
+        synchronized (queueLock) {
+            if (!closed) {
+                queue.add(new PendingWrite(sessionId, message, null, false));
+                return;
+            }
+        }
+        logger.warn("Chat message writer is closed, dropping message {} of session {}", message.id(), sessionId);
+    }
+
+    /**
+     * Block until every message queued before this call has been committed
+     */
+    void flush() {
+        if (Thread.currentThread() == writerThread) {
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        synchronized (queueLock) {
+            if (closed) {
+                return;
+            }
+            queue.add(new PendingWrite(null, null, latch, false));
+        }
+        awaitQuietly(latch);
+    }
+
+    /**
+     * Commit all queued messages and stop the writer thread
+     */
+    void close() {
+        CountDownLatch latch = new CountDownLatch(1);
+        synchronized (queueLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(new PendingWrite(null, null, latch, true));
+        }
+        awaitQuietly(latch);
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.error("Failed to close chat message writer connection", e);
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>();
+        boolean shutdown = false;
+
+        while (!shutdown) {
+            try {
+                PendingWrite first = queue.take();
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+                boolean hasBarrier = first.barrier() != null;
+                while (!hasBarrier && batch.size() < MAX_BATCH_SIZE) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    hasBarrier = next.barrier() != null;
+                }
+            } catch (InterruptedException e) {
+                // Never drop queued messages: drain whatever is left and stop,
+                // turning away later messages as close() does
+                synchronized (queueLock) {
+                    closed = true;
+                    queue.drainTo(batch);
+                }
+                shutdown = true;
+            }
+
+            writeBatch(batch);
+
+            for (PendingWrite write : batch) {
+                if (write.barrier() != null) {
+                    write.barrier().countDown();
+                }
+                if (write.shutdown()) {
+                    shutdown = true;
+                }
+            }
+            batch.clear();
+        }
+
+        logger.debug("Chat message writer stopped");
+    }
+
+    /**
+     * Write all messages of a batch in a single transaction, or one by one if
+     * that transaction fails
+     */
+    private void writeBatch(List<PendingWrite> batch) {
+        List<PendingWrite> messages = batch.stream()
+                .filter(write -> write.message() != null)
+                .toList();
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        try {
+            insertWithRetry(messages);
+            logger.debug("Persisted {} chat message(s) in one transaction", messages.size());
+            return;
+        } catch (SQLException e) {
+            if (isBusy(e) || messages.size() == 1) {
+                logger.error("Dropping {} chat message(s) after repeated failures", messages.size(), e);
+                return;
+            }
+            logger.warn("Failed to persist {} chat message(s) together, writing them one by one: {}",
+                    messages.size(), e.getMessage());
+        }
+
+        for (PendingWrite write : messages) {
+            try {
+                insertWithRetry(List.of(write));
+            } catch (SQLException e) {
+                logger.error("Dropping chat message {} of session {}", write.message().id(), write.sessionId(), e);
+            }
+        }
+    }
+
+    /**
+     * Insert messages in one transaction, retrying while the database is busy
+     */
+    private void insertWithRetry(List<PendingWrite> messages) throws SQLException {
+        for (int attempt = 1;; attempt++) {
+            try {
+                insert(messages);
+                return;
+            } catch (SQLException e) {
+                if (!isBusy(e) || attempt == MAX_WRITE_ATTEMPTS) {
+                    throw e;
+                }
+                logger.warn("Database busy persisting {} chat message(s) (attempt {}/{}): {}",
+                        messages.size(), attempt, MAX_WRITE_ATTEMPTS, e.getMessage());
+                sleepQuietly(attempt * FLUSH_INTERVAL_MS);
+            }
+        }
+    }
+
+    private void insert(List<PendingWrite> messages) throws SQLException {
+        String messageSql = "INSERT INTO messages (id, session_id, content, is_user, timestamp, token_count) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        String sourceSql = "INSERT OR IGNORE INTO message_sources (message_id, file_name, score) VALUES (?, ?, ?)";
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insertMessage = connection.prepareStatement(messageSql);
+                PreparedStatement insertSource = connection.prepareStatement(sourceSql)) {
+            for (PendingWrite write : messages) {
+                ChatMessage message = write.message();
+                insertMessage.setString(1, message.id());
+                insertMessage.setString(2, write.sessionId());
+                insertMessage.setString(3, message.content());
+                insertMessage.setInt(4, message.isUser() ? 1 : 0);
+                insertMessage.setLong(5, DatabaseService.toEpochMillis(message.timestamp()));
+                insertMessage.setInt(6, TokenCounter.count(message.content(), null));
+                insertMessage.addBatch();
+
+                if (message.hasSources()) {
+                    for (MessageSource source : message.sources()) {
+                        insertSource.setString(1, message.id());
+                        insertSource.setString(2, source.fileName());
+                        if (source.score() != null) {
+                            insertSource.setDouble(3, source.score());
+                        } else {
+                            insertSource.setNull(3, Types.REAL);
+                        }
+                        insertSource.addBatch();
+                    }
+                }
+            }
+            insertMessage.executeBatch();
+            insertSource.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            rollbackQuietly();
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("Failed to restore auto-commit", e);
+            }
+        }
+    }
+
+    /**
+     * Whether a statement failed only because another connection held a lock.
+     * The driver reports extended result codes, whose low byte is the primary
+     * code; batch failures carry no code, only the result name in the message.
+     */
+    private static boolean isBusy(SQLException e) {
+        int code = e.getErrorCode() & 0xff;
+        String message = String.valueOf(e.getMessage());
+        return code == SQLITE_BUSY || code == SQLITE_LOCKED
+                || message.contains("SQLITE_BUSY") || message.contains("SQLITE_LOCKED");
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.error("Failed to roll back chat message batch", e);
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue entry: either a message to insert or a barrier to release once
+     * everything before it has been committed
+     */
+    private record PendingWrite(String sessionId, ChatMessage message, CountDownLatch barrier, boolean shutdown) {
+    }
+}
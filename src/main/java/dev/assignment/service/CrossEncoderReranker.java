@@ -0,0 +1,201 @@
+package dev.assignment.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.assignment.util.AppConfig;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.scoring.onnx.OnnxScoringModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+
+/**
+ * Re-ranks candidates with a cross-encoder run locally on the CPU through
+ * ONNX Runtime. The model reads the query and a segment together, so it
+ * judges relevance much better than embedding similarity plus term overlap.
+ * All candidates of a query are scored in one batched inference on a fixed
+ * pool of threads, with room for as many queries waiting as there are
+ * threads.
+ * <p>
+ * Latency is kept within a budget: while the 95th percentile of the recent
+ * inferences is over it, whenever one query's scores take more than twice
+ * as long, and when the pool is saturated, {@link #rerank} returns null and
+ * the caller falls back to its own scoring. Every {@value #PROBE_INTERVAL}th
+ * query is still scored so a recovery is noticed.
+ */
+public class CrossEncoderReranker {
+
+    private static final Logger logger = LogManager.getLogger(CrossEncoderReranker.class);
+
+    private static final int LATENCY_WINDOW = 64;
+    private static final int MIN_SAMPLES = 16;
+    private static final int PROBE_INTERVAL = 16;
+    private static final int TIMEOUT_FACTOR = 2;
+
+    private final OnnxScoringModel model;
+    private final ThreadPoolExecutor executor;
+    private final long budgetNanos;
+    private final AtomicLong calls = new AtomicLong();
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private long recorded;
+
+    /**
+     * @param threads re-rankings run at once; the CPU cores are split
+     *                between them for each inference
+     */
+    public CrossEncoderReranker(String modelPath, String tokenizerPath, int threads, long budgetMillis)
+            throws OrtException {
+        int poolSize = Math.max(1, threads);
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        options.setIntraOpNumThreads(Math.max(1, Runtime.getRuntime().availableProcessors() / poolSize));
+        options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+        this.model = new OnnxScoringModel(modelPath, options, tokenizerPath);
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(poolSize), runnable -> {
+                    Thread thread = new Thread(runnable, "reranker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Load the model set with {@link AppConfig#RERANKER_MODEL}, or return null
+     * if none is set or it cannot be loaded
+     */
+    public static CrossEncoderReranker fromConfig() {
+        String modelPath = AppConfig.getString(AppConfig.RERANKER_MODEL, null);
+        if (modelPath == null) {
+            return null;
+        }
+        String tokenizerPath = AppConfig.getString(AppConfig.RERANKER_TOKENIZER,
+                Path.of(modelPath).resolveSibling("tokenizer.json").toString());
+        if (!Files.isRegularFile(Path.of(modelPath)) || !Files.isRegularFile(Path.of(tokenizerPath))) {
+            logger.warn("Cross-encoder model or tokenizer not found ({}, {}), using lexical re-ranking",
+                    modelPath, tokenizerPath);
+            return null;
+        }
+
+        int threads = AppConfig.getInt(AppConfig.RERANKER_THREADS, 2);
+        long budgetMillis = AppConfig.getInt(AppConfig.RERANKER_P95_BUDGET_MS, 150);
+        try {
+            CrossEncoderReranker reranker = new CrossEncoderReranker(modelPath, tokenizerPath, threads,
+                    budgetMillis);
+            logger.info("Loaded cross-encoder {} ({} threads, p95 budget {} ms)", modelPath, threads,
+                    budgetMillis);
+            return reranker;
+        } catch (OrtException | RuntimeException e) {
+            logger.error("Failed to load cross-encoder {}, using lexical re-ranking", modelPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Relevance scores of the segments for the query, in one inference on
+     * the calling thread and without a time limit
+     */
+    public List<Double> score(String query, List<TextSegment> segments) {
+        return model.scoreAll(segments, query).content();
+    }
+
+    /**
+     * Candidates ordered by cross-encoder score, or null if scoring is over
+     * its latency budget or failed. The matches keep their embedding score.
+     */
+    public List<EmbeddingMatch<TextSegment>> rerank(String query, List<EmbeddingMatch<TextSegment>> results) {
+        if (calls.incrementAndGet() % PROBE_INTERVAL != 0 && overBudget()) {
+            return null;
+        }
+
+        List<TextSegment> segments = results.stream().map(EmbeddingMatch::embedded).toList();
+        Future<List<Double>> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return score(query, segments);
+                } finally {
+                    // Recorded even if the caller stopped waiting, so slow
+                    // inferences keep the queries on the fallback
+                    record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Cross-encoder pool saturated, skipping {} candidates", results.size());
+            return null;
+        }
+
+        List<Double> scores;
+        try {
+            scores = future.get(budgetNanos * TIMEOUT_FACTOR, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Frees the queue slot if the inference has not started yet
+            future.cancel(true);
+            executor.purge();
+            logger.debug("Cross-encoder took longer than {} ms for {} candidates",
+                    TimeUnit.NANOSECONDS.toMillis(budgetNanos * TIMEOUT_FACTOR), results.size());
+            return null;
+        } catch (ExecutionException e) {
+            logger.warn("Cross-encoder scoring failed", e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        List<Integer> order = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingDouble((Integer i) -> scores.get(i)).reversed());
+
+        List<EmbeddingMatch<TextSegment>> reranked = new ArrayList<>(results.size());
+        for (int i : order) {
+            reranked.add(results.get(i));
+        }
+        return reranked;
+    }
+
+    /**
+     * 95th percentile of the recent inference latencies, or 0 before there
+     * are enough of them
+     */
+    public synchronized long p95Nanos() {
+        int count = (int) Math.min(recorded, LATENCY_WINDOW);
+        if (count < MIN_SAMPLES) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(0.95 * count) - 1];
+    }
+
+    private boolean overBudget() {
+        return p95Nanos() > budgetNanos;
+    }
+
+    private synchronized void record(long nanos) {
+        latencies[(int) (recorded % LATENCY_WINDOW)] = nanos;
+        recorded++;
+    }
+}
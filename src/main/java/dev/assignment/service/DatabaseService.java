@@ -7,15 +7,27 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import dev.assignment.model.ChatMessage;
+import dev.assignment.model.ChunkingConfig;
+import dev.assignment.model.DocumentStats;
+import dev.assignment.model.EmbeddingConfig;
+import dev.assignment.model.MessageSearchResult;
+import dev.assignment.model.MessageSource;
+import dev.assignment.model.RetrievalConfig;
 import dev.assignment.model.Session;
+import dev.assignment.util.TokenCounter;
 
 /**
  * Service for managing SQLite database operations
@@ -23,8 +35,13 @@ import dev.assignment.model.Session;
 public class DatabaseService {
     private static final Logger logger = LogManager.getLogger(DatabaseService.class);
     private static final String DB_PATH = "rag_sessions.db";
+    private static final String SESSION_COLUMNS = "id, name, model, created_at, chunk_size, chunk_overlap, " +
+            "max_results, candidates, max_candidates, min_score, cluster_margin, score_gap, " +
+            "embedding_model, embedding_dimension";
     private static DatabaseService instance;
     private Connection connection;
+    private Connection storageConnection;
+    private ChatMessageWriter messageWriter;
 
     private DatabaseService() throws SQLException {
         initializeDatabase();
@@ -46,12 +63,38 @@ public class DatabaseService {
      * Initialize database connection and create tables if they don't exist
      */
     private void initializeDatabase() throws SQLException {
-        connection = DriverManager.getConnection("jdbc:sqlite:" + DB_PATH);
+        connection = openConnection(false);
         createTables();
+        enableForeignKeys();
+
+        messageWriter = new ChatMessageWriter(openConnection(true));
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "database-shutdown"));
+    }
+
+    /**
+     * Open a connection in WAL mode so the message writer and readers do not
+     * block each other. Foreign keys are enforced per connection, which makes
+     * the ON DELETE CASCADE clauses effective. Statements are recorded as JFR
+     * events.
+     *
+     * @param foreignKeys false only for the main connection, which enables
+     *                    them once the migrations have run
+     */
+    private Connection openConnection(boolean foreignKeys) throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + DB_PATH);
+        try (Statement stmt = conn.createStatement()) {
+            if (foreignKeys) {
+                stmt.execute("PRAGMA foreign_keys = ON");
+            }
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA busy_timeout = 5000");
+        }
+        return InstrumentedConnection.wrap(conn);
     }
 
     /**
-     * Create necessary tables
+     * Create necessary tables and migrate older schemas to the current version
      */
     private void createTables() throws SQLException {
         String createSessionsTable = "CREATE TABLE IF NOT EXISTS sessions (" +
@@ -61,23 +104,475 @@ public class DatabaseService {
                 "created_at TEXT NOT NULL" +
                 ")";
 
-        String createMessagesTable = "CREATE TABLE IF NOT EXISTS messages (" +
-                "id TEXT PRIMARY KEY, " +
-                "session_id TEXT NOT NULL, " +
-                "content TEXT NOT NULL, " +
-                "is_user INTEGER NOT NULL, " +
-                "timestamp TEXT NOT NULL, " +
-                "sources TEXT, " +
-                "FOREIGN KEY (session_id) REFERENCES sessions(id) ON DELETE CASCADE" +
-                ")";
-
         try (Statement stmt = connection.createStatement()) {
             stmt.execute(createSessionsTable);
-            stmt.execute(createMessagesTable);
-            logger.info("Database tables created successfully");
+        }
+
+        int version = getSchemaVersion();
+        if (version < 1) {
+            migrateToVersion1();
+        }
+        if (version < 2) {
+            migrateToVersion2();
+        }
+        if (version < 3) {
+            migrateToVersion3();
+        }
+        if (version < 4) {
+            migrateToVersion4();
+        }
+        if (version < 5) {
+            migrateToVersion5();
+        }
+        if (version < 6) {
+            migrateToVersion6();
+        }
+        if (version < 7) {
+            migrateToVersion7();
+        }
+        if (version < 8) {
+            migrateToVersion8();
+        }
+        if (version < 9) {
+            migrateToVersion9();
+        }
+
+        logger.info("Database tables created successfully (schema version {})", getSchemaVersion());
+    }
+
+    /**
+     * Enforce foreign keys on the main connection and remove the rows that
+     * violate them. Before they were enforced, deleting a session left its
+     * messages behind; those rows can no longer be reached and would make
+     * later deletes fail.
+     */
+    private void enableForeignKeys() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = ON");
+        }
+
+        Map<String, List<Long>> orphans = findForeignKeyViolations();
+        while (!orphans.isEmpty()) {
+            connection.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, List<Long>> entry : orphans.entrySet()) {
+                    String sql = "DELETE FROM \"" + entry.getKey().replace("\"", "\"\"") + "\" WHERE rowid = ?";
+                    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                        for (long rowid : entry.getValue()) {
+                            pstmt.setLong(1, rowid);
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                    logger.warn("Removed {} row(s) of {} whose parent row no longer exists",
+                            entry.getValue().size(), entry.getKey());
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            // Deletes cascade, so a second pass normally finds nothing
+            orphans = findForeignKeyViolations();
+        }
+    }
+
+    /**
+     * Rowids of the rows violating a foreign key, by table
+     */
+    private Map<String, List<Long>> findForeignKeyViolations() throws SQLException {
+        Map<String, List<Long>> violations = new HashMap<>();
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA foreign_key_check")) {
+            while (rs.next()) {
+                violations.computeIfAbsent(rs.getString(1), table -> new ArrayList<>()).add(rs.getLong(2));
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Version 1: integer epoch-millis timestamps and normalized message sources.
+     * Databases created before versioning store ISO text timestamps and a
+     * comma-joined sources column; their rows are converted in place.
+     */
+    private void migrateToVersion1() throws SQLException {
+        boolean legacy = tableExists("messages");
+
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            if (legacy) {
+                logger.info("Migrating messages table to schema version 1");
+                stmt.execute("ALTER TABLE messages RENAME TO messages_legacy");
+            }
+
+            stmt.execute("CREATE TABLE messages (" +
+                    "id TEXT PRIMARY KEY, " +
+                    "session_id TEXT NOT NULL, " +
+                    "content TEXT NOT NULL, " +
+                    "is_user INTEGER NOT NULL, " +
+                    "timestamp INTEGER NOT NULL, " +
+                    "FOREIGN KEY (session_id) REFERENCES sessions(id) ON DELETE CASCADE" +
+                    ")");
+            stmt.execute("CREATE INDEX idx_messages_session_timestamp ON messages(session_id, timestamp)");
+
+            stmt.execute("CREATE TABLE message_sources (" +
+                    "message_id TEXT NOT NULL, " +
+                    "file_name TEXT NOT NULL, " +
+                    "score REAL, " +
+                    "PRIMARY KEY (message_id, file_name), " +
+                    "FOREIGN KEY (message_id) REFERENCES messages(id) ON DELETE CASCADE" +
+                    ")");
+            stmt.execute("CREATE INDEX idx_message_sources_file ON message_sources(file_name, message_id)");
+
+            if (legacy) {
+                int migrated = copyLegacyMessages();
+                stmt.execute("DROP TABLE messages_legacy");
+                logger.info("Migrated {} messages to schema version 1", migrated);
+            }
+
+            stmt.execute("PRAGMA user_version = 1");
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Version 2: FTS5 index over message content, kept in sync by triggers.
+     * The index stores no copy of the text; it reads content from messages by
+     * rowid. Rowids of messages are implicit, so a VACUUM must be followed by
+     * a 'rebuild' of messages_fts.
+     */
+    private void migrateToVersion2() throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE VIRTUAL TABLE messages_fts USING fts5(" +
+                    "content, content='messages', tokenize='unicode61 remove_diacritics 2')");
+
+            stmt.execute("CREATE TRIGGER messages_fts_insert AFTER INSERT ON messages BEGIN " +
+                    "INSERT INTO messages_fts(rowid, content) VALUES (new.rowid, new.content); END");
+            stmt.execute("CREATE TRIGGER messages_fts_delete AFTER DELETE ON messages BEGIN " +
+                    "INSERT INTO messages_fts(messages_fts, rowid, content) VALUES ('delete', old.rowid, old.content); END");
+            stmt.execute("CREATE TRIGGER messages_fts_update AFTER UPDATE OF content ON messages BEGIN " +
+                    "INSERT INTO messages_fts(messages_fts, rowid, content) VALUES ('delete', old.rowid, old.content); " +
+                    "INSERT INTO messages_fts(rowid, content) VALUES (new.rowid, new.content); END");
+
+            stmt.execute("INSERT INTO messages_fts(messages_fts) VALUES ('rebuild')");
+            stmt.execute("PRAGMA user_version = 2");
+            connection.commit();
+            logger.info("Migrated database to schema version 2 (full-text search)");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Version 3: tables for the SQLite embedding storage backend. Both cascade
+     * from sessions, so deleting a session removes its segments in the same
+     * statement.
+     */
+    private void migrateToVersion3() throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE indexed_files (" +
+                    "session_id TEXT NOT NULL, " +
+                    "file_name TEXT NOT NULL, " +
+                    "last_modified INTEGER NOT NULL, " +
+                    "PRIMARY KEY (session_id, file_name), " +
+                    "FOREIGN KEY (session_id) REFERENCES sessions(id) ON DELETE CASCADE" +
+                    ")");
+
+            stmt.execute("CREATE TABLE segments (" +
+                    "id INTEGER PRIMARY KEY, " +
+                    "session_id TEXT NOT NULL, " +
+                    "file_name TEXT NOT NULL, " +
+                    "segment_index INTEGER NOT NULL, " +
+                    "start_offset INTEGER NOT NULL DEFAULT -1, " +
+                    "end_offset INTEGER NOT NULL DEFAULT -1, " +
+                    "text TEXT NOT NULL, " +
+                    "vector BLOB NOT NULL, " +
+                    "FOREIGN KEY (session_id, file_name) REFERENCES indexed_files(session_id, file_name) " +
+                    "ON DELETE CASCADE" +
+                    ")");
+            stmt.execute("CREATE INDEX idx_segments_file ON segments(session_id, file_name, segment_index)");
+
+            stmt.execute("PRAGMA user_version = 3");
+            connection.commit();
+            logger.info("Migrated database to schema version 3 (embedding storage)");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Version 4: per-document statistics, so resource lists render without
+     * reading or parsing the documents
+     */
+    private void migrateToVersion4() throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE document_stats (" +
+                    "session_id TEXT NOT NULL, " +
+                    "file_name TEXT NOT NULL, " +
+                    "file_size INTEGER NOT NULL, " +
+                    "last_modified INTEGER NOT NULL, " +
+                    "character_count INTEGER NOT NULL, " +
+                    "page_count INTEGER NOT NULL DEFAULT -1, " +
+                    "segment_count INTEGER NOT NULL DEFAULT -1, " +
+                    "indexed INTEGER NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (session_id, file_name), " +
+                    "FOREIGN KEY (session_id) REFERENCES sessions(id) ON DELETE CASCADE" +
+                    ")");
+
+            stmt.execute("PRAGMA user_version = 4");
+            connection.commit();
+            logger.info("Migrated database to schema version 4 (document statistics)");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Version 5: per-session chunk size and overlap, and the page each stored
+     * segment starts on
+     */
+    private void migrateToVersion5() throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE sessions ADD COLUMN chunk_size INTEGER NOT NULL DEFAULT "
+                    + ChunkingConfig.DEFAULT.chunkSize());
+            stmt.execute("ALTER TABLE sessions ADD COLUMN chunk_overlap INTEGER NOT NULL DEFAULT "
+                    + ChunkingConfig.DEFAULT.chunkOverlap());
+            stmt.execute("ALTER TABLE segments ADD COLUMN page INTEGER NOT NULL DEFAULT -1");
+
+            stmt.execute("PRAGMA user_version = 5");
+            connection.commit();
+            logger.info("Migrated database to schema version 5 (chunking settings)");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Version 6: journal of embeddings computed for files that are not yet
+     * committed to the embedding storage, so interrupted indexing can resume
+     */
+    private void migrateToVersion6() throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE index_checkpoints (" +
+                    "session_id TEXT NOT NULL, " +
+                    "file_name TEXT NOT NULL, " +
+                    "last_modified INTEGER NOT NULL, " +
+                    "segment_index INTEGER NOT NULL, " +
+                    "text TEXT NOT NULL, " +
+                    "vector BLOB NOT NULL, " +
+                    "PRIMARY KEY (session_id, file_name, segment_index), " +
+                    "FOREIGN KEY (session_id) REFERENCES sessions(id) ON DELETE CASCADE" +
+                    ")");
+
+            stmt.execute("PRAGMA user_version = 6");
+            connection.commit();
+            logger.info("Migrated database to schema version 6 (indexing checkpoints)");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Version 7: token count of every message, as counted for the chat model.
+     * Existing messages are counted during the migration.
+     */
+    private void migrateToVersion7() throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE messages ADD COLUMN token_count INTEGER NOT NULL DEFAULT 0");
+
+            int counted = 0;
+            try (ResultSet rs = stmt.executeQuery("SELECT rowid, content FROM messages");
+                    PreparedStatement update = connection.prepareStatement(
+                            "UPDATE messages SET token_count = ? WHERE rowid = ?")) {
+                while (rs.next()) {
+                    update.setInt(1, TokenCounter.count(rs.getString("content"), null));
+                    update.setLong(2, rs.getLong("rowid"));
+                    update.addBatch();
+                    counted++;
+                }
+                update.executeBatch();
+            }
+
+            stmt.execute("PRAGMA user_version = 7");
+            connection.commit();
+            logger.info("Migrated database to schema version 7 (token counts of {} messages)", counted);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Version 8: per-session retrieval settings
+     */
+    private void migrateToVersion8() throws SQLException {
+        RetrievalConfig defaults = RetrievalConfig.DEFAULT;
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE sessions ADD COLUMN max_results INTEGER NOT NULL DEFAULT "
+                    + defaults.maxResults());
+            stmt.execute("ALTER TABLE sessions ADD COLUMN candidates INTEGER NOT NULL DEFAULT "
+                    + defaults.candidates());
+            stmt.execute("ALTER TABLE sessions ADD COLUMN max_candidates INTEGER NOT NULL DEFAULT "
+                    + defaults.maxCandidates());
+            stmt.execute("ALTER TABLE sessions ADD COLUMN min_score REAL NOT NULL DEFAULT "
+                    + defaults.minScore());
+            stmt.execute("ALTER TABLE sessions ADD COLUMN cluster_margin REAL NOT NULL DEFAULT "
+                    + defaults.clusterMargin());
+            stmt.execute("ALTER TABLE sessions ADD COLUMN score_gap REAL NOT NULL DEFAULT "
+                    + defaults.scoreGap());
+
+            stmt.execute("PRAGMA user_version = 8");
+            connection.commit();
+            logger.info("Migrated database to schema version 8 (retrieval settings)");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Version 9: per-session embedding model and the dimension of its
+     * vectors. Existing sessions were embedded with the default model.
+     */
+    private void migrateToVersion9() throws SQLException {
+        EmbeddingConfig defaults = EmbeddingConfig.DEFAULT;
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE sessions ADD COLUMN embedding_model TEXT NOT NULL DEFAULT '"
+                    + defaults.model() + "'");
+            stmt.execute("ALTER TABLE sessions ADD COLUMN embedding_dimension INTEGER NOT NULL DEFAULT "
+                    + defaults.dimension());
+
+            stmt.execute("PRAGMA user_version = 9");
+            connection.commit();
+            logger.info("Migrated database to schema version 9 (embedding model)");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Copy rows from the pre-versioning messages table, converting ISO
+     * timestamps to epoch millis and splitting the comma-joined sources.
+     * Messages of deleted sessions are left behind: foreign keys were not
+     * enforced, so deleting a session did not remove them.
+     */
+    private int copyLegacyMessages() throws SQLException {
+        String selectSql = "SELECT id, session_id, content, is_user, timestamp, sources FROM messages_legacy " +
+                "WHERE session_id IN (SELECT id FROM sessions)";
+        String insertMessageSql = "INSERT INTO messages (id, session_id, content, is_user, timestamp) VALUES (?, ?, ?, ?, ?)";
+        String insertSourceSql = "INSERT OR IGNORE INTO message_sources (message_id, file_name, score) VALUES (?, ?, NULL)";
+
+        int count = 0;
+        try (Statement select = connection.createStatement();
+                ResultSet rs = select.executeQuery(selectSql);
+                PreparedStatement insertMessage = connection.prepareStatement(insertMessageSql);
+                PreparedStatement insertSource = connection.prepareStatement(insertSourceSql)) {
+
+            while (rs.next()) {
+                String id = rs.getString("id");
+                long timestamp;
+                try {
+                    timestamp = toEpochMillis(LocalDateTime.parse(rs.getString("timestamp")));
+                } catch (Exception e) {
+                    logger.warn("Unparseable timestamp '{}' on message {}, using epoch", rs.getString("timestamp"), id);
+                    timestamp = 0;
+                }
+
+                insertMessage.setString(1, id);
+                insertMessage.setString(2, rs.getString("session_id"));
+                insertMessage.setString(3, rs.getString("content"));
+                insertMessage.setInt(4, rs.getInt("is_user"));
+                insertMessage.setLong(5, timestamp);
+                insertMessage.addBatch();
+
+                String sources = rs.getString("sources");
+                if (sources != null && !sources.isBlank()) {
+                    for (String fileName : sources.split(",")) {
+                        if (!fileName.isBlank()) {
+                            insertSource.setString(1, id);
+                            insertSource.setString(2, fileName.trim());
+                            insertSource.addBatch();
+                        }
+                    }
+                }
+                count++;
+            }
+
+            insertMessage.executeBatch();
+            insertSource.executeBatch();
+        }
+        return count;
+    }
+
+    private int getSchemaVersion() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
         }
     }
 
+    private boolean tableExists(String tableName) throws SQLException {
+        String sql = "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, tableName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Convert a local timestamp to the epoch millis stored in the database
+     */
+    static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Convert stored epoch millis back to a local timestamp
+     */
+    static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
     /**
      * Create a new session and its knowledgebase folder
      */
@@ -111,7 +606,7 @@ public class DatabaseService {
      */
     public List<Session> getAllSessions() throws SQLException {
         List<Session> sessions = new ArrayList<>();
-        String sql = "SELECT id, name, model, created_at FROM sessions ORDER BY created_at DESC";
+        String sql = "SELECT " + SESSION_COLUMNS + " FROM sessions ORDER BY created_at DESC";
 
         try (Statement stmt = connection.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
@@ -121,7 +616,8 @@ public class DatabaseService {
                 String name = rs.getString("name");
                 String model = rs.getString("model");
                 LocalDateTime createdAt = LocalDateTime.parse(rs.getString("created_at"));
-                sessions.add(new Session(id, name, model, createdAt));
+                sessions.add(new Session(id, name, model, createdAt, readChunkingConfig(rs),
+                        readRetrievalConfig(rs), readEmbeddingConfig(rs)));
             }
         }
 
@@ -132,7 +628,7 @@ public class DatabaseService {
      * Get a session by ID
      */
     public Session getSession(String id) {
-        String sql = "SELECT id, name, model, created_at FROM sessions WHERE id = ?";
+        String sql = "SELECT " + SESSION_COLUMNS + " FROM sessions WHERE id = ?";
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, id);
@@ -146,7 +642,8 @@ public class DatabaseService {
                 logger.debug("Retrieved session: id={}, name='{}', model={}",
                         id, name, model);
 
-                return new Session(id, name, model, createdAt);
+                return new Session(id, name, model, createdAt, readChunkingConfig(rs),
+                        readRetrievalConfig(rs), readEmbeddingConfig(rs));
             } else {
                 logger.debug("No session found with id: {}", id);
             }
@@ -184,12 +681,122 @@ public class DatabaseService {
     }
 
     /**
-     * Delete a session and its knowledgebase folder
+     * Update a session's chunk size and overlap
+     */
+    public void updateSessionChunking(String id, ChunkingConfig chunking) {
+        String sql = "UPDATE sessions SET chunk_size = ?, chunk_overlap = ? WHERE id = ?";
+
+        logger.info("Updating session chunking: id={}, size={}, overlap={}",
+                id, chunking.chunkSize(), chunking.chunkOverlap());
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, chunking.chunkSize());
+            pstmt.setInt(2, chunking.chunkOverlap());
+            pstmt.setString(3, id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to update session chunking: id={}", id, e);
+            throw new RuntimeException("Failed to update session chunking", e);
+        }
+    }
+
+    /**
+     * Read the chunking settings of a session row, falling back to the
+     * defaults for values outside the allowed range
+     */
+    private static ChunkingConfig readChunkingConfig(ResultSet rs) throws SQLException {
+        try {
+            return new ChunkingConfig(rs.getInt("chunk_size"), rs.getInt("chunk_overlap"));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid chunking settings stored, using defaults: {}", e.getMessage());
+            return ChunkingConfig.DEFAULT;
+        }
+    }
+
+    /**
+     * Update a session's retrieval settings
+     */
+    public void updateSessionRetrieval(String id, RetrievalConfig retrieval) {
+        String sql = "UPDATE sessions SET max_results = ?, candidates = ?, max_candidates = ?, min_score = ?, " +
+                "cluster_margin = ?, score_gap = ? WHERE id = ?";
+
+        logger.info("Updating session retrieval: id={}, {}", id, retrieval);
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, retrieval.maxResults());
+            pstmt.setInt(2, retrieval.candidates());
+            pstmt.setInt(3, retrieval.maxCandidates());
+            pstmt.setDouble(4, retrieval.minScore());
+            pstmt.setDouble(5, retrieval.clusterMargin());
+            pstmt.setDouble(6, retrieval.scoreGap());
+            pstmt.setString(7, id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to update session retrieval: id={}", id, e);
+            throw new RuntimeException("Failed to update session retrieval", e);
+        }
+    }
+
+    /**
+     * Read the retrieval settings of a session row, falling back to the
+     * defaults for values outside the allowed range
+     */
+    private static RetrievalConfig readRetrievalConfig(ResultSet rs) throws SQLException {
+        try {
+            return new RetrievalConfig(rs.getInt("max_results"), rs.getInt("candidates"),
+                    rs.getInt("max_candidates"), rs.getDouble("min_score"), rs.getDouble("cluster_margin"),
+                    rs.getDouble("score_gap"));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid retrieval settings stored, using defaults: {}", e.getMessage());
+            return RetrievalConfig.DEFAULT;
+        }
+    }
+
+    /**
+     * Update a session's embedding model and dimension. The session's index
+     * must be cleared, its vectors no longer match.
+     */
+    public void updateSessionEmbedding(String id, EmbeddingConfig embedding) {
+        String sql = "UPDATE sessions SET embedding_model = ?, embedding_dimension = ? WHERE id = ?";
+
+        logger.info("Updating session embedding: id={}, model={}, dimension={}",
+                id, embedding.model(), embedding.dimension());
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, embedding.model());
+            pstmt.setInt(2, embedding.dimension());
+            pstmt.setString(3, id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to update session embedding: id={}", id, e);
+            throw new RuntimeException("Failed to update session embedding", e);
+        }
+    }
+
+    /**
+     * Read the embedding settings of a session row. The stored dimension is
+     * kept even if the model is no longer available, so its index is not
+     * mixed with vectors of another dimension.
+     */
+    private static EmbeddingConfig readEmbeddingConfig(ResultSet rs) throws SQLException {
+        try {
+            return new EmbeddingConfig(rs.getString("embedding_model"), rs.getInt("embedding_dimension"));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid embedding settings stored, using defaults: {}", e.getMessage());
+            return EmbeddingConfig.DEFAULT;
+        }
+    }
+
+    /**
+     * Delete a session and its knowledgebase folder. Messages, message sources
+     * and stored embeddings are removed by ON DELETE CASCADE in the same
+     * statement.
      */
     public void deleteSession(String id) {
         String sql = "DELETE FROM sessions WHERE id = ?";
 
         logger.info("Deleting session: id={}", id);
+        messageWriter.flush();
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, id);
@@ -212,23 +819,52 @@ public class DatabaseService {
     }
 
     /**
-     * Save a chat message to the database
+     * Queue a chat message for persistence without blocking the caller.
+     * Queued messages are committed in batches by a background writer.
+     */
+    public void queueChatMessage(String sessionId, ChatMessage message) {
+        messageWriter.submit(sessionId, message);
+    }
+
+    /**
+     * Queue many chat messages at once, e.g. when importing a conversation
+     */
+    public void queueChatMessages(String sessionId, List<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            messageWriter.submit(sessionId, message);
+        }
+    }
+
+    /**
+     * Block until all queued chat messages have been committed
+     */
+    public void flushChatMessages() {
+        messageWriter.flush();
+    }
+
+    /**
+     * Save a chat message to the database synchronously
      */
     public void saveChatMessage(String sessionId, ChatMessage message) {
-        String sql = "INSERT INTO messages (id, session_id, content, is_user, timestamp, sources) VALUES (?, ?, ?, ?, ?, ?)";
+        messageWriter.submit(sessionId, message);
+        messageWriter.flush();
+        logger.debug("Saved message {} for session {}", message.id(), sessionId);
+    }
 
+    /**
+     * Get the total number of tokens in a session's chat history
+     */
+    public long getChatTokenCount(String sessionId) {
+        messageWriter.flush();
+        String sql = "SELECT COALESCE(SUM(token_count), 0) FROM messages WHERE session_id = ?";
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, message.id());
-            pstmt.setString(2, sessionId);
-            pstmt.setString(3, message.content());
-            pstmt.setInt(4, message.isUser() ? 1 : 0);
-            pstmt.setString(5, message.timestamp().toString());
-            pstmt.setString(6, message.sources());
-            pstmt.executeUpdate();
-            logger.debug("Saved message {} for session {}", message.id(), sessionId);
+            pstmt.setString(1, sessionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
         } catch (SQLException e) {
-            logger.error("Failed to save chat message", e);
-            throw new RuntimeException("Failed to save chat message", e);
+            logger.error("Error counting chat tokens", e);
+            return 0;
         }
     }
 
@@ -237,19 +873,42 @@ public class DatabaseService {
      */
     public List<ChatMessage> getChatHistory(String sessionId) {
         List<ChatMessage> messages = new ArrayList<>();
-        String sql = "SELECT id, content, is_user, timestamp, sources FROM messages WHERE session_id = ? ORDER BY timestamp ASC";
+        String sql = "SELECT m.id, m.content, m.is_user, m.timestamp, s.file_name, s.score " +
+                "FROM messages m LEFT JOIN message_sources s ON s.message_id = m.id " +
+                "WHERE m.session_id = ? ORDER BY m.timestamp ASC, m.rowid ASC, s.score DESC";
+        messageWriter.flush();
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, sessionId);
             ResultSet rs = pstmt.executeQuery();
 
+            String currentId = null;
+            String content = null;
+            boolean isUser = false;
+            long timestamp = 0;
+            List<MessageSource> sources = new ArrayList<>();
+
             while (rs.next()) {
                 String id = rs.getString("id");
-                String content = rs.getString("content");
-                boolean isUser = rs.getInt("is_user") == 1;
-                LocalDateTime timestamp = LocalDateTime.parse(rs.getString("timestamp"));
-                String sources = rs.getString("sources");
-                messages.add(new ChatMessage(id, content, isUser, timestamp, sources));
+                if (!id.equals(currentId)) {
+                    if (currentId != null) {
+                        messages.add(new ChatMessage(currentId, content, isUser, fromEpochMillis(timestamp), sources));
+                    }
+                    currentId = id;
+                    content = rs.getString("content");
+                    isUser = rs.getInt("is_user") == 1;
+                    timestamp = rs.getLong("timestamp");
+                    sources = new ArrayList<>();
+                }
+
+                String fileName = rs.getString("file_name");
+                if (fileName != null) {
+                    double score = rs.getDouble("score");
+                    sources.add(new MessageSource(fileName, rs.wasNull() ? null : score));
+                }
+            }
+            if (currentId != null) {
+                messages.add(new ChatMessage(currentId, content, isUser, fromEpochMillis(timestamp), sources));
             }
             logger.debug("Loaded {} messages for session {}", messages.size(), sessionId);
         } catch (SQLException e) {
@@ -259,11 +918,210 @@ public class DatabaseService {
         return messages;
     }
 
+    /**
+     * Get a window of messages around one message, without loading the whole
+     * session transcript
+     *
+     * @param sessionId The session the message belongs to
+     * @param messageId The message to center the window on
+     * @param context   Number of messages to include on each side
+     */
+    public List<ChatMessage> getChatHistoryAround(String sessionId, String messageId, int context) {
+        String targetSql = "SELECT timestamp, rowid FROM messages WHERE id = ? AND session_id = ?";
+        String beforeSql = "SELECT id, content, is_user, timestamp FROM messages " +
+                "WHERE session_id = ? AND (timestamp < ? OR (timestamp = ? AND rowid <= ?)) " +
+                "ORDER BY timestamp DESC, rowid DESC LIMIT ?";
+        String afterSql = "SELECT id, content, is_user, timestamp FROM messages " +
+                "WHERE session_id = ? AND (timestamp > ? OR (timestamp = ? AND rowid > ?)) " +
+                "ORDER BY timestamp ASC, rowid ASC LIMIT ?";
+        messageWriter.flush();
+
+        List<ChatMessage> messages = new ArrayList<>();
+        try (PreparedStatement target = connection.prepareStatement(targetSql)) {
+            target.setString(1, messageId);
+            target.setString(2, sessionId);
+            ResultSet targetRs = target.executeQuery();
+            if (!targetRs.next()) {
+                logger.debug("Message {} not found in session {}", messageId, sessionId);
+                return messages;
+            }
+            long timestamp = targetRs.getLong("timestamp");
+            long rowid = targetRs.getLong("rowid");
+
+            List<ChatMessage> before = queryMessageWindow(beforeSql, sessionId, timestamp, rowid, context + 1);
+            List<ChatMessage> after = queryMessageWindow(afterSql, sessionId, timestamp, rowid, context);
+
+            for (int i = before.size() - 1; i >= 0; i--) {
+                messages.add(before.get(i));
+            }
+            messages.addAll(after);
+            attachSources(messages);
+
+            logger.debug("Loaded {} messages around message {}", messages.size(), messageId);
+        } catch (SQLException e) {
+            logger.error("Failed to get messages around {}", messageId, e);
+        }
+
+        return messages;
+    }
+
+    private List<ChatMessage> queryMessageWindow(String sql, String sessionId, long timestamp, long rowid, int limit)
+            throws SQLException {
+        List<ChatMessage> messages = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, sessionId);
+            pstmt.setLong(2, timestamp);
+            pstmt.setLong(3, timestamp);
+            pstmt.setLong(4, rowid);
+            pstmt.setInt(5, limit);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                messages.add(new ChatMessage(
+                        rs.getString("id"),
+                        rs.getString("content"),
+                        rs.getInt("is_user") == 1,
+                        fromEpochMillis(rs.getLong("timestamp")),
+                        new ArrayList<>()));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Fill in the sources of messages that were loaded without them
+     */
+    private void attachSources(List<ChatMessage> messages) throws SQLException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<MessageSource>> sourcesById = new HashMap<>();
+        for (ChatMessage message : messages) {
+            sourcesById.put(message.id(), message.sources());
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(messages.size(), "?"));
+        String sql = "SELECT message_id, file_name, score FROM message_sources " +
+                "WHERE message_id IN (" + placeholders + ") ORDER BY score DESC";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < messages.size(); i++) {
+                pstmt.setString(i + 1, messages.get(i).id());
+            }
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                double score = rs.getDouble("score");
+                sourcesById.get(rs.getString("message_id"))
+                        .add(new MessageSource(rs.getString("file_name"), rs.wasNull() ? null : score));
+            }
+        }
+    }
+
+    /**
+     * Full-text search across the messages of all sessions, best matches first
+     *
+     * @param query  Free-text query; the last word is matched as a prefix
+     * @param limit  Page size
+     * @param offset Number of results to skip
+     * @return One page of ranked results with highlighted snippets
+     */
+    public List<MessageSearchResult> searchMessages(String query, int limit, int offset) {
+        List<MessageSearchResult> results = new ArrayList<>();
+        String ftsQuery = toFtsQuery(query);
+        if (ftsQuery == null) {
+            return results;
+        }
+
+        String sql = "SELECT m.id, m.session_id, s.name, m.is_user, m.timestamp, " +
+                "snippet(messages_fts, 0, '[', ']', '...', 16) AS snippet " +
+                "FROM messages_fts " +
+                "JOIN messages m ON m.rowid = messages_fts.rowid " +
+                "JOIN sessions s ON s.id = m.session_id " +
+                "WHERE messages_fts MATCH ? " +
+                "ORDER BY messages_fts.rank LIMIT ? OFFSET ?";
+        messageWriter.flush();
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, ftsQuery);
+            pstmt.setInt(2, limit);
+            pstmt.setInt(3, offset);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                results.add(new MessageSearchResult(
+                        rs.getString("id"),
+                        rs.getString("session_id"),
+                        rs.getString("name"),
+                        rs.getInt("is_user") == 1,
+                        fromEpochMillis(rs.getLong("timestamp")),
+                        rs.getString("snippet")));
+            }
+            logger.debug("Search '{}' returned {} result(s) at offset {}", query, results.size(), offset);
+        } catch (SQLException e) {
+            logger.error("Failed to search messages: query='{}'", query, e);
+        }
+
+        return results;
+    }
+
+    /**
+     * Turn free text into an FTS5 expression: every word is quoted so user
+     * input cannot inject query syntax, and the last word matches as a prefix
+     * to support search-as-you-type
+     */
+    private static String toFtsQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+
+        List<String> terms = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            String cleaned = word.replace("\"", "");
+            if (!cleaned.isEmpty()) {
+                terms.add("\"" + cleaned + "\"");
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        int last = terms.size() - 1;
+        terms.set(last, terms.get(last) + "*");
+        return String.join(" ", terms);
+    }
+
+    /**
+     * Get the IDs of all messages in a session that cited a file
+     */
+    public List<String> getMessagesCitingFile(String sessionId, String fileName) {
+        List<String> messageIds = new ArrayList<>();
+        String sql = "SELECT s.message_id FROM message_sources s JOIN messages m ON m.id = s.message_id " +
+                "WHERE s.file_name = ? AND m.session_id = ? ORDER BY m.timestamp ASC";
+        messageWriter.flush();
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, fileName);
+            pstmt.setString(2, sessionId);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                messageIds.add(rs.getString("message_id"));
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to find messages citing file '{}'", fileName, e);
+        }
+
+        return messageIds;
+    }
+
     /**
      * Delete all chat messages for a session
      */
     public void clearChatHistory(String sessionId) {
         String sql = "DELETE FROM messages WHERE session_id = ?";
+        messageWriter.flush();
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, sessionId);
@@ -275,6 +1133,76 @@ public class DatabaseService {
         }
     }
 
+    /**
+     * Load the statistics of every document in a session, keyed by file name
+     */
+    public Map<String, DocumentStats> getDocumentStats(String sessionId) {
+        Map<String, DocumentStats> stats = new HashMap<>();
+        String sql = "SELECT file_name, file_size, last_modified, character_count, page_count, segment_count, indexed " +
+                "FROM document_stats WHERE session_id = ?";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, sessionId);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                String fileName = rs.getString("file_name");
+                stats.put(fileName, new DocumentStats(
+                        fileName,
+                        rs.getLong("file_size"),
+                        rs.getLong("last_modified"),
+                        rs.getInt("character_count"),
+                        rs.getInt("page_count"),
+                        rs.getInt("segment_count"),
+                        rs.getInt("indexed") == 1));
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to load document statistics for session {}", sessionId, e);
+        }
+
+        return stats;
+    }
+
+    /**
+     * Insert or replace the statistics of a document
+     */
+    public void saveDocumentStats(String sessionId, DocumentStats stats) {
+        String sql = "INSERT INTO document_stats (session_id, file_name, file_size, last_modified, character_count, " +
+                "page_count, segment_count, indexed) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (session_id, file_name) DO UPDATE SET file_size = excluded.file_size, " +
+                "last_modified = excluded.last_modified, character_count = excluded.character_count, " +
+                "page_count = excluded.page_count, segment_count = excluded.segment_count, indexed = excluded.indexed";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, sessionId);
+            pstmt.setString(2, stats.fileName());
+            pstmt.setLong(3, stats.fileSize());
+            pstmt.setLong(4, stats.lastModified());
+            pstmt.setInt(5, stats.characterCount());
+            pstmt.setInt(6, stats.pageCount());
+            pstmt.setInt(7, stats.segmentCount());
+            pstmt.setInt(8, stats.indexed() ? 1 : 0);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to save statistics for '{}'", stats.fileName(), e);
+        }
+    }
+
+    /**
+     * Delete the statistics of a document
+     */
+    public void deleteDocumentStats(String sessionId, String fileName) {
+        String sql = "DELETE FROM document_stats WHERE session_id = ? AND file_name = ?";
+
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, sessionId);
+            pstmt.setString(2, fileName);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to delete statistics for '{}'", fileName, e);
+        }
+    }
+
     /**
      * Recursively delete a directory
      */
@@ -293,10 +1221,35 @@ public class DatabaseService {
     }
 
     /**
-     * Close database connection
+     * Get the connection used by the SQLite embedding storage. Callers must
+     * synchronize on it for the duration of a transaction.
+     */
+    synchronized Connection getStorageConnection() {
+        try {
+            if (storageConnection == null || storageConnection.isClosed()) {
+                storageConnection = openConnection(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to open embedding storage connection", e);
+            throw new RuntimeException("Failed to open embedding storage connection", e);
+        }
+        return storageConnection;
+    }
+
+    /**
+     * Commit queued messages and close database connections
      */
-    public void close() {
+    public synchronized void close() {
+        if (messageWriter != null) {
+            messageWriter.close();
+        }
+
         try {
+            if (storageConnection != null && !storageConnection.isClosed()) {
+                synchronized (storageConnection) {
+                    storageConnection.close();
+                }
+            }
             if (connection != null && !connection.isClosed()) {
                 connection.close();
             }
@@ -1,28 +1,36 @@
 package dev.assignment.service;
 
-import static dev.langchain4j.data.document.splitter.DocumentSplitters.recursive;
-
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 //import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import dev.langchain4j.data.document.Document;
+import dev.assignment.metrics.Metrics;
+import dev.assignment.model.ChunkingConfig;
+import dev.assignment.service.chunking.Chunker;
+import dev.assignment.service.chunking.Chunkers;
+import dev.assignment.service.chunking.CountingReader;
+import dev.assignment.service.chunking.TextChunk;
+import dev.assignment.util.SegmentMetadata;
 import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.store.embedding.EmbeddingMatch;
-import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
-import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.model.output.Response;
 
 /**
  * Service for indexing documents into embeddings
@@ -31,21 +39,36 @@ public class DocumentIndexingService {
 
     private static final Logger logger = LogManager.getLogger(DocumentIndexingService.class);
 
+    private static final int EMBEDDING_BATCH_SIZE = 32;
+
     private final String sessionId;
     private final EmbeddingModel embeddingModel;
-    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final SnapshotEmbeddingStore embeddingStore;
     private final Map<String, Long> indexedFiles;
+    private final EmbeddingStorage embeddingStorage;
+    private final ChunkingConfig chunkingConfig;
+
+    /**
+     * Files are indexed under the read lock and the storage is committed
+     * under the write lock, so a commit never sees a file half added
+     */
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private final IndexCheckpoints checkpoints;
 
     public interface ProgressCallback {
         void onProgress(String message, int current, int total);
     }
 
     public DocumentIndexingService(String sessionId, EmbeddingModel embeddingModel,
-            EmbeddingStore<TextSegment> embeddingStore, Map<String, Long> indexedFiles) {
+            SnapshotEmbeddingStore embeddingStore, Map<String, Long> indexedFiles,
+            EmbeddingStorage embeddingStorage, ChunkingConfig chunkingConfig) {
         this.sessionId = sessionId;
         this.embeddingModel = embeddingModel;
         this.embeddingStore = embeddingStore;
         this.indexedFiles = indexedFiles;
+        this.embeddingStorage = embeddingStorage;
+        this.chunkingConfig = chunkingConfig;
+        this.checkpoints = new IndexCheckpoints(sessionId);
     }
 
     /**
@@ -54,6 +77,16 @@ public class DocumentIndexingService {
      */
     public void indexKnowledgebase(ResourceService resourceService, ProgressCallback progressCallback)
             throws IOException {
+        indexKnowledgebase(resourceService, progressCallback, () -> false);
+    }
+
+    /**
+     * Index all documents from the knowledgebase (incremental), stopping with
+     * a {@link CancellationException} once cancelled. Files finished before
+     * that are kept.
+     */
+    public void indexKnowledgebase(ResourceService resourceService, ProgressCallback progressCallback,
+            BooleanSupplier cancelled) throws IOException {
         Path storagePath = resourceService.getStoragePath();
         File storageDir = storagePath.toFile();
 
@@ -93,28 +126,40 @@ public class DocumentIndexingService {
 
         int newIndexed = 0;
         int updated = 0;
+        boolean completed = false;
 
-        for (File file : filesToIndex) {
-            String fileName = file.getName();
-            long lastModified = file.lastModified();
+        try {
+            for (File file : filesToIndex) {
+                String fileName = file.getName();
+                long lastModified = file.lastModified();
+                boolean modified = indexedFiles.containsKey(fileName);
 
-            logger.debug("Indexing {} file: {}",
-                    indexedFiles.containsKey(fileName) ? "modified" : "new", fileName);
+                logger.debug("Indexing {} file: {}", modified ? "modified" : "new", fileName);
 
-            if (progressCallback != null) {
-                currentStep++;
-                progressCallback.onProgress("Indexing " + fileName + "...", currentStep, totalSteps);
-            }
+                if (progressCallback != null) {
+                    currentStep++;
+                    progressCallback.onProgress("Indexing " + fileName + "...", currentStep, totalSteps);
+                }
 
-            if (indexedFiles.containsKey(fileName)) {
-                removeFileFromIndex(fileName);
-                updated++;
-            } else {
-                newIndexed++;
-            }
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException("Indexing cancelled");
+                }
+                indexDocument(file, lastModified, cancelled);
 
-            indexDocument(file);
-            indexedFiles.put(fileName, lastModified);
+                if (modified) {
+                    updated++;
+                } else {
+                    newIndexed++;
+                }
+            }
+            completed = true;
+        } finally {
+            // Keep the files indexed before a failure or cancellation; the
+            // file in progress resumes from its checkpoints on the next run
+            if (!completed && newIndexed + updated > 0) {
+                logger.warn("Indexing stopped early, saving {} indexed files", newIndexed + updated);
+                commit();
+            }
         }
 
         Set<String> deletedFiles = new HashSet<>(indexedFiles.keySet());
@@ -124,7 +169,9 @@ public class DocumentIndexingService {
             logger.debug("Removing deleted file from index: {}", deletedFile);
             removeFileFromIndex(deletedFile);
             indexedFiles.remove(deletedFile);
+            embeddingStorage.removeFile(deletedFile);
         }
+        ExtractedTextCache.prune(storagePath);
 
         logger.info("Indexing complete. New: {}, Updated: {}, Deleted: {}", newIndexed, updated, deletedFiles.size());
 
@@ -132,7 +179,7 @@ public class DocumentIndexingService {
             if (progressCallback != null) {
                 progressCallback.onProgress("Saving cache...", totalSteps, totalSteps);
             }
-            EmbeddingCacheService.saveCache(sessionId, embeddingStore, indexedFiles);
+            commit();
         }
 
         if (progressCallback != null) {
@@ -160,14 +207,35 @@ public class DocumentIndexingService {
 
         logger.debug("Indexing single file: {}", fileName);
 
-        if (indexedFiles.containsKey(fileName)) {
-            removeFileFromIndex(fileName);
-        }
+        indexDocument(file, lastModified, () -> false);
+        commit();
+    }
 
-        indexDocument(file);
-        indexedFiles.put(fileName, lastModified);
+    /**
+     * Index or re-index a file without committing the storage, so a caller
+     * indexing many files can commit once at the end. Several files may be
+     * indexed concurrently. Cancellation is checked between embedding
+     * batches; a cancelled file leaves the index untouched.
+     *
+     * @throws CancellationException if cancelled before the file was indexed
+     */
+    public void indexFile(File file, BooleanSupplier cancelled) throws IOException {
+        indexDocument(file, file.lastModified(), cancelled);
+    }
 
-        EmbeddingCacheService.saveCache(sessionId, embeddingStore, indexedFiles);
+    /**
+     * Persist the current index and drop the checkpoints it makes redundant
+     */
+    public void commit() {
+        commitLock.writeLock().lock();
+        try {
+            long start = System.nanoTime();
+            embeddingStorage.commit(embeddingStore, indexedFiles);
+            Metrics.INDEX_CACHE_SAVE.recordSince(start);
+            checkpoints.clear(Map.copyOf(indexedFiles));
+        } finally {
+            commitLock.writeLock().unlock();
+        }
     }
 
     /**
@@ -179,55 +247,157 @@ public class DocumentIndexingService {
         removeFileFromIndex(fileName);
         indexedFiles.remove(fileName);
 
-        EmbeddingCacheService.saveCache(sessionId, embeddingStore, indexedFiles);
+        embeddingStorage.removeFile(fileName);
+        commit();
+    }
+
+    /**
+     * Remove every file from the index and its persistent storage
+     */
+    public void clearIndex() {
+        logger.info("Clearing index of {} files", indexedFiles.size());
+
+        embeddingStore.removeAll();
+        for (String fileName : new ArrayList<>(indexedFiles.keySet())) {
+            embeddingStorage.removeFile(fileName);
+        }
+        indexedFiles.clear();
+        checkpoints.clearAll();
+
+        commit();
+    }
+
+    /**
+     * Remove the stored index and checkpoints of a session that is not
+     * loaded, e.g. because its RAG service cannot be created without an API
+     * key
+     */
+    public static void clearStoredIndex(String sessionId) {
+        logger.info("Clearing stored index of session {}", sessionId);
+        EmbeddingStorage.forSession(sessionId).clear();
+        new IndexCheckpoints(sessionId).clearAll();
+    }
+
+    /**
+     * Whether a journaled vector has the dimension of the index, i.e. came
+     * from the session's current embedding model
+     */
+    private boolean fitsStore(Embedding embedding) {
+        return embeddingStore.dimension() == 0 || embedding.dimension() == embeddingStore.dimension();
     }
 
     /**
      * Remove all segments of a specific file from the index
      */
     private void removeFileFromIndex(String fileName) {
-        List<EmbeddingMatch<TextSegment>> allEmbeddings = embeddingStore.search(
-                EmbeddingSearchRequest.builder()
-                        .queryEmbedding(new Embedding(new float[1536])) // dummy embedding
-                        .maxResults(Integer.MAX_VALUE)
-                        .minScore(0.0)
-                        .build())
-                .matches();
+        embeddingStore.removeFile(fileName);
+    }
 
-        embeddingStore.removeAll();
+    /**
+     * Index a single document and persist its segments. Chunks are produced
+     * lazily by the chunker for the file type and embedded in batches, so
+     * embedding starts with the first batch. Each embedded batch is
+     * checkpointed, and chunks checkpointed by an interrupted run are not
+     * embedded again. The segments replace those of a previous version of
+     * the file only once all of them are embedded.
+     */
+    private void indexDocument(File file, long lastModified, BooleanSupplier cancelled) throws IOException {
+        long fileStart = System.nanoTime();
+        List<TextSegment> indexedSegments = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> batch = new ArrayList<>(EMBEDDING_BATCH_SIZE);
+        Chunker chunker = Chunkers.forFile(file.getName(), chunkingConfig);
+        String fileName = file.getName();
+        Map<Integer, IndexCheckpoints.Entry> checkpointed = checkpoints.load(fileName, lastModified);
+        long characterCount;
+        // Embedding requests run inside the chunk loop; their time is
+        // recorded separately and subtracted from the split time
+        long embeddingNanos = 0;
+
+        long extractStart = System.nanoTime();
+        try (CountingReader reader = new CountingReader(ResourceService.openContentReader(file))) {
+            long splitStart = Metrics.INDEX_EXTRACT.recordSince(extractStart);
+            Iterator<TextChunk> chunks = chunker.split(reader);
+            while (chunks.hasNext()) {
+                TextChunk chunk = chunks.next();
+
+                Metadata metadata = new Metadata();
+                metadata.put(SegmentMetadata.FILE_NAME, fileName);
+                metadata.put(SegmentMetadata.INDEX, chunk.index());
+                metadata.put(SegmentMetadata.START_OFFSET, chunk.startOffset());
+                metadata.put(SegmentMetadata.END_OFFSET, chunk.endOffset());
+                if (chunk.page() > 0) {
+                    metadata.put(SegmentMetadata.PAGE, chunk.page());
+                }
+                TextSegment segment = TextSegment.from(chunk.text(), metadata);
+
+                IndexCheckpoints.Entry entry = checkpointed.get(chunk.index());
+                if (entry != null && entry.text().equals(chunk.text()) && fitsStore(entry.embedding())) {
+                    indexedSegments.add(segment);
+                    embeddings.add(entry.embedding());
+                    continue;
+                }
 
-        for (EmbeddingMatch<TextSegment> match : allEmbeddings) {
-            TextSegment segment = match.embedded();
-            if (segment.metadata() != null && segment.metadata().containsKey("fileName")) {
-                String segmentFileName = segment.metadata().getString("fileName");
-                if (!segmentFileName.equals(fileName)) {
-                    embeddingStore.add(match.embedding(), segment);
+                batch.add(segment);
+                if (batch.size() == EMBEDDING_BATCH_SIZE) {
+                    embeddingNanos += embedBatch(fileName, lastModified, batch, indexedSegments, embeddings,
+                            cancelled);
                 }
             }
+            Metrics.INDEX_SPLIT.record(System.nanoTime() - splitStart - embeddingNanos);
+            embedBatch(fileName, lastModified, batch, indexedSegments, embeddings, cancelled);
+            characterCount = reader.getCount();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        commitLock.readLock().lock();
+        try {
+            embeddingStore.replaceFile(fileName, embeddings, indexedSegments);
+            embeddingStorage.saveFile(fileName, lastModified, indexedSegments, embeddings);
+            indexedFiles.put(fileName, lastModified);
+        } finally {
+            commitLock.readLock().unlock();
         }
+
+        DatabaseService databaseService = DatabaseService.getInstance();
+        if (databaseService != null) {
+            databaseService.saveDocumentStats(sessionId,
+                    ResourceService.describe(file, (int) characterCount, indexedSegments.size(), true));
+        }
+        Metrics.INDEX_FILE.recordSince(fileStart);
+        logger.debug("Successfully indexed {} segments from {} ({} chunker)", indexedSegments.size(), fileName,
+                chunker.name());
     }
 
     /**
-     * Index a single document
+     * Embed a batch of segments in one request and checkpoint the result
+     *
+     * @return the time spent in nanoseconds
      */
-    private void indexDocument(File file) throws IOException {
-        String content = ResourceService.readFileContent(file);
-        //String content = Files.readString(file.toPath());
-
-        Metadata metadata = new Metadata();
-        metadata.put("fileName", file.getName());
-        Document document = Document.from(content, metadata);
-
-        List<TextSegment> segments = recursive(500, 50).split(document);
-
-        for (TextSegment segment : segments) {
-            Metadata segmentMetadata = new Metadata();
-            segmentMetadata.put("fileName", file.getName());
-            TextSegment segmentWithMetadata = TextSegment.from(segment.text(), segmentMetadata);
+    private long embedBatch(String fileName, long lastModified, List<TextSegment> batch,
+            List<TextSegment> indexedSegments, List<Embedding> embeddings, BooleanSupplier cancelled) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Indexing cancelled");
+        }
 
-            Embedding embedding = embeddingModel.embed(segmentWithMetadata).content();
-            embeddingStore.add(embedding, segmentWithMetadata);
+        long start = System.nanoTime();
+        Response<List<Embedding>> response = embeddingModel.embedAll(batch);
+        List<Embedding> batchEmbeddings = response.content();
+        long elapsed = System.nanoTime() - start;
+        Metrics.INDEX_EMBED_BATCH.record(elapsed);
+        Metrics.INDEX_SEGMENTS.increment(batch.size());
+        if (response.tokenUsage() != null && response.tokenUsage().inputTokenCount() != null) {
+            Metrics.INDEX_EMBEDDING_TOKENS.increment(response.tokenUsage().inputTokenCount());
         }
-        logger.debug("Successfully indexed {} segments from {}", segments.size(), file.getName());
+        checkpoints.save(fileName, lastModified, batch, batchEmbeddings);
+
+        indexedSegments.addAll(batch);
+        embeddings.addAll(batchEmbeddings);
+        batch.clear();
+        return elapsed;
     }
 }
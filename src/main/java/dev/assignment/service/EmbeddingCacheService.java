@@ -3,21 +3,22 @@ package dev.assignment.service;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import dev.assignment.metrics.EmbeddingCacheEvent;
 import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.store.embedding.EmbeddingMatch;
-import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
-import dev.langchain4j.store.embedding.EmbeddingStore;
 
 /**
  * Service for managing persistent embedding cache
@@ -38,11 +39,17 @@ public class EmbeddingCacheService {
         return new File(cacheDir, sessionId + "_embeddings.cache");
     }
 
+    /**
+     * Check whether a session has a cache file on disk
+     */
+    public static boolean hasCache(String sessionId) {
+        return getCacheFile(sessionId).exists();
+    }
+
     /**
      * Load cached embeddings from disk
      */
-    @SuppressWarnings("unchecked")
-    public static void loadCache(String sessionId, EmbeddingStore<TextSegment> embeddingStore,
+    public static void loadCache(String sessionId, SnapshotEmbeddingStore embeddingStore,
             Map<String, Long> indexedFiles) {
         File cacheFile = getCacheFile(sessionId);
         if (!cacheFile.exists()) {
@@ -50,6 +57,47 @@ public class EmbeddingCacheService {
             return;
         }
 
+        EmbeddingCacheEvent event = new EmbeddingCacheEvent();
+        event.begin();
+        event.operation = "load";
+        event.sessionId = sessionId;
+        event.bytes = cacheFile.length();
+        try {
+            // Streamed into the store's loader, which publishes one generation
+            SnapshotEmbeddingStore.Loader loader = embeddingStore.loader();
+            int count = readCache(cacheFile, indexedFiles, loader::add);
+            loader.publish();
+            event.segments = count;
+            event.files = indexedFiles.size();
+            event.succeeded = true;
+            logger.info("Loaded {} cached embeddings for {} files", count, indexedFiles.size());
+        } catch (Exception e) {
+            logger.error("Failed to load cached embeddings: {}", e.getMessage(), e);
+            indexedFiles.clear();
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Stream every cached embedding of a session to a consumer without
+     * building a store, e.g. to migrate it to another storage backend
+     *
+     * @return the indexed files recorded in the cache
+     */
+    public static Map<String, Long> readCache(String sessionId, BiConsumer<Embedding, TextSegment> consumer)
+            throws IOException, ClassNotFoundException {
+        Map<String, Long> indexedFiles = new HashMap<>();
+        File cacheFile = getCacheFile(sessionId);
+        if (cacheFile.exists()) {
+            readCache(cacheFile, indexedFiles, consumer);
+        }
+        return indexedFiles;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int readCache(File cacheFile, Map<String, Long> indexedFiles,
+            BiConsumer<Embedding, TextSegment> consumer) throws IOException, ClassNotFoundException {
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(cacheFile))) {
             // Read indexed files map
             Map<String, Long> cachedFiles = (Map<String, Long>) ois.readObject();
@@ -70,55 +118,63 @@ public class EmbeddingCacheService {
                 metadataMap.forEach(metadata::put);
                 TextSegment segment = TextSegment.from(segmentText, metadata);
 
-                embeddingStore.add(embedding, segment);
+                consumer.accept(embedding, segment);
             }
 
-            logger.info("Loaded {} cached embeddings for {} files", count, indexedFiles.size());
-        } catch (Exception e) {
-            logger.error("Failed to load cached embeddings: {}", e.getMessage(), e);
-            indexedFiles.clear();
+            return count;
         }
     }
 
     /**
      * Save embeddings to disk
      */
-    public static void saveCache(String sessionId, EmbeddingStore<TextSegment> embeddingStore,
+    public static void saveCache(String sessionId, SnapshotEmbeddingStore embeddingStore,
             Map<String, Long> indexedFiles) {
         File cacheFile = getCacheFile(sessionId);
+        EmbeddingCacheEvent event = new EmbeddingCacheEvent();
+        event.begin();
+        event.operation = "save";
+        event.sessionId = sessionId;
+        event.files = indexedFiles.size();
 
         try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(cacheFile))) {
             // Write indexed files map
             oos.writeObject(indexedFiles);
 
             // Get all embeddings from store
-            List<EmbeddingMatch<TextSegment>> allEmbeddings = embeddingStore.search(
-                    EmbeddingSearchRequest.builder()
-                            .queryEmbedding(new Embedding(new float[1536])) // dummy embedding
-                            .maxResults(Integer.MAX_VALUE)
-                            .minScore(0.0)
-                            .build())
-                    .matches();
+            List<Embedding> embeddings = new ArrayList<>();
+            List<TextSegment> segments = new ArrayList<>();
+            for (SnapshotEmbeddingStore.StoredEmbedding stored : embeddingStore.snapshot()) {
+                embeddings.add(stored.embedding());
+                segments.add(stored.segment());
+            }
 
             // Write count
-            oos.writeInt(allEmbeddings.size());
+            oos.writeInt(embeddings.size());
 
             // Write each embedding and segment
-            for (EmbeddingMatch<TextSegment> match : allEmbeddings) {
-                oos.writeObject(match.embedding().vector());
-                oos.writeObject(match.embedded().text());
+            for (int i = 0; i < embeddings.size(); i++) {
+                TextSegment segment = segments.get(i);
+                oos.writeObject(embeddings.get(i).vector());
+                oos.writeObject(segment.text());
 
                 // Convert metadata to serializable map
                 Map<String, String> metadataMap = new HashMap<>();
-                if (match.embedded().metadata() != null) {
-                    match.embedded().metadata().toMap().forEach((k, v) -> metadataMap.put(k, v.toString()));
+                if (segment.metadata() != null) {
+                    segment.metadata().toMap().forEach((k, v) -> metadataMap.put(k, v.toString()));
                 }
                 oos.writeObject(metadataMap);
             }
 
-            logger.info("Saved {} embeddings to cache", allEmbeddings.size());
+            event.segments = embeddings.size();
+            event.succeeded = true;
+            logger.info("Saved {} embeddings to cache", embeddings.size());
         } catch (Exception e) {
             logger.error("Failed to save cached embeddings: {}", e.getMessage(), e);
+        } finally {
+            event.end();
+            event.bytes = cacheFile.length();
+            event.commit();
         }
     }
 
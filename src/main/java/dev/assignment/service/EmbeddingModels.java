@@ -0,0 +1,53 @@
+package dev.assignment.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.model.EmbeddingConfig;
+import dev.assignment.util.Constants;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2q.AllMiniLmL6V2QuantizedEmbeddingModel;
+
+/**
+ * The embedding models a session can use. OpenAI models are called over
+ * the network; the local model is a quantized all-MiniLM-L6-v2 run through
+ * ONNX Runtime on the CPU, loaded once and shared by all sessions. It embeds
+ * the segments of a batch in parallel on the task scheduler's CPU pool, so
+ * it shares the cores with the other CPU-bound work instead of competing
+ * with it.
+ */
+public class EmbeddingModels {
+
+    private static final Logger logger = LogManager.getLogger(EmbeddingModels.class);
+
+    private static EmbeddingModel localModel;
+
+    private EmbeddingModels() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Create the embedding model of a session, with retries and call events
+     *
+     * @param apiKey OpenAI API key, unused by the local model
+     */
+    public static EmbeddingModel create(EmbeddingConfig config, String apiKey) {
+        if (Constants.LOCAL_EMBEDDING_MODEL.equals(config.model())) {
+            return localModel();
+        }
+        return new InstrumentedEmbeddingModel(OpenAiModels.embeddingModel(apiKey)
+                .modelName(config.model())
+                .maxRetries(0)
+                .build());
+    }
+
+    private static synchronized EmbeddingModel localModel() {
+        if (localModel == null) {
+            long start = System.nanoTime();
+            localModel = new InstrumentedEmbeddingModel(
+                    new AllMiniLmL6V2QuantizedEmbeddingModel(TaskScheduler.getInstance().cpuExecutor()));
+            logger.info("Loaded local embedding model in {} ms", (System.nanoTime() - start) / 1_000_000);
+        }
+        return localModel;
+    }
+}
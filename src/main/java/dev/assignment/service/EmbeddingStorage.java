@@ -0,0 +1,52 @@
+package dev.assignment.service;
+
+import java.util.List;
+import java.util.Map;
+
+import dev.assignment.util.AppConfig;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * Persistent storage for the embeddings of one session
+ */
+public interface EmbeddingStorage {
+
+    /**
+     * Load all persisted embeddings into the store and record which files
+     * they came from
+     */
+    void load(SnapshotEmbeddingStore embeddingStore, Map<String, Long> indexedFiles);
+
+    /**
+     * Persist the segments of one file, replacing anything stored for it
+     */
+    void saveFile(String fileName, long lastModified, List<TextSegment> segments, List<Embedding> embeddings);
+
+    /**
+     * Remove everything stored for one file
+     */
+    void removeFile(String fileName);
+
+    /**
+     * Remove everything stored for the session, without loading it
+     */
+    void clear();
+
+    /**
+     * Persist the current state of the whole store. Backends that already
+     * persist per file treat this as a no-op.
+     */
+    void commit(SnapshotEmbeddingStore embeddingStore, Map<String, Long> indexedFiles);
+
+    /**
+     * Create the storage backend selected by the EMBEDDING_STORAGE setting
+     */
+    static EmbeddingStorage forSession(String sessionId) {
+        String backend = AppConfig.getString(AppConfig.EMBEDDING_STORAGE, "file");
+        if ("sqlite".equalsIgnoreCase(backend)) {
+            return new SqliteEmbeddingStorage(sessionId);
+        }
+        return new FileEmbeddingStorage(sessionId);
+    }
+}
@@ -0,0 +1,374 @@
+package dev.assignment.service;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Sidecar cache of text extracted from documents. Entries are gzip files
+ * kept in a hidden folder next to the source file and named after a hash of
+ * its file name and the SHA-256 of its content, so a changed file never
+ * matches a stale entry. A file keeps at most one entry: the entries of its
+ * earlier content are removed once the new content is hashed, and
+ * {@link #prune} removes those of files that no longer exist.
+ */
+public class ExtractedTextCache {
+
+    private static final Logger logger = LogManager.getLogger(ExtractedTextCache.class);
+
+    private static final String CACHE_DIR = ".text_cache";
+    /**
+     * Part of every entry name; bumped when the extracted text format changes
+     */
+    private static final String FORMAT_VERSION = "-v3";
+    private static final String ENTRY_SUFFIX = FORMAT_VERSION + ".txt.gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Hashes of files seen in this process, so unchanged files are not re-read
+     * just to find their cache entry
+     */
+    private static final Map<Path, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * Produces the text when there is no cache entry for a file
+     */
+    public interface TextExtractor {
+        String extract(File file) throws IOException;
+    }
+
+    /**
+     * Writes the text of a file incrementally when there is no cache entry
+     */
+    public interface StreamingTextExtractor {
+        void extract(File file, Writer out) throws IOException;
+    }
+
+    private interface EntryContent {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    private ExtractedTextCache() {
+    }
+
+    /**
+     * Get the extracted text of a file, running the extractor and storing its
+     * result on a cache miss
+     */
+    public static String getText(File file, TextExtractor extractor) throws IOException {
+        Path entry = entryFor(file);
+
+        if (Files.exists(entry)) {
+            try {
+                return readEntry(entry);
+            } catch (IOException e) {
+                logger.warn("Discarding unreadable text cache entry for {}: {}", file.getName(), e.getMessage());
+                Files.deleteIfExists(entry);
+            }
+        }
+
+        String text = extractor.extract(file);
+        try {
+            writeEntry(entry, writer -> writer.write(text));
+        } catch (IOException e) {
+            // The cache is an optimization only, the caller still gets the text
+            logger.warn("Failed to cache extracted text for {}: {}", file.getName(), e.getMessage());
+        }
+        return text;
+    }
+
+    /**
+     * Open a reader over the extracted text of a file. On a cache miss the
+     * extractor streams straight into a new entry, so the text is never held
+     * in memory as a whole. If the extractor fails, its exception is thrown
+     * and no entry is left behind; only when the entry itself cannot be
+     * written is the text extracted into memory instead.
+     */
+    public static Reader openReader(File file, StreamingTextExtractor extractor) throws IOException {
+        Path entry = entryFor(file);
+
+        if (!Files.exists(entry)) {
+            try {
+                writeEntry(entry, writer -> {
+                    try {
+                        extractor.extract(file, new EntryWriter(writer));
+                    } catch (EntryWriteException e) {
+                        throw e;
+                    } catch (IOException e) {
+                        throw new ExtractionException(e);
+                    }
+                });
+            } catch (ExtractionException e) {
+                throw e.getCause();
+            } catch (IOException e) {
+                logger.warn("Failed to cache extracted text for {}: {}", file.getName(), e.getMessage());
+                StringWriter text = new StringWriter();
+                extractor.extract(file, text);
+                return new StringReader(text.toString());
+            }
+        }
+
+        return new InputStreamReader(new GZIPInputStream(Files.newInputStream(entry), BUFFER_SIZE),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Remove the cache entries of a file, e.g. before it is deleted
+     */
+    public static void invalidate(File file) {
+        fingerprints.remove(file.toPath().toAbsolutePath());
+        try {
+            removeEntries(cacheDir(file), entryPrefix(file.getName()), null);
+        } catch (IOException e) {
+            logger.warn("Failed to invalidate text cache for {}: {}", file.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the entries of files no longer in a directory, and entries in an
+     * older format
+     */
+    public static void prune(Path directory) {
+        Path cacheDir = directory.toAbsolutePath().resolve(CACHE_DIR);
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+
+        Set<String> prefixes = new HashSet<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Files::isRegularFile)
+                    .forEach(file -> prefixes.add(entryPrefix(file.getFileName().toString())));
+        } catch (IOException e) {
+            logger.warn("Failed to list {} for text cache pruning: {}", directory, e.getMessage());
+            return;
+        }
+
+        int removed = 0;
+        try (Stream<Path> entries = Files.list(cacheDir)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                String name = entry.getFileName().toString();
+                int separator = name.indexOf('-');
+                boolean current = name.endsWith(ENTRY_SUFFIX) && separator > 0
+                        && prefixes.contains(name.substring(0, separator + 1));
+                if (!current && name.endsWith(".txt.gz") && Files.deleteIfExists(entry)) {
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to prune text cache in {}: {}", directory, e.getMessage());
+        }
+        if (removed > 0) {
+            logger.debug("Removed {} stale text cache entries from {}", removed, cacheDir);
+        }
+    }
+
+    /**
+     * Resolve the cache entry for the current content of a file. Whenever the
+     * content is hashed, e.g. when a changed file is re-indexed, the entries
+     * of its earlier content are removed, also those from earlier runs.
+     */
+    private static Path entryFor(File file) throws IOException {
+        Path key = file.toPath().toAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        String prefix = entryPrefix(file.getName());
+
+        Fingerprint known = fingerprints.get(key);
+        if (known != null && known.size() == size && known.lastModified() == lastModified) {
+            return cacheDir(file).resolve(prefix + known.hash() + ENTRY_SUFFIX);
+        }
+
+        String hash = hash(file);
+        fingerprints.put(key, new Fingerprint(size, lastModified, hash));
+        Path entry = cacheDir(file).resolve(prefix + hash + ENTRY_SUFFIX);
+        removeEntries(cacheDir(file), prefix, entry);
+        return entry;
+    }
+
+    /**
+     * Delete the entries starting with a prefix, except one to keep
+     */
+    private static void removeEntries(Path cacheDir, String prefix, Path keep) throws IOException {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        try (Stream<Path> entries = Files.list(cacheDir)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                if (entry.getFileName().toString().startsWith(prefix) && !entry.equals(keep)) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+
+    private static Path cacheDir(File file) {
+        return file.toPath().toAbsolutePath().getParent().resolve(CACHE_DIR);
+    }
+
+    /**
+     * Start of the entry names of a file, derived from its name so entries of
+     * its earlier content can be found without that content
+     */
+    private static String entryPrefix(String fileName) {
+        return HexFormat.of().formatHex(sha256().digest(fileName.getBytes(StandardCharsets.UTF_8)), 0, 8) + "-";
+    }
+
+    private static String readEntry(Path entry) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(entry), BUFFER_SIZE);
+                Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Write through a temp file and move it into place, so readers never see
+     * a partially written entry
+     */
+    private static void writeEntry(Path entry, EntryContent content) throws IOException {
+        Files.createDirectories(entry.getParent());
+        Path temp = Files.createTempFile(entry.getParent(), "entry", ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE);
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                content.writeTo(writer);
+            }
+            try {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Fingerprint(long size, long lastModified, String hash) {
+    }
+
+    /**
+     * Failure of a streaming extractor, as opposed to one writing its entry
+     */
+    private static class ExtractionException extends IOException {
+        ExtractionException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * Failure writing an entry, raised inside a streaming extractor
+     */
+    private static class EntryWriteException extends IOException {
+        EntryWriteException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Marks the exceptions of an entry's writer so they can be told apart
+     * from the extractor's own
+     */
+    private static class EntryWriter extends FilterWriter {
+        EntryWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            try {
+                out.write(c);
+            } catch (IOException e) {
+                throw new EntryWriteException(e);
+            }
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            try {
+                out.write(buffer, offset, length);
+            } catch (IOException e) {
+                throw new EntryWriteException(e);
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            try {
+                out.write(text, offset, length);
+            } catch (IOException e) {
+                throw new EntryWriteException(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new EntryWriteException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            // The entry's writer is closed by writeEntry
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dev.assignment.service;
+
+import java.util.List;
+import java.util.Map;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * Embedding storage backed by the per-session Java-serialized cache file
+ */
+public class FileEmbeddingStorage implements EmbeddingStorage {
+
+    private final String sessionId;
+
+    public FileEmbeddingStorage(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    @Override
+    public void load(SnapshotEmbeddingStore embeddingStore, Map<String, Long> indexedFiles) {
+        EmbeddingCacheService.loadCache(sessionId, embeddingStore, indexedFiles);
+    }
+
+    @Override
+    public void saveFile(String fileName, long lastModified, List<TextSegment> segments, List<Embedding> embeddings) {
+        // The cache file is rewritten as a whole on commit
+    }
+
+    @Override
+    public void removeFile(String fileName) {
+        // The cache file is rewritten as a whole on commit
+    }
+
+    @Override
+    public void clear() {
+        EmbeddingCacheService.deleteCache(sessionId);
+    }
+
+    @Override
+    public void commit(SnapshotEmbeddingStore embeddingStore, Map<String, Long> indexedFiles) {
+        EmbeddingCacheService.saveCache(sessionId, embeddingStore, indexedFiles);
+    }
+}
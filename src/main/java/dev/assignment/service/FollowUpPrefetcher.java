@@ -0,0 +1,161 @@
+package dev.assignment.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.metrics.Metrics;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+/**
+ * Speculatively embeds the follow-up questions a user is likely to ask next,
+ * in the idle time after an answer, so their retrieval is served from the
+ * {@link QueryEmbeddingCache}. Candidates are generic follow-ups ("Tell me
+ * more") and questions about the names mentioned in the answer, preferring
+ * names that also occur in the retrieved segments. Each answer triggers at
+ * most one batched embedding request of at most {@code budget} texts, and
+ * none while the previous one is still running.
+ */
+class FollowUpPrefetcher {
+
+    private static final Logger logger = LogManager.getLogger(FollowUpPrefetcher.class);
+
+    private static final List<String> GENERIC_FOLLOW_UPS = List.of("Tell me more", "Why?", "Can you elaborate?");
+    private static final List<String> ENTITY_FOLLOW_UPS = List.of("Tell me more about %s", "What about %s?");
+
+    /** Runs of capitalized words, e.g. "Melvin Chia" or "Kuala Lumpur" */
+    private static final Pattern NAME = Pattern.compile("\\p{Lu}[\\p{L}\\p{N}'-]*(?:\\s+\\p{Lu}[\\p{L}\\p{N}'-]*)*");
+
+    private static final Set<String> NOT_NAMES = Set.of(
+            "A", "An", "And", "As", "At", "But", "By", "For", "From", "He", "Her", "His", "However", "I", "If",
+            "In", "It", "Its", "No", "Not", "Of", "On", "Or", "She", "So", "The", "Their", "There", "These",
+            "They", "This", "Those", "To", "We", "What", "When", "Which", "While", "Who", "Yes", "You", "Your");
+
+    private final EmbeddingModel embeddingModel;
+    private final QueryEmbeddingCache cache;
+    private final int budget;
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+
+    FollowUpPrefetcher(EmbeddingModel embeddingModel, QueryEmbeddingCache cache, int budget) {
+        this.embeddingModel = embeddingModel;
+        this.cache = cache;
+        this.budget = budget;
+    }
+
+    /**
+     * Queue the embedding of likely follow-ups to an answer
+     *
+     * @param contextualize turns a follow-up question into the retrieval
+     *                      query the next turn would build for it
+     */
+    synchronized void prefetch(String answer, List<TextSegment> retrieved, UnaryOperator<String> contextualize) {
+        if (budget <= 0 || !pending.isDone()) {
+            return;
+        }
+
+        List<String> queries = new ArrayList<>();
+        for (String question : candidates(answer, retrieved)) {
+            String query = contextualize.apply(question);
+            if (!cache.contains(query)) {
+                queries.add(query);
+            }
+            if (queries.size() == budget) {
+                break;
+            }
+        }
+        if (queries.isEmpty()) {
+            return;
+        }
+
+        pending = TaskScheduler.getInstance().runIo("prefetch follow-up embeddings", () -> embed(queries));
+    }
+
+    private void embed(List<String> queries) {
+        List<TextSegment> segments = queries.stream().map(TextSegment::from).toList();
+        Response<List<Embedding>> response = embeddingModel.embedAll(segments);
+        List<Embedding> embeddings = response.content();
+        for (int i = 0; i < queries.size(); i++) {
+            cache.put(queries.get(i), embeddings.get(i));
+        }
+        Metrics.QUERY_PREFETCHED_EMBEDDINGS.increment(queries.size());
+        if (response.tokenUsage() != null && response.tokenUsage().inputTokenCount() != null) {
+            Metrics.QUERY_PREFETCH_TOKENS.increment(response.tokenUsage().inputTokenCount());
+        }
+        logger.debug("Prefetched {} follow-up embeddings", queries.size());
+    }
+
+    /**
+     * Likely follow-up questions, most likely first: questions about the
+     * most prominent name in the answer, generic follow-ups, then questions
+     * about the other names
+     */
+    static List<String> candidates(String answer, List<TextSegment> retrieved) {
+        List<String> questions = new ArrayList<>();
+        for (String name : names(answer, retrieved)) {
+            for (String template : ENTITY_FOLLOW_UPS) {
+                questions.add(String.format(template, name));
+            }
+        }
+        questions.addAll(Math.min(ENTITY_FOLLOW_UPS.size(), questions.size()), GENERIC_FOLLOW_UPS);
+        return questions;
+    }
+
+    /**
+     * Names in the answer ranked by how often they occur, counting a mention
+     * in the retrieved segments as well
+     */
+    static List<String> names(String answer, List<TextSegment> retrieved) {
+        Map<String, Integer> scores = new HashMap<>();
+        Set<String> found = new LinkedHashSet<>();
+        Matcher matcher = NAME.matcher(answer);
+        while (matcher.find()) {
+            String name = stripLeadingStopWord(matcher.group());
+            if (name != null) {
+                found.add(name);
+                scores.merge(name, 1, Integer::sum);
+            }
+        }
+        for (String name : found) {
+            for (TextSegment segment : retrieved) {
+                if (segment.text().contains(name)) {
+                    scores.merge(name, 1, Integer::sum);
+                    break;
+                }
+            }
+        }
+
+        List<String> names = new ArrayList<>(found);
+        names.sort((a, b) -> Integer.compare(scores.get(b), scores.get(a)));
+        return names;
+    }
+
+    /**
+     * Drop a sentence-initial "The" or "In" from a match, and reject
+     * matches that are only such words
+     */
+    private static String stripLeadingStopWord(String match) {
+        String[] words = match.split("\\s+");
+        int first = 0;
+        while (first < words.length && NOT_NAMES.contains(words[first])) {
+            first++;
+        }
+        if (first == words.length || (words.length - first == 1 && words[first].length() < 3)) {
+            return null;
+        }
+        return String.join(" ", Arrays.copyOfRange(words, first, words.length));
+    }
+}
@@ -0,0 +1,188 @@
+package dev.assignment.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.util.SegmentMetadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * Journal of embeddings computed for files that are not yet committed to the
+ * embedding storage. Every embedded batch is written here as soon as the
+ * embedding request returns, so when indexing is interrupted the next run
+ * reuses the journaled vectors instead of paying for them again. A vector is
+ * only reused for the same file version, chunk index and chunk text.
+ */
+class IndexCheckpoints {
+
+    private static final Logger logger = LogManager.getLogger(IndexCheckpoints.class);
+
+    /**
+     * A journaled chunk and its embedding
+     */
+    record Entry(String text, Embedding embedding) {
+    }
+
+    private final String sessionId;
+
+    IndexCheckpoints(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Load the journaled chunks of a file by segment index. Entries left by
+     * another version of the file are dropped.
+     */
+    Map<Integer, Entry> load(String fileName, long lastModified) {
+        Map<Integer, Entry> entries = new HashMap<>();
+        Connection connection = getConnection();
+        if (connection == null) {
+            return entries;
+        }
+
+        String deleteStaleSql = "DELETE FROM index_checkpoints " +
+                "WHERE session_id = ? AND file_name = ? AND last_modified <> ?";
+        String selectSql = "SELECT segment_index, text, vector FROM index_checkpoints " +
+                "WHERE session_id = ? AND file_name = ?";
+
+        synchronized (connection) {
+            try (PreparedStatement deleteStale = connection.prepareStatement(deleteStaleSql);
+                    PreparedStatement select = connection.prepareStatement(selectSql)) {
+                deleteStale.setString(1, sessionId);
+                deleteStale.setString(2, fileName);
+                deleteStale.setLong(3, lastModified);
+                deleteStale.executeUpdate();
+
+                select.setString(1, sessionId);
+                select.setString(2, fileName);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        entries.put(rs.getInt("segment_index"), new Entry(rs.getString("text"),
+                                new Embedding(SqliteEmbeddingStorage.fromBlob(rs.getBytes("vector")))));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.error("Failed to load indexing checkpoints for {}", fileName, e);
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            logger.info("Resuming {} from {} checkpointed segments", fileName, entries.size());
+        }
+        return entries;
+    }
+
+    /**
+     * Journal a batch of freshly embedded segments
+     */
+    void save(String fileName, long lastModified, List<TextSegment> segments, List<Embedding> embeddings) {
+        Connection connection = getConnection();
+        if (connection == null || segments.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT OR REPLACE INTO index_checkpoints " +
+                "(session_id, file_name, last_modified, segment_index, text, vector) VALUES (?, ?, ?, ?, ?, ?)";
+
+        synchronized (connection) {
+            try {
+                connection.setAutoCommit(false);
+                try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < segments.size(); i++) {
+                        TextSegment segment = segments.get(i);
+                        pstmt.setString(1, sessionId);
+                        pstmt.setString(2, fileName);
+                        pstmt.setLong(3, lastModified);
+                        pstmt.setInt(4, SegmentMetadata.getInt(segment, SegmentMetadata.INDEX, -1));
+                        pstmt.setString(5, segment.text());
+                        pstmt.setBytes(6, SqliteEmbeddingStorage.toBlob(embeddings.get(i).vector()));
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                rollbackQuietly(connection);
+                logger.error("Failed to checkpoint segments of {}", fileName, e);
+            } finally {
+                restoreAutoCommit(connection);
+            }
+        }
+    }
+
+    /**
+     * Drop the journal of files whose current version has been committed
+     */
+    void clear(Map<String, Long> committedFiles) {
+        Connection connection = getConnection();
+        if (connection == null || committedFiles.isEmpty()) {
+            return;
+        }
+
+        String sql = "DELETE FROM index_checkpoints WHERE session_id = ? AND file_name = ? AND last_modified = ?";
+
+        synchronized (connection) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (Map.Entry<String, Long> file : committedFiles.entrySet()) {
+                    pstmt.setString(1, sessionId);
+                    pstmt.setString(2, file.getKey());
+                    pstmt.setLong(3, file.getValue());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            } catch (SQLException e) {
+                logger.error("Failed to clear indexing checkpoints for session {}", sessionId, e);
+            }
+        }
+    }
+
+    /**
+     * Drop the whole journal of the session
+     */
+    void clearAll() {
+        Connection connection = getConnection();
+        if (connection == null) {
+            return;
+        }
+
+        synchronized (connection) {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "DELETE FROM index_checkpoints WHERE session_id = ?")) {
+                pstmt.setString(1, sessionId);
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                logger.error("Failed to clear indexing checkpoints for session {}", sessionId, e);
+            }
+        }
+    }
+
+    private Connection getConnection() {
+        DatabaseService databaseService = DatabaseService.getInstance();
+        return databaseService != null ? databaseService.getStorageConnection() : null;
+    }
+
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.error("Failed to roll back checkpoint transaction", e);
+        }
+    }
+
+    private static void restoreAutoCommit(Connection connection) {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Failed to restore auto-commit", e);
+        }
+    }
+}
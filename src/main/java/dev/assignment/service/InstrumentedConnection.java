@@ -0,0 +1,63 @@
+package dev.assignment.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import dev.assignment.metrics.SqlEvent;
+
+/**
+ * Wraps a JDBC connection so every statement it creates records a
+ * {@link SqlEvent} per execute call
+ */
+class InstrumentedConnection {
+
+    private InstrumentedConnection() {
+        // Prevent instantiation
+    }
+
+    static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement
+                            && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        // prepareStatement and prepareCall take the SQL up front
+                        String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                        return wrap(method.getReturnType(), statement, sql);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object wrap(Class<?> type, Statement statement, String preparedSql) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            SqlEvent event = new SqlEvent();
+            event.begin();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = method.getName();
+                    event.sql = preparedSql != null ? preparedSql
+                            : args != null && args.length > 0 && args[0] instanceof String sql ? sql : null;
+                    event.commit();
+                }
+            }
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
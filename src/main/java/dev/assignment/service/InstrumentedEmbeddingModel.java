@@ -0,0 +1,76 @@
+package dev.assignment.service;
+
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.metrics.EmbeddingCallEvent;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.exception.RetriableException;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+/**
+ * Embedding model that retries transient failures (rate limits, timeouts,
+ * server errors) itself instead of inside the client, so each call is
+ * recorded as one {@link EmbeddingCallEvent} with its retry count. The
+ * delegate should be built with maxRetries(0).
+ */
+class InstrumentedEmbeddingModel implements EmbeddingModel {
+
+    private static final Logger logger = LogManager.getLogger(InstrumentedEmbeddingModel.class);
+
+    private static final int MAX_RETRIES = 2;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+
+    private final EmbeddingModel delegate;
+
+    InstrumentedEmbeddingModel(EmbeddingModel delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        EmbeddingCallEvent event = new EmbeddingCallEvent();
+        event.begin();
+        event.batchSize = segments.size();
+        try {
+            while (true) {
+                try {
+                    Response<List<Embedding>> response = delegate.embedAll(segments);
+                    event.succeeded = true;
+                    if (response.tokenUsage() != null && response.tokenUsage().inputTokenCount() != null) {
+                        event.inputTokens = response.tokenUsage().inputTokenCount();
+                    }
+                    return response;
+                } catch (RetriableException e) {
+                    if (event.retries == MAX_RETRIES) {
+                        throw e;
+                    }
+                    event.retries++;
+                    logger.warn("Embedding request failed, retry {} of {}: {}", event.retries, MAX_RETRIES,
+                            e.getMessage());
+                    backOff(event.retries, e);
+                }
+            }
+        } finally {
+            event.commit();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    private static void backOff(int retry, RuntimeException cause) {
+        try {
+            Thread.sleep(INITIAL_BACKOFF_MILLIS << (retry - 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package dev.assignment.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader that decodes a UTF-8 text file straight from a memory-mapped
+ * buffer, so the file content is never copied onto the heap as a whole.
+ * Malformed input is reported like {@code Files.readString} does.
+ */
+class MappedTextReader extends Reader {
+
+    private final FileChannel channel;
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private boolean flushed = false;
+
+    MappedTextReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (flushed) {
+            return -1;
+        }
+
+        // The whole file is mapped, so every decode call sees the end of input
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        CoderResult result = decoder.decode(bytes, out, true);
+        if (result.isError()) {
+            result.throwException();
+        }
+        if (result.isUnderflow()) {
+            result = decoder.flush(out);
+            if (result.isError()) {
+                result.throwException();
+            }
+            flushed = result.isUnderflow();
+        }
+
+        int read = out.position() - offset;
+        return read == 0 && flushed ? -1 : read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
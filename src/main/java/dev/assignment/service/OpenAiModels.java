@@ -0,0 +1,42 @@
+package dev.assignment.service;
+
+import dev.assignment.util.AppConfig;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+
+/**
+ * Builders for the OpenAI models, pointed at the endpoint configured by
+ * {@link AppConfig#OPENAI_BASE_URL} or at the public API when it is unset
+ */
+public class OpenAiModels {
+
+    private OpenAiModels() {
+        // Prevent instantiation
+    }
+
+    /**
+     * The configured base URL, or null for the public API
+     */
+    public static String baseUrl() {
+        return AppConfig.getString(AppConfig.OPENAI_BASE_URL, null);
+    }
+
+    public static OpenAiEmbeddingModel.OpenAiEmbeddingModelBuilder embeddingModel(String apiKey) {
+        return OpenAiEmbeddingModel.builder()
+                .baseUrl(baseUrl())
+                .apiKey(apiKey);
+    }
+
+    public static OpenAiChatModel.OpenAiChatModelBuilder chatModel(String apiKey) {
+        return OpenAiChatModel.builder()
+                .baseUrl(baseUrl())
+                .apiKey(apiKey);
+    }
+
+    public static OpenAiStreamingChatModel.OpenAiStreamingChatModelBuilder streamingChatModel(String apiKey) {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl(baseUrl())
+                .apiKey(apiKey);
+    }
+}
@@ -0,0 +1,189 @@
+package dev.assignment.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+/**
+ * Extracts PDF text page range by page range. Ranges are stripped in
+ * parallel on a slice of the task scheduler's CPU pool, each running range
+ * holding its own temp-file backed document, and emitted to the consumer in
+ * page order. Only a small window of ranges is kept in memory at any time,
+ * regardless of the document size.
+ */
+public class PdfTextExtractor {
+
+    private static final Logger logger = LogManager.getLogger(PdfTextExtractor.class);
+
+    /**
+     * Appended after every page so chunkers can find page boundaries
+     */
+    public static final String PAGE_BREAK = "\f";
+
+    private static final int PAGES_PER_RANGE = 8;
+    private static final int MAX_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int RANGES_IN_FLIGHT = MAX_WORKERS * 2;
+
+    /**
+     * Receives extracted text for consecutive page ranges, in page order
+     */
+    public interface PageRangeConsumer {
+        void accept(int firstPage, int lastPage, String text) throws IOException;
+    }
+
+    private PdfTextExtractor() {
+    }
+
+    /**
+     * Extract the whole document into a single string
+     */
+    public static String extractText(File pdfFile) throws IOException {
+        StringBuilder content = new StringBuilder();
+        extract(pdfFile, (firstPage, lastPage, text) -> content.append(text));
+        return content.toString();
+    }
+
+    /**
+     * Count the pages of a PDF without extracting any text
+     */
+    public static int countPages(File pdfFile) throws IOException {
+        try (PDDocument document = load(pdfFile)) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    /**
+     * Stream the text of a PDF to the consumer, one page range at a time
+     */
+    public static void extract(File pdfFile, PageRangeConsumer consumer) throws IOException {
+        int pageCount;
+        try (PDDocument document = load(pdfFile)) {
+            pageCount = document.getNumberOfPages();
+            if (pageCount <= PAGES_PER_RANGE) {
+                if (pageCount > 0) {
+                    consumer.accept(1, pageCount, stripPages(document, 1, pageCount));
+                }
+                return;
+            }
+        }
+
+        int rangeCount = (pageCount + PAGES_PER_RANGE - 1) / PAGES_PER_RANGE;
+        int workerCount = Math.min(MAX_WORKERS, rangeCount);
+        logger.debug("Extracting {} pages of {} in {} ranges on {} workers",
+                pageCount, pdfFile.getName(), rangeCount, workerCount);
+
+        // Ranges are scheduled only when the window has room, and the slice
+        // runs them in order, so the lowest range not yet emitted is always
+        // in progress and no pool thread ever waits for the consumer
+        TaskScheduler.Slice workers = TaskScheduler.getInstance().cpuSlice("pdf-extract " + pdfFile.getName(),
+                workerCount);
+        Queue<PDDocument> documents = new ConcurrentLinkedQueue<>();
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        @SuppressWarnings("unchecked")
+        CompletableFuture<String>[] ranges = new CompletableFuture[rangeCount];
+        int scheduled = 0;
+        try {
+            for (; scheduled < Math.min(RANGES_IN_FLIGHT, rangeCount); scheduled++) {
+                ranges[scheduled] = extractRange(workers, pdfFile, pageCount, scheduled, documents, cancelled);
+            }
+
+            for (int i = 0; i < rangeCount; i++) {
+                String text = awaitRange(ranges[i]);
+                ranges[i] = null;
+                if (scheduled < rangeCount) {
+                    ranges[scheduled] = extractRange(workers, pdfFile, pageCount, scheduled, documents, cancelled);
+                    scheduled++;
+                }
+
+                int firstPage = i * PAGES_PER_RANGE + 1;
+                consumer.accept(firstPage, Math.min(pageCount, firstPage + PAGES_PER_RANGE - 1), text);
+            }
+        } finally {
+            cancelled.set(true);
+            closeDocuments(documents);
+        }
+    }
+
+    /**
+     * Strip one range on the slice. PDDocument is not thread-safe, so a
+     * range borrows an idle document or loads one; at most one document
+     * exists per worker.
+     */
+    private static CompletableFuture<String> extractRange(TaskScheduler.Slice workers, File pdfFile,
+            int pageCount, int range, Queue<PDDocument> documents, AtomicBoolean cancelled) {
+        int firstPage = range * PAGES_PER_RANGE + 1;
+        int lastPage = Math.min(pageCount, firstPage + PAGES_PER_RANGE - 1);
+        return workers.supply(() -> {
+            if (cancelled.get()) {
+                throw new CancellationException("PDF extraction cancelled");
+            }
+            PDDocument document = documents.poll();
+            if (document == null) {
+                document = load(pdfFile);
+            }
+            try {
+                return stripPages(document, firstPage, lastPage);
+            } finally {
+                // Returned before checking, so either this range or the
+                // extraction closes the document once it is cancelled
+                documents.add(document);
+                if (cancelled.get()) {
+                    closeDocuments(documents);
+                }
+            }
+        });
+    }
+
+    private static void closeDocuments(Queue<PDDocument> documents) {
+        PDDocument document;
+        while ((document = documents.poll()) != null) {
+            try {
+                document.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close PDF document: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static String awaitRange(CompletableFuture<String> range) throws IOException {
+        try {
+            return range.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting PDF text", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to extract PDF text", e.getCause());
+        }
+    }
+
+    private static String stripPages(PDDocument document, int firstPage, int lastPage) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(firstPage);
+        stripper.setEndPage(lastPage);
+        stripper.setPageEnd(stripper.getPageEnd() + PAGE_BREAK);
+        return stripper.getText(document);
+    }
+
+    /**
+     * Load a document with its object graph buffered in a temp file rather
+     * than on the heap
+     */
+    private static PDDocument load(File pdfFile) throws IOException {
+        return PDDocument.load(pdfFile, MemoryUsageSetting.setupTempFileOnly());
+    }
+}
@@ -0,0 +1,215 @@
+package dev.assignment.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dev.assignment.util.SegmentMetadata;
+import dev.assignment.util.TokenCounter;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+
+/**
+ * Turns retrieved segments into the context block of a prompt. Segments of
+ * the same file that overlap or follow each other are merged into one
+ * passage, so the overlap between neighbouring chunks is sent once.
+ * Passages are packed best first into a token budget, then written grouped
+ * by file and in document order.
+ */
+public class PromptAssembler {
+
+    /** Longest chunk overlap looked for when segments have no offsets */
+    private static final int MAX_TEXT_OVERLAP = 4096;
+
+    /**
+     * A contiguous span of one file made of one or more retrieved segments
+     *
+     * @param start character offset in the extracted text, or -1 if unknown
+     * @param index position of the first segment in the file, or -1
+     * @param score best relevance score of its segments
+     */
+    public record Passage(String fileName, String text, int start, int end, int index, int lastIndex,
+            double score) {
+    }
+
+    /**
+     * The packed context and the passages it contains, in prompt order
+     */
+    public record Context(String text, List<Passage> passages, int tokens, int mergedSegments,
+            int droppedPassages) {
+
+        public boolean isEmpty() {
+            return passages.isEmpty();
+        }
+    }
+
+    private final int tokenBudget;
+    private final String model;
+
+    /**
+     * @param tokenBudget most tokens of context, counted for the chat model
+     */
+    public PromptAssembler(int tokenBudget, String model) {
+        this.tokenBudget = tokenBudget;
+        this.model = model;
+    }
+
+    /**
+     * Build the context for a prompt from matches ranked by relevance
+     */
+    public Context assemble(List<EmbeddingMatch<TextSegment>> matches) {
+        List<Passage> passages = merge(matches);
+        int mergedSegments = matches.size() - passages.size();
+
+        // Pack the most relevant passages first; the best one is cut to fit
+        // rather than dropped, so there is always some context
+        List<Passage> ranked = new ArrayList<>(passages);
+        ranked.sort(Comparator.comparingDouble(Passage::score).reversed());
+        List<Passage> packed = new ArrayList<>();
+        int tokens = 0;
+        for (Passage passage : ranked) {
+            int passageTokens = TokenCounter.count(passage.text(), model);
+            if (tokens + passageTokens <= tokenBudget) {
+                packed.add(passage);
+                tokens += passageTokens;
+            } else if (packed.isEmpty() && tokenBudget > 0) {
+                Passage cut = truncate(passage, tokenBudget);
+                packed.add(cut);
+                tokens += TokenCounter.count(cut.text(), model);
+            }
+        }
+
+        Map<String, List<Passage>> byFile = new LinkedHashMap<>();
+        for (Passage passage : packed) {
+            byFile.computeIfAbsent(passage.fileName(), key -> new ArrayList<>()).add(passage);
+        }
+
+        StringBuilder text = new StringBuilder();
+        List<Passage> ordered = new ArrayList<>(packed.size());
+        for (Map.Entry<String, List<Passage>> file : byFile.entrySet()) {
+            List<Passage> filePassages = file.getValue();
+            filePassages.sort(Comparator.comparingInt(PromptAssembler::position));
+            if (file.getKey() != null) {
+                text.append("[").append(file.getKey()).append("]\n");
+            }
+            for (Passage passage : filePassages) {
+                text.append(passage.text()).append("\n\n");
+                ordered.add(passage);
+            }
+        }
+
+        return new Context(text.toString(), ordered, tokens, mergedSegments, passages.size() - packed.size());
+    }
+
+    /**
+     * Merge the segments of each file that overlap or are adjacent
+     */
+    static List<Passage> merge(List<EmbeddingMatch<TextSegment>> matches) {
+        Map<String, List<Passage>> byFile = new LinkedHashMap<>();
+        List<Passage> passages = new ArrayList<>();
+        for (EmbeddingMatch<TextSegment> match : matches) {
+            TextSegment segment = match.embedded();
+            String fileName = SegmentMetadata.getFileName(segment);
+            int index = SegmentMetadata.getInt(segment, SegmentMetadata.INDEX, -1);
+            int start = SegmentMetadata.getInt(segment, SegmentMetadata.START_OFFSET, -1);
+            int end = SegmentMetadata.getInt(segment, SegmentMetadata.END_OFFSET, -1);
+            if (start < 0 || end - start != segment.text().length()) {
+                start = -1;
+                end = -1;
+            }
+            Passage passage = new Passage(fileName, segment.text(), start, end, index, index, match.score());
+            if (fileName == null) {
+                passages.add(passage);
+            } else {
+                byFile.computeIfAbsent(fileName, key -> new ArrayList<>()).add(passage);
+            }
+        }
+
+        for (List<Passage> filePassages : byFile.values()) {
+            filePassages.sort(Comparator.comparingInt(PromptAssembler::position));
+            Passage current = null;
+            for (Passage next : filePassages) {
+                Passage merged = current != null ? join(current, next) : null;
+                if (merged != null) {
+                    current = merged;
+                } else {
+                    if (current != null) {
+                        passages.add(current);
+                    }
+                    current = next;
+                }
+            }
+            if (current != null) {
+                passages.add(current);
+            }
+        }
+        return passages;
+    }
+
+    /**
+     * Join two passages of a file in document order, or return null if
+     * there is a gap between them
+     */
+    private static Passage join(Passage first, Passage second) {
+        double score = Math.max(first.score(), second.score());
+        int lastIndex = Math.max(first.lastIndex(), second.lastIndex());
+
+        if (first.start() >= 0 && second.start() >= 0) {
+            if (second.start() > first.end()) {
+                // Neighbouring chunks are only separated by trimmed whitespace
+                if (first.lastIndex() < 0 || second.index() != first.lastIndex() + 1) {
+                    return null;
+                }
+                return new Passage(first.fileName(), first.text() + "\n" + second.text(), first.start(),
+                        second.end(), first.index(), lastIndex, score);
+            }
+            if (second.end() <= first.end()) {
+                return new Passage(first.fileName(), first.text(), first.start(), first.end(), first.index(),
+                        lastIndex, score);
+            }
+            String text = first.text() + second.text().substring(first.end() - second.start());
+            return new Passage(first.fileName(), text, first.start(), second.end(), first.index(), lastIndex,
+                    score);
+        }
+
+        // Without offsets, only neighbouring chunks are joined, dropping the
+        // text they share
+        if (first.lastIndex() < 0 || second.index() != first.lastIndex() + 1) {
+            return null;
+        }
+        int overlap = overlap(first.text(), second.text());
+        String separator = overlap == 0 ? "\n" : "";
+        return new Passage(first.fileName(), first.text() + separator + second.text().substring(overlap), -1, -1,
+                first.index(), lastIndex, score);
+    }
+
+    /**
+     * Length of the longest suffix of {@code first} that is a prefix of
+     * {@code second}
+     */
+    static int overlap(String first, String second) {
+        int max = Math.min(MAX_TEXT_OVERLAP, Math.min(first.length(), second.length()));
+        for (int length = max; length > 0; length--) {
+            if (first.regionMatches(first.length() - length, second, 0, length)) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    private static int position(Passage passage) {
+        return passage.start() >= 0 ? passage.start() : passage.index();
+    }
+
+    /**
+     * Cut a passage to the given number of tokens
+     */
+    private Passage truncate(Passage passage, int tokens) {
+        String text = TokenCounter.truncate(passage.text(), tokens, model);
+        return new Passage(passage.fileName(), text, passage.start(),
+                passage.start() >= 0 ? passage.start() + text.length() : -1, passage.index(), passage.lastIndex(),
+                passage.score());
+    }
+}
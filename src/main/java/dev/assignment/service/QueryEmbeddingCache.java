@@ -0,0 +1,51 @@
+package dev.assignment.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import dev.langchain4j.data.embedding.Embedding;
+
+/**
+ * Least-recently-used cache of query embeddings for one session. Keys are
+ * contextualized queries with case, whitespace and trailing punctuation
+ * normalized, so "Tell me more." and "tell me more" share an entry.
+ */
+class QueryEmbeddingCache {
+
+    private final Map<String, Embedding> entries;
+
+    QueryEmbeddingCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Embedding> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized Embedding get(String query) {
+        return entries.get(key(query));
+    }
+
+    synchronized boolean contains(String query) {
+        return entries.containsKey(key(query));
+    }
+
+    synchronized void put(String query, Embedding embedding) {
+        entries.put(key(query), embedding);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    static String key(String query) {
+        String key = query.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").strip();
+        int end = key.length();
+        while (end > 0 && "?!. ".indexOf(key.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return key.substring(0, end);
+    }
+}
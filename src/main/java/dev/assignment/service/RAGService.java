@@ -3,16 +3,30 @@ package dev.assignment.service;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import dev.assignment.metrics.Counter;
+import dev.assignment.metrics.Metrics;
+import dev.assignment.model.ChunkingConfig;
+import dev.assignment.model.EmbeddingConfig;
+import dev.assignment.model.MessageSource;
 import dev.assignment.model.QueryResponse;
+import dev.assignment.model.RetrievalConfig;
+import dev.assignment.model.Session;
+import dev.assignment.util.AppConfig;
+import dev.assignment.util.Constants;
+import dev.assignment.util.TokenCounter;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
@@ -21,17 +35,18 @@ import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.openai.OpenAiChatModel;
-import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
-import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
-import dev.langchain4j.store.embedding.EmbeddingSearchResult;
-import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 
 /**
- * Service for handling RAG (Retrieval Augmented Generation) operations
+ * Service for handling RAG (Retrieval Augmented Generation) operations.
+ * Queries of one instance must run one at a time since they share the
+ * session history; {@link SessionRuntimeManager} takes care of that when
+ * several sessions are served at once.
  */
 public class RAGService {
 
@@ -39,20 +54,25 @@ public class RAGService {
 
     private final String modelName;
     private final EmbeddingModel embeddingModel;
-    private final EmbeddingStore<TextSegment> embeddingStore;
-    private final OpenAiChatModel chatModel;
+    private final SnapshotEmbeddingStore embeddingStore;
+    private final OpenAiStreamingChatModel chatModel;
     private final List<ChatMessage> sessionHistory;
     private final Map<String, Long> indexedFiles;
     private final DocumentIndexingService indexingService;
+    private final EmbeddingStorage embeddingStorage;
     private final RerankingService rerankingService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final FollowUpPrefetcher followUpPrefetcher;
+    private final int maxContextTokens;
+    private volatile RetrievalConfig retrievalConfig;
 
     public interface ProgressCallback {
         void onProgress(String message, int current, int total);
     }
 
-    private static final int MAX_RESULTS = 5;
-    private static final double MIN_SCORE = 0.5;
-    private static final int MAX_RESULTS_BEFORE_RERANK = 15;
+    private static final int QUERY_EMBEDDING_CACHE_SIZE = 64;
+    private static final int RESERVED_COMPLETION_TOKENS = 4096;
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
 
     private final String sessionId;
 
@@ -60,22 +80,34 @@ public class RAGService {
         this.sessionId = sessionId;
         this.modelName = modelName;
         this.sessionHistory = new ArrayList<>();
-        this.indexedFiles = new HashMap<>();
+        this.indexedFiles = new ConcurrentHashMap<>();
         String apiKey = APIKeyService.getInstance().getApiKey();
 
-        this.embeddingModel = OpenAiEmbeddingModel.builder()
-                .apiKey(apiKey)
-                .modelName("text-embedding-3-small")
-                .build();
-        this.embeddingStore = new InMemoryEmbeddingStore<>();
-        this.chatModel = OpenAiChatModel.builder()
-                .apiKey(apiKey)
-                .modelName(modelName)
-                .temperature(1.0)
-                .build();
-
-        this.indexingService = new DocumentIndexingService(sessionId, embeddingModel, embeddingStore, indexedFiles);
+        DatabaseService databaseService = DatabaseService.getInstance();
+        Session session = databaseService != null ? databaseService.getSession(sessionId) : null;
+        ChunkingConfig chunkingConfig = session != null ? session.getChunkingConfig() : ChunkingConfig.DEFAULT;
+        EmbeddingConfig embeddingConfig = session != null ? session.getEmbeddingConfig() : EmbeddingConfig.DEFAULT;
+        this.retrievalConfig = session != null ? session.getRetrievalConfig() : RetrievalConfig.DEFAULT;
+
+        this.embeddingModel = EmbeddingModels.create(embeddingConfig, apiKey);
+        this.embeddingStore = new SnapshotEmbeddingStore(embeddingConfig.dimension());
+        // Without an API key a session using the local embedding model can
+        // still be indexed, but not queried
+        this.chatModel = APIKeyService.getInstance().hasApiKey()
+                ? OpenAiModels.streamingChatModel(apiKey)
+                        .modelName(modelName)
+                        .temperature(1.0)
+                        .build()
+                : null;
+
+        this.embeddingStorage = EmbeddingStorage.forSession(sessionId);
+        this.indexingService = new DocumentIndexingService(sessionId, embeddingModel, embeddingStore, indexedFiles,
+                embeddingStorage, chunkingConfig);
         this.rerankingService = new RerankingService();
+        this.queryEmbeddingCache = new QueryEmbeddingCache(QUERY_EMBEDDING_CACHE_SIZE);
+        this.followUpPrefetcher = new FollowUpPrefetcher(embeddingModel, queryEmbeddingCache,
+                AppConfig.getInt(AppConfig.PREFETCH_FOLLOW_UPS, 0));
+        this.maxContextTokens = AppConfig.getInt(AppConfig.MAX_CONTEXT_TOKENS, 4000);
 
         sessionHistory.add(SystemMessage.from(
                 "You are a helpful AI assistant. Use the provided context to answer questions accurately. " +
@@ -84,7 +116,36 @@ public class RAGService {
 
         loadSessionHistory();
 
-        EmbeddingCacheService.loadCache(sessionId, embeddingStore, indexedFiles);
+        embeddingStorage.load(embeddingStore, indexedFiles);
+    }
+
+    /**
+     * Drop every indexed segment so the next indexing pass starts from scratch,
+     * e.g. after the chunking settings changed
+     */
+    public void clearIndex() {
+        indexingService.clearIndex();
+    }
+
+    /**
+     * Use new retrieval settings from the next query on
+     */
+    public void setRetrievalConfig(RetrievalConfig retrievalConfig) {
+        this.retrievalConfig = retrievalConfig;
+    }
+
+    /**
+     * Check whether a file is part of the current index
+     */
+    public boolean isFileIndexed(String fileName) {
+        return indexedFiles.containsKey(fileName);
+    }
+
+    /**
+     * Rough heap footprint of the session's in-memory index
+     */
+    public long estimatedMemoryBytes() {
+        return embeddingStore.estimatedBytes();
     }
 
     /**
@@ -110,8 +171,18 @@ public class RAGService {
      */
     public void indexKnowledgebase(ResourceService resourceService, ProgressCallback progressCallback)
             throws IOException {
+        indexKnowledgebase(resourceService, progressCallback, () -> false);
+    }
+
+    /**
+     * Index all documents from the knowledgebase (incremental), stopping
+     * between files or embedding batches once cancelled
+     */
+    public void indexKnowledgebase(ResourceService resourceService, ProgressCallback progressCallback,
+            BooleanSupplier cancelled) throws IOException {
         indexingService.indexKnowledgebase(resourceService,
-                progressCallback != null ? (msg, curr, total) -> progressCallback.onProgress(msg, curr, total) : null);
+                progressCallback != null ? (msg, curr, total) -> progressCallback.onProgress(msg, curr, total) : null,
+                cancelled);
     }
 
     /**
@@ -121,6 +192,22 @@ public class RAGService {
         indexingService.indexSingleFile(file);
     }
 
+    /**
+     * Index a file without saving the index, for bulk imports that index
+     * files concurrently and call {@link #commitIndex()} once
+     */
+    public void indexFile(File file, BooleanSupplier cancelled) throws IOException {
+        indexingService.indexFile(file, cancelled);
+    }
+
+    /**
+     * Persist the index after files were indexed with
+     * {@link #indexFile(File, BooleanSupplier)}
+     */
+    public void commitIndex() {
+        indexingService.commit();
+    }
+
     /**
      * Remove a file from the index when deleted from knowledgebase
      */
@@ -148,73 +235,187 @@ public class RAGService {
      * User: "How about his brother?"
      * AI: "Melvin Chia's brother is 28 years old."
      */
-    public dev.assignment.model.QueryResponse query(String userMessage) {
-        String contextualizedQuery = buildContextualizedQuery(userMessage);
+    public QueryResponse query(String userMessage) {
+        return query(userMessage, null);
+    }
 
-        Embedding queryEmbedding = embeddingModel.embed(contextualizedQuery).content();
+    /**
+     * Query the RAG system, passing each part of the answer to
+     * {@code onPartialResponse} as it is streamed. Every stage is timed in
+     * {@link Metrics}.
+     *
+     * @param onPartialResponse receives answer text as it arrives, or null
+     */
+    public QueryResponse query(String userMessage, Consumer<String> onPartialResponse) {
+        if (chatModel == null) {
+            throw new IllegalStateException("An OpenAI API key is required to query the knowledge base");
+        }
+        long queryStart = System.nanoTime();
+        String contextualizedQuery = buildContextualizedQuery(userMessage);
+        long stageStart = Metrics.QUERY_CONTEXTUALIZE.recordSince(queryStart);
 
-        EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
-                .queryEmbedding(queryEmbedding)
-                .maxResults(MAX_RESULTS_BEFORE_RERANK)
-                .minScore(MIN_SCORE)
-                .build();
+        Embedding queryEmbedding = queryEmbeddingCache.get(contextualizedQuery);
+        if (queryEmbedding != null) {
+            Metrics.QUERY_EMBEDDING_CACHE_HITS.increment(1);
+        } else {
+            Response<Embedding> embeddingResponse = embeddingModel.embed(contextualizedQuery);
+            queryEmbedding = embeddingResponse.content();
+            queryEmbeddingCache.put(contextualizedQuery, queryEmbedding);
+            countInputTokens(Metrics.QUERY_EMBEDDING_TOKENS, embeddingResponse.tokenUsage());
+        }
+        stageStart = Metrics.QUERY_EMBED.recordSince(stageStart);
 
-        EmbeddingSearchResult<TextSegment> searchResult = embeddingStore.search(searchRequest);
-        List<EmbeddingMatch<TextSegment>> relevantSegments = searchResult.matches();
-        logger.debug("Retrieval found {} segments", relevantSegments.size());
+        RetrievalConfig retrieval = retrievalConfig;
+        AdaptiveRetriever.Candidates candidates = new AdaptiveRetriever(retrieval).retrieve(embeddingStore,
+                queryEmbedding);
+        List<EmbeddingMatch<TextSegment>> relevantSegments = candidates.matches();
+        logger.debug("Retrieval found {} segments ({})", relevantSegments.size(), candidates.path());
+        stageStart = Metrics.QUERY_SEARCH.recordSince(stageStart);
 
         List<EmbeddingMatch<TextSegment>> rerankedSegments = rerankingService.rerank(contextualizedQuery,
                 relevantSegments);
 
-        if (rerankedSegments.size() > MAX_RESULTS) {
-            rerankedSegments = rerankedSegments.subList(0, MAX_RESULTS);
-        }
-
-        Set<String> sourceFiles = new HashSet<>();
-        for (EmbeddingMatch<TextSegment> match : rerankedSegments) {
-            TextSegment segment = match.embedded();
-            if (segment.metadata() != null && segment.metadata().containsKey("fileName")) {
-                String fileName = segment.metadata().getString("fileName");
-                sourceFiles.add(fileName);
-            }
-        }
-        logger.debug("Query matched {} segments from documents: {}", rerankedSegments.size(), sourceFiles);
-
-        StringBuilder context = new StringBuilder();
-        if (!rerankedSegments.isEmpty()) {
-            context.append("Relevant context:\n\n");
-            for (EmbeddingMatch<TextSegment> match : rerankedSegments) {
-                context.append(match.embedded().text()).append("\n\n");
-            }
+        if (rerankedSegments.size() > retrieval.maxResults()) {
+            rerankedSegments = rerankedSegments.subList(0, retrieval.maxResults());
         }
+        stageStart = Metrics.QUERY_RERANK.recordSince(stageStart);
+
+        // Leave room for the answer, the system message and the question;
+        // the history gets whatever the context does not use
+        int promptBudget = Constants.getContextWindow(modelName) - RESERVED_COMPLETION_TOKENS;
+        int contextBudget = Math.min(maxContextTokens,
+                promptBudget - messageTokens(sessionHistory.get(0)) - TokenCounter.count(userMessage, modelName));
+        PromptAssembler.Context context = new PromptAssembler(contextBudget, modelName).assemble(rerankedSegments);
+        Metrics.QUERY_CONTEXT_TOKENS.increment(context.tokens());
+        Metrics.QUERY_MERGED_SEGMENTS.increment(context.mergedSegments());
+
+        Map<String, Double> sourceFiles = new LinkedHashMap<>();
+        context.passages().stream()
+                .filter(passage -> passage.fileName() != null)
+                .sorted(Comparator.comparingDouble(PromptAssembler.Passage::score).reversed())
+                .forEach(passage -> sourceFiles.merge(passage.fileName(), passage.score(), Math::max));
+        logger.debug("Query matched {} segments in {} passages ({} tokens, {} dropped) from documents: {}",
+                rerankedSegments.size(), context.passages().size(), context.tokens(), context.droppedPassages(),
+                sourceFiles.keySet());
 
         String messageWithContext;
-        if (context.length() > 0) {
-            messageWithContext = context + "\nUser question: " + userMessage;
+        if (!context.isEmpty()) {
+            messageWithContext = "Relevant context:\n\n" + context.text() + "\nUser question: " + userMessage;
         } else {
             messageWithContext = userMessage;
         }
 
         sessionHistory.add(UserMessage.from(userMessage));
-        ;
 
         logger.debug("Sending message to chat model: {} with {} messages in history", modelName,
                 sessionHistory.size());
 
         List<ChatMessage> messagesForRequest = new ArrayList<>(sessionHistory);
         messagesForRequest.set(messagesForRequest.size() - 1, UserMessage.from(messageWithContext));
+        fitToBudget(messagesForRequest, promptBudget);
 
         ChatRequest chatRequest = ChatRequest.builder()
                 .messages(messagesForRequest)
                 .build();
-
-        ChatResponse chatResponse = chatModel.chat(chatRequest);
+        stageStart = Metrics.QUERY_PROMPT_BUILD.recordSince(stageStart);
+
+        ChatResponse chatResponse = streamChat(chatRequest, onPartialResponse, stageStart);
+        Metrics.QUERY_CHAT.recordSince(stageStart);
+        TokenUsage tokenUsage = chatResponse.tokenUsage();
+        countInputTokens(Metrics.QUERY_PROMPT_TOKENS, tokenUsage);
+        if (tokenUsage != null && tokenUsage.outputTokenCount() != null) {
+            Metrics.QUERY_COMPLETION_TOKENS.increment(tokenUsage.outputTokenCount());
+        }
         AiMessage aiMessage = chatResponse.aiMessage();
         String responseText = aiMessage.text();
 
         sessionHistory.add(aiMessage);
 
-        return new QueryResponse(responseText, new java.util.ArrayList<>(sourceFiles));
+        List<TextSegment> retrieved = rerankedSegments.stream().map(EmbeddingMatch::embedded).toList();
+        followUpPrefetcher.prefetch(responseText, retrieved, this::buildContextualizedQuery);
+
+        List<MessageSource> sources = new ArrayList<>();
+        sourceFiles.forEach((fileName, score) -> sources.add(new MessageSource(fileName, score)));
+
+        Metrics.QUERY_TOTAL.recordSince(queryStart);
+        return new QueryResponse(responseText, sources);
+    }
+
+    /**
+     * Send a chat request with streaming and wait for the complete answer,
+     * recording the time to the first token
+     */
+    private ChatResponse streamChat(ChatRequest chatRequest, Consumer<String> onPartialResponse, long startNanos) {
+        CompletableFuture<ChatResponse> response = new CompletableFuture<>();
+        chatModel.chat(chatRequest, new StreamingChatResponseHandler() {
+            private boolean firstToken = true;
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                if (firstToken) {
+                    firstToken = false;
+                    Metrics.QUERY_FIRST_TOKEN.recordSince(startNanos);
+                }
+                if (onPartialResponse != null) {
+                    onPartialResponse.accept(partialResponse);
+                }
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                response.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                response.completeExceptionally(error);
+            }
+        });
+
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Chat request failed", e.getCause());
+        }
+    }
+
+    /**
+     * Drop the oldest turns after the system message until the request fits
+     * the prompt budget. The system message and the current question are
+     * always kept.
+     */
+    private void fitToBudget(List<ChatMessage> messages, int promptBudget) {
+        int tokens = 0;
+        for (ChatMessage message : messages) {
+            tokens += messageTokens(message);
+        }
+        int dropped = 0;
+        while (tokens > promptBudget && messages.size() > 2) {
+            tokens -= messageTokens(messages.remove(1));
+            dropped++;
+        }
+        if (dropped > 0) {
+            logger.info("Left {} oldest history messages out to fit the context window", dropped);
+        }
+    }
+
+    private int messageTokens(ChatMessage message) {
+        String text = switch (message) {
+            case SystemMessage system -> system.text();
+            case UserMessage user -> user.hasSingleText() ? user.singleText() : "";
+            case AiMessage ai -> ai.text();
+            default -> "";
+        };
+        return MESSAGE_OVERHEAD_TOKENS + (text != null ? TokenCounter.count(text, modelName) : 0);
+    }
+
+    private static void countInputTokens(Counter counter, TokenUsage tokenUsage) {
+        if (tokenUsage != null && tokenUsage.inputTokenCount() != null) {
+            counter.increment(tokenUsage.inputTokenCount());
+        }
     }
 
     /**
@@ -222,6 +423,7 @@ public class RAGService {
      */
     public void clearHistory() {
         sessionHistory.clear();
+        queryEmbeddingCache.clear();
         sessionHistory.add(SystemMessage.from(
                 "You are a helpful AI assistant. Use the provided context to answer questions accurately. " +
                         "If the context doesn't contain relevant information, say so politely." +
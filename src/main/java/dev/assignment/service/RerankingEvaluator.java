@@ -0,0 +1,219 @@
+package dev.assignment.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import dev.assignment.model.ChunkingConfig;
+import dev.assignment.model.RetrievalConfig;
+import dev.assignment.service.chunking.Chunkers;
+import dev.assignment.service.chunking.TextChunk;
+import dev.assignment.util.AppConfig;
+import dev.assignment.util.SegmentMetadata;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * Command-line harness comparing the embedding order, the hybrid lexical
+ * re-ranking and the cross-encoder on a set of documents. For every ranking
+ * it reports the share of questions whose expected file is ranked first or
+ * among the kept results, the mean reciprocal rank of the expected file,
+ * and the median and 95th percentile re-ranking latency.
+ *
+ * <pre>
+ * RerankingEvaluator &lt;documents dir&gt; &lt;questions.tsv&gt; [candidates]
+ * </pre>
+ *
+ * The questions file has the format read by the chunking evaluator:
+ * {@code question<TAB>expected file name}. The cross-encoder is the one set
+ * with RERANKER_MODEL and is left out if none is set; it is timed without
+ * its latency budget.
+ */
+public class RerankingEvaluator {
+
+    private static final int EMBEDDING_BATCH_SIZE = 32;
+    private static final int TOP_K = RetrievalConfig.DEFAULT.maxResults();
+
+    private record Question(String text, String expectedFile) {
+    }
+
+    private static class Report {
+        final String ranking;
+        final List<Long> latencies = new ArrayList<>();
+        int first;
+        int topK;
+        double reciprocalRanks;
+
+        Report(String ranking) {
+            this.ranking = ranking;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RerankingEvaluator <documents dir> <questions.tsv> [candidates]");
+            System.exit(1);
+        }
+
+        Path documentsDir = Path.of(args[0]);
+        List<Question> questions = readQuestions(Path.of(args[1]));
+        int candidates = args.length >= 3 ? Integer.parseInt(args[2]) : RetrievalConfig.DEFAULT.candidates();
+
+        EmbeddingModel embeddingModel = OpenAiModels.embeddingModel(AppConfig.getString("OPENAI_API_KEY", null))
+                .modelName("text-embedding-3-small")
+                .build();
+        InMemoryEmbeddingStore<TextSegment> store = index(documentsDir, embeddingModel);
+        List<TextSegment> questionSegments = questions.stream().map(question -> TextSegment.from(question.text()))
+                .toList();
+        List<Embedding> questionEmbeddings = questionSegments.isEmpty() ? List.of()
+                : embeddingModel.embedAll(questionSegments).content();
+
+        RerankingService rerankingService = new RerankingService();
+        CrossEncoderReranker crossEncoder = CrossEncoderReranker.fromConfig();
+
+        Map<String, BiFunction<String, List<EmbeddingMatch<TextSegment>>, List<EmbeddingMatch<TextSegment>>>> rankings =
+                new LinkedHashMap<>();
+        rankings.put("embedding", (query, matches) -> matches);
+        rankings.put("hybrid", rerankingService::rerankHybrid);
+        if (crossEncoder != null) {
+            rankings.put("cross-encoder", (query, matches) -> byScore(matches,
+                    crossEncoder.score(query, matches.stream().map(EmbeddingMatch::embedded).toList())));
+        } else {
+            System.out.println("RERANKER_MODEL is not set, skipping the cross-encoder");
+        }
+
+        List<Report> reports = new ArrayList<>();
+        for (String ranking : rankings.keySet()) {
+            reports.add(new Report(ranking));
+        }
+        for (int i = 0; i < questions.size(); i++) {
+            List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                    .queryEmbedding(questionEmbeddings.get(i))
+                    .maxResults(candidates)
+                    .build())
+                    .matches();
+            int r = 0;
+            for (var ranking : rankings.values()) {
+                long start = System.nanoTime();
+                List<EmbeddingMatch<TextSegment>> ranked = ranking.apply(questions.get(i).text(), matches);
+                Report report = reports.get(r++);
+                report.latencies.add(System.nanoTime() - start);
+                int rank = rankOf(ranked, questions.get(i).expectedFile());
+                if (rank == 1) {
+                    report.first++;
+                }
+                if (rank > 0 && rank <= TOP_K) {
+                    report.topK++;
+                }
+                report.reciprocalRanks += rank > 0 ? 1.0 / rank : 0;
+            }
+        }
+
+        System.out.printf("%d questions, %d candidates each%n%n", questions.size(), candidates);
+        System.out.printf("%-14s %8s %8s %8s %10s %10s%n", "ranking", "hit@1", "hit@" + TOP_K, "MRR", "p50 ms",
+                "p95 ms");
+        int total = Math.max(1, questions.size());
+        for (Report report : reports) {
+            System.out.printf("%-14s %7.1f%% %7.1f%% %8.3f %10.2f %10.2f%n", report.ranking,
+                    report.first * 100.0 / total, report.topK * 100.0 / total, report.reciprocalRanks / total,
+                    percentile(report.latencies, 50) / 1e6, percentile(report.latencies, 95) / 1e6);
+        }
+    }
+
+    /**
+     * Chunk the documents with the default settings and embed their segments
+     */
+    private static InMemoryEmbeddingStore<TextSegment> index(Path documentsDir, EmbeddingModel embeddingModel)
+            throws IOException {
+        List<File> documents = new ArrayList<>();
+        try (var files = Files.list(documentsDir)) {
+            files.filter(Files::isRegularFile).map(Path::toFile).sorted().forEach(documents::add);
+        }
+
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        List<TextSegment> batch = new ArrayList<>(EMBEDDING_BATCH_SIZE);
+        for (File document : documents) {
+            try (Reader reader = ResourceService.openContentReader(document)) {
+                Iterator<TextChunk> chunks = Chunkers.forFile(document.getName(), ChunkingConfig.DEFAULT)
+                        .split(reader);
+                while (chunks.hasNext()) {
+                    Metadata metadata = new Metadata();
+                    metadata.put(SegmentMetadata.FILE_NAME, document.getName());
+                    batch.add(TextSegment.from(chunks.next().text(), metadata));
+                    if (batch.size() == EMBEDDING_BATCH_SIZE) {
+                        embed(embeddingModel, store, batch);
+                    }
+                }
+            }
+        }
+        embed(embeddingModel, store, batch);
+        return store;
+    }
+
+    private static void embed(EmbeddingModel embeddingModel, InMemoryEmbeddingStore<TextSegment> store,
+            List<TextSegment> batch) {
+        if (!batch.isEmpty()) {
+            store.addAll(embeddingModel.embedAll(batch).content(), batch);
+            batch.clear();
+        }
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> byScore(List<EmbeddingMatch<TextSegment>> matches,
+            List<Double> scores) {
+        List<Integer> order = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingDouble((Integer i) -> scores.get(i)).reversed());
+        return order.stream().map(matches::get).toList();
+    }
+
+    /**
+     * 1-based rank of the first segment of the expected file, or 0 if none
+     * was retrieved
+     */
+    private static int rankOf(List<EmbeddingMatch<TextSegment>> ranked, String expectedFile) {
+        for (int i = 0; i < ranked.size(); i++) {
+            if (expectedFile.equals(SegmentMetadata.getFileName(ranked.get(i).embedded()))) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static long percentile(List<Long> values, double percentile) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = values.stream().sorted().toList();
+        return sorted.get((int) Math.ceil(percentile / 100 * sorted.size()) - 1);
+    }
+
+    private static List<Question> readQuestions(Path file) throws IOException {
+        List<Question> questions = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\t", 2);
+            if (parts.length == 2) {
+                questions.add(new Question(parts[0].trim(), parts[1].trim()));
+            }
+        }
+        return questions;
+    }
+}
@@ -6,30 +6,72 @@ import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import dev.assignment.metrics.Metrics;
+import dev.assignment.metrics.RerankEvent;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 
 /**
  * Service for re-ranking search results to improve relevance
- * Implements hybrid scoring combining semantic and lexical matching
+ * Implements hybrid scoring combining semantic and lexical matching, or uses
+ * a cross-encoder model when one is configured
  */
 public class RerankingService {
 
     private static final Logger logger = LogManager.getLogger(RerankingService.class);
 
+    /**
+     * The cross-encoder shared by all sessions, loaded on first use
+     */
+    private static class CrossEncoderHolder {
+        static final CrossEncoderReranker INSTANCE = CrossEncoderReranker.fromConfig();
+    }
+
+    /**
+     * Re-rank results with the cross-encoder if one is configured and within
+     * its latency budget, otherwise with hybrid scoring
+     *
+     * @param query   The user query
+     * @param results The initial search results from embedding store
+     * @return Re-ranked list of results sorted by relevance
+     */
+    public List<EmbeddingMatch<TextSegment>> rerank(String query, List<EmbeddingMatch<TextSegment>> results) {
+        if (results.isEmpty()) {
+            return results;
+        }
+
+        CrossEncoderReranker crossEncoder = CrossEncoderHolder.INSTANCE;
+        if (crossEncoder != null) {
+            RerankEvent event = new RerankEvent();
+            event.begin();
+            List<EmbeddingMatch<TextSegment>> reranked = crossEncoder.rerank(query, results);
+            event.end();
+            if (reranked != null) {
+                Metrics.RERANK_CROSS_ENCODER.increment(1);
+                commit(event, query, results.size(), true);
+                logger.debug("Re-ranked {} results with the cross-encoder", reranked.size());
+                return reranked;
+            }
+            Metrics.RERANK_FALLBACKS.increment(1);
+        }
+        return rerankHybrid(query, results);
+    }
+
     /**
      * Re-rank results using hybrid scoring approach
      * Combines embedding similarity, term frequency, position, and exact matching
-     * 
+     *
      * @param query   The user query
      * @param results The initial search results from embedding store
      * @return Re-ranked list of results sorted by relevance
      */
-    public List<EmbeddingMatch<TextSegment>> rerank(String query, List<EmbeddingMatch<TextSegment>> results) {
+    public List<EmbeddingMatch<TextSegment>> rerankHybrid(String query, List<EmbeddingMatch<TextSegment>> results) {
         if (results.isEmpty()) {
             return results;
         }
 
+        RerankEvent event = new RerankEvent();
+        event.begin();
         String[] queryTokens = tokenize(query.toLowerCase());
 
         // Calculate re-ranking scores
@@ -49,10 +91,22 @@ public class RerankingService {
             reranked.add(scored.match);
         }
 
+        event.end();
+        commit(event, query, results.size(), false);
+
         logger.debug("Re-ranked {} results", reranked.size());
         return reranked;
     }
 
+    private static void commit(RerankEvent event, String query, int candidates, boolean crossEncoder) {
+        if (event.shouldCommit()) {
+            event.candidates = candidates;
+            event.queryLength = query.length();
+            event.crossEncoder = crossEncoder;
+            event.commit();
+        }
+    }
+
     /**
      * Calculate re-ranking score based on multiple signals:
      * - Original embedding similarity score (60% weight)
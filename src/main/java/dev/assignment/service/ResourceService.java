@@ -2,18 +2,25 @@ package dev.assignment.service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
 
+import dev.assignment.model.DocumentStats;
 import dev.assignment.model.Resource;
 import javafx.stage.FileChooser;
 
@@ -23,8 +30,18 @@ import javafx.stage.FileChooser;
 public class ResourceService {
 
     private static final String STORAGE_DIR = "knowledgebase_storage";
+    private static final String IMPORT_DIR = ".import";
+    private static final long COPY_SLICE_BYTES = 8L * 1024 * 1024;
+    private static final Object PUBLISH_LOCK = new Object();
     private final String sessionId;
     private Path storagePath;
+    private final Map<String, CompletableFuture<DocumentStats>> pendingStats = new ConcurrentHashMap<>();
+
+    /**
+     * Statistics are filled in one file at a time so a long list does not
+     * start hundreds of extractions at once
+     */
+    private static final TaskScheduler.Slice STATS_SLICE = TaskScheduler.getInstance().ioSlice("document-stats", 1);
 
     /**
      * Progress callback interface for import operations
@@ -59,6 +76,13 @@ public class ResourceService {
         Files.createDirectories(storagePath);
     }
 
+    /**
+     * Get the session this service manages resources for
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
     /**
      * Get the storage directory path for this session
      */
@@ -76,9 +100,20 @@ public class ResourceService {
         if (storageDir.exists() && storageDir.isDirectory()) {
             File[] files = storageDir.listFiles();
             if (files != null) {
+                // Statistics are loaded in one query; stale rows are ignored and
+                // recomputed on demand
+                DatabaseService databaseService = DatabaseService.getInstance();
+                Map<String, DocumentStats> stats = databaseService != null
+                        ? databaseService.getDocumentStats(sessionId)
+                        : Map.of();
                 for (File file : files) {
                     if (file.isFile()) {
-                        resources.add(new Resource(file.getName(), file));
+                        Resource resource = new Resource(file.getName(), file);
+                        DocumentStats fileStats = stats.get(file.getName());
+                        if (fileStats != null && fileStats.matches(file)) {
+                            resource.setStats(fileStats);
+                        }
+                        resources.add(resource);
                     }
                 }
             }
@@ -86,6 +121,40 @@ public class ResourceService {
         return resources;
     }
 
+    /**
+     * Compute and persist the statistics of a resource in the background.
+     * Concurrent requests for the same file share one computation.
+     */
+    public CompletableFuture<DocumentStats> loadStatsAsync(Resource resource, boolean indexed) {
+        String fileName = resource.getFileName();
+        CompletableFuture<DocumentStats> pending = pendingStats.computeIfAbsent(fileName, key -> STATS_SLICE
+                .supply(() -> {
+                    DocumentStats stats = describe(resource.getFile(),
+                            readFileContent(resource.getFile()).length(), -1, indexed);
+                    DatabaseService databaseService = DatabaseService.getInstance();
+                    if (databaseService != null) {
+                        databaseService.saveDocumentStats(sessionId, stats);
+                    }
+                    return stats;
+                }));
+        // Attached outside computeIfAbsent, since a task rejected during
+        // shutdown completes before it returns
+        pending.whenComplete((stats, error) -> pendingStats.remove(fileName, pending));
+        return pending;
+    }
+
+    /**
+     * Build the statistics of a file whose text has already been read
+     */
+    public static DocumentStats describe(File file, int characterCount, int segmentCount, boolean indexed)
+            throws IOException {
+        int pageCount = getFileExtension(file.getName()).equalsIgnoreCase(".pdf")
+                ? PdfTextExtractor.countPages(file)
+                : -1;
+        return new DocumentStats(file.getName(), file.length(), file.lastModified(), characterCount,
+                pageCount, segmentCount, indexed);
+    }
+
     /**
      * Get a specific resource by filename
      */
@@ -111,7 +180,8 @@ public class ResourceService {
     public int getResourceCount() {
         File storageDir = getStoragePath().toFile();
         if (storageDir.exists() && storageDir.isDirectory()) {
-            File[] files = storageDir.listFiles();
+            // Only count regular files, the text cache lives in a sub-folder
+            File[] files = storageDir.listFiles(File::isFile);
             return files != null ? files.length : 0;
         }
         return 0;
@@ -186,18 +256,102 @@ public class ResourceService {
         Path destinationPath = getStoragePath().resolve(fileName);
 
         if (Files.exists(destinationPath)) {
-            throw new IOException("File already exists: " + fileName);
+            throw alreadyExists(fileName);
         }
 
-        Files.copy(sourceFile.toPath(), destinationPath, StandardCopyOption.REPLACE_EXISTING);
+        // Without REPLACE_EXISTING the target is created exclusively, so a
+        // file added since the check is never overwritten
+        try {
+            Files.copy(sourceFile.toPath(), destinationPath);
+        } catch (FileAlreadyExistsException e) {
+            throw alreadyExists(fileName);
+        }
 
         return new Resource(fileName, destinationPath.toFile());
     }
 
+    /**
+     * Copy a file into the knowledgebase, checking for cancellation between
+     * slices. The copy is written to a staging folder and published once
+     * complete, so a cancelled or failed copy never shows up as a resource.
+     * Publishing never replaces a file, so of two concurrent copies with the
+     * same name exactly one succeeds.
+     *
+     * @throws FileAlreadyExistsException if the knowledgebase already has a
+     *                                    file of that name
+     * @throws CancellationException      if cancelled before the copy completed
+     */
+    public Resource copyResource(File sourceFile, BooleanSupplier cancelled) throws IOException {
+        String fileName = sourceFile.getName();
+        String fileExtension = getFileExtension(fileName).toLowerCase();
+
+        if (!resourceExtensionValid(fileExtension)) {
+            throw new IOException("Unsupported file format: " + fileExtension);
+        }
+
+        Path destinationPath = getStoragePath().resolve(fileName);
+        if (Files.exists(destinationPath)) {
+            throw alreadyExists(fileName);
+        }
+
+        Path stagingDir = Files.createDirectories(getStoragePath().resolve(IMPORT_DIR));
+        Path stagingPath = Files.createTempFile(stagingDir, fileName, ".part");
+        try {
+            try (FileChannel source = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+                    FileChannel target = FileChannel.open(stagingPath, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = source.size();
+                long position = 0;
+                while (position < size) {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("Import of " + fileName + " cancelled");
+                    }
+                    position += source.transferTo(position, Math.min(COPY_SLICE_BYTES, size - position), target);
+                }
+            }
+            publish(stagingPath, destinationPath);
+        } finally {
+            Files.deleteIfExists(stagingPath);
+        }
+
+        return new Resource(fileName, destinationPath.toFile());
+    }
+
+    /**
+     * Make a staged copy visible under its final name, failing if that name
+     * is taken. A rename would silently replace a file created since the
+     * exists check; a hard link is refused by the file system instead, and
+     * the staged name is removed by the caller.
+     */
+    private static void publish(Path stagingPath, Path destinationPath) throws IOException {
+        try {
+            Files.createLink(destinationPath, stagingPath);
+        } catch (FileAlreadyExistsException e) {
+            throw alreadyExists(destinationPath.getFileName().toString());
+        } catch (UnsupportedOperationException e) {
+            // No hard links on this file system: check and move under one lock
+            synchronized (PUBLISH_LOCK) {
+                if (Files.exists(destinationPath)) {
+                    throw alreadyExists(destinationPath.getFileName().toString());
+                }
+                Files.move(stagingPath, destinationPath);
+            }
+        }
+    }
+
+    private static FileAlreadyExistsException alreadyExists(String fileName) {
+        return new FileAlreadyExistsException(null, null, "File already exists: " + fileName);
+    }
+
     /**
      * Delete a resource
      */
     public boolean deleteResource(Resource resource) throws IOException {
+        ExtractedTextCache.invalidate(resource.getFile());
+        DatabaseService databaseService = DatabaseService.getInstance();
+        if (databaseService != null) {
+            databaseService.deleteDocumentStats(sessionId, resource.getFileName());
+        }
         return resource.delete();
     }
 
@@ -226,23 +380,34 @@ public class ResourceService {
     public static String readFileContent(File file) throws IOException {
         String fileExtension = getFileExtension(file.getName()).toLowerCase();
         if (fileExtension.equals(".pdf")) {
-            try (PDDocument document = PDDocument.load(file)) {
-                PDFTextStripper pdfStripper = new PDFTextStripper();
-                return pdfStripper.getText(document);
-            }
+            return readPdfContent(file);
         } else {
             return Files.readString(file.toPath());
         }
     }
     
     /**
-     * Extract text content from a PDF file
+     * Open a reader over the text content of a file without loading it as a
+     * whole. Text files are decoded from a memory mapping; PDFs are extracted
+     * page range by page range into the text cache and read back from it.
      */
-    private static String readPdfContent(File pdfFile) throws IOException {
-        try (PDDocument document = PDDocument.load(pdfFile)) {
-            PDFTextStripper pdfStripper = new PDFTextStripper();
-            return pdfStripper.getText(document);
+    public static Reader openContentReader(File file) throws IOException {
+        String fileExtension = getFileExtension(file.getName()).toLowerCase();
+        if (fileExtension.equals(".pdf")) {
+            return ExtractedTextCache.openReader(file, (pdfFile, out) -> PdfTextExtractor.extract(pdfFile,
+                    (firstPage, lastPage, text) -> out.write(text)));
+        } else {
+            return new MappedTextReader(file.toPath());
         }
     }
 
+    /**
+     * Extract text content from a PDF file, reusing previously extracted text
+     */
+    private static String readPdfContent(File pdfFile) throws IOException {
+        // Page breaks only matter to the chunker; show them as line breaks
+        return ExtractedTextCache.getText(pdfFile, PdfTextExtractor::extractText)
+                .replace(PdfTextExtractor.PAGE_BREAK, "\n");
+    }
+
 }
@@ -0,0 +1,400 @@
+package dev.assignment.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.metrics.Counter;
+import dev.assignment.metrics.MetricsRegistry;
+import dev.assignment.model.RetrievalConfig;
+import dev.assignment.model.Session;
+import dev.assignment.util.AppConfig;
+
+/**
+ * Keeps the services of many sessions loaded at once. Turns (queries) of one
+ * session run one at a time while different sessions run in parallel;
+ * knowledgebase jobs run on the session's exclusive lane of the
+ * {@link TaskScheduler}. Each session's index is capped in size, and indexes
+ * of sessions nobody uses are unloaded when idle for a while or when all
+ * loaded indexes together exceed the memory budget. An unloaded session is
+ * reloaded from its on-disk cache on next use.
+ */
+public class SessionRuntimeManager {
+
+    private static final Logger logger = LogManager.getLogger(SessionRuntimeManager.class);
+
+    private static final int MAX_WAITING_TURNS = 8;
+    private static final long TURN_TIMEOUT_SECONDS = 120;
+    private static final long EVICTION_INTERVAL_SECONDS = 60;
+    private static final long MB = 1024 * 1024;
+
+    private static final MetricsRegistry registry = MetricsRegistry.getInstance();
+    private static final Counter LOADS = registry.counter("rag_session_loads_total",
+            "Session indexes loaded from storage");
+    private static final Counter EVICTIONS = registry.counter("rag_session_evictions_total",
+            "Session indexes unloaded because they were idle or over the memory budget");
+
+    private static SessionRuntimeManager instance;
+
+    private final Map<String, SessionRuntime> runtimes = new ConcurrentHashMap<>();
+    private final long sessionLimitBytes;
+    private final long budgetBytes;
+    private final long idleNanos;
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * Work done during a session's turn
+     */
+    public interface Turn<T> {
+        T run(SessionRuntime runtime) throws Exception;
+    }
+
+    /**
+     * A job that changes a session's knowledgebase or index. Indexing should
+     * pass {@code cancelled} on, so it also stops at the memory limit.
+     */
+    public interface Job {
+        void run(SessionRuntime runtime, BooleanSupplier cancelled) throws IOException;
+    }
+
+    private SessionRuntimeManager() {
+        this.sessionLimitBytes = AppConfig.getInt(AppConfig.SESSION_MEMORY_LIMIT_MB, 512) * MB;
+        this.budgetBytes = AppConfig.getInt(AppConfig.SESSION_MEMORY_BUDGET_MB,
+                (int) (Runtime.getRuntime().maxMemory() / 2 / MB)) * MB;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(AppConfig.getInt(AppConfig.SESSION_IDLE_MINUTES, 15));
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    public static synchronized SessionRuntimeManager getInstance() {
+        if (instance == null) {
+            instance = new SessionRuntimeManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Start using a session, loading its services if needed. The runtime is
+     * not unloaded until every acquire is matched by {@link #release}.
+     *
+     * @throws IllegalArgumentException if the session does not exist
+     */
+    public SessionRuntime acquire(String sessionId) {
+        SessionRuntime runtime = runtimes.computeIfAbsent(sessionId, SessionRuntime::new);
+        runtime.retain();
+        return runtime;
+    }
+
+    /**
+     * Stop using a session acquired with {@link #acquire}
+     */
+    public void release(SessionRuntime runtime) {
+        runtime.release();
+        enforceBudget();
+    }
+
+    /**
+     * Run a turn once the session's previous turns have finished
+     *
+     * @throws RejectedExecutionException if too many turns are already
+     *                                    waiting for the session
+     * @throws TimeoutException           if the turn did not come in time
+     */
+    public <T> T runTurn(String sessionId, Turn<T> turn) throws Exception {
+        SessionRuntime runtime = acquire(sessionId);
+        try {
+            if (runtime.waitingTurns.incrementAndGet() > MAX_WAITING_TURNS) {
+                runtime.waitingTurns.decrementAndGet();
+                throw new RejectedExecutionException("Too many queries waiting for session " + sessionId);
+            }
+            try {
+                if (!runtime.turn.tryAcquire(TURN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new TimeoutException("Timed out waiting for the previous query of session " + sessionId);
+                }
+            } finally {
+                runtime.waitingTurns.decrementAndGet();
+            }
+
+            try {
+                return turn.run(runtime);
+            } finally {
+                runtime.turn.release();
+            }
+        } finally {
+            release(runtime);
+        }
+    }
+
+    /**
+     * Queue a knowledgebase job on the session's exclusive lane. A job that
+     * indexes past the session's memory limit fails with an
+     * {@link IllegalStateException}; files indexed before that are kept.
+     */
+    public CompletableFuture<Void> submitJob(String sessionId, String name, Job job) {
+        SessionRuntime runtime = acquire(sessionId);
+        CancellationToken token = new CancellationToken();
+        BooleanSupplier cancelled = () -> token.isCancelled() || runtime.overMemoryLimit();
+
+        CompletableFuture<Void> future = TaskScheduler.getInstance().runExclusive(sessionId, name, token, () -> {
+            try {
+                job.run(runtime, cancelled);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (CancellationException e) {
+                if (!token.isCancelled() && runtime.overMemoryLimit()) {
+                    throw new IllegalStateException("Session index exceeds the limit of "
+                            + sessionLimitBytes / MB + " MB", e);
+                }
+                throw e;
+            }
+        });
+        return future.whenComplete((result, error) -> release(runtime));
+    }
+
+    /**
+     * Reload a session's services, e.g. after its model or chunking settings
+     * changed. Holders of the old services keep using them.
+     */
+    public void reload(String sessionId) {
+        SessionRuntime runtime = runtimes.get(sessionId);
+        if (runtime != null) {
+            runtime.reload();
+        }
+    }
+
+    /**
+     * Drop a session's index in memory and in storage, so the next indexing
+     * pass starts from scratch, e.g. after its chunking settings or embedding
+     * model changed. Runs on the session's exclusive lane, so jobs queued
+     * later see the cleared index; needs no API key.
+     */
+    public CompletableFuture<Void> clearIndex(String sessionId) {
+        SessionRuntime runtime = acquire(sessionId);
+        return TaskScheduler.getInstance()
+                .runExclusive(sessionId, "clear-index", new CancellationToken(), runtime::clearIndex)
+                .whenComplete((result, error) -> release(runtime));
+    }
+
+    /**
+     * Apply changed retrieval settings to a loaded session without reloading
+     * its index
+     */
+    public void updateRetrieval(String sessionId, RetrievalConfig retrievalConfig) {
+        SessionRuntime runtime = runtimes.get(sessionId);
+        if (runtime != null) {
+            runtime.updateRetrieval(retrievalConfig);
+        }
+    }
+
+    /**
+     * Forget a session that is being deleted, cancelling its jobs
+     */
+    public void remove(String sessionId) {
+        TaskScheduler.getInstance().cancelSession(sessionId);
+        SessionRuntime runtime = runtimes.remove(sessionId);
+        if (runtime != null) {
+            runtime.unload();
+        }
+    }
+
+    /**
+     * Estimated index memory of all loaded sessions
+     */
+    public long loadedBytes() {
+        long bytes = 0;
+        for (SessionRuntime runtime : runtimes.values()) {
+            bytes += runtime.estimatedMemoryBytes();
+        }
+        return bytes;
+    }
+
+    public void shutdown() {
+        evictor.shutdownNow();
+    }
+
+    /**
+     * Unload sessions that have not been used for the idle timeout
+     */
+    private void evictIdle() {
+        try {
+            long now = System.nanoTime();
+            for (SessionRuntime runtime : runtimes.values()) {
+                if (now - runtime.lastUsedNanos > idleNanos && runtime.evictIfUnused()) {
+                    logger.info("Unloaded idle session {}", runtime.sessionId);
+                }
+            }
+            enforceBudget();
+        } catch (RuntimeException e) {
+            logger.error("Session eviction failed", e);
+        }
+    }
+
+    /**
+     * Unload the least recently used idle sessions until the loaded indexes
+     * fit the memory budget
+     */
+    private void enforceBudget() {
+        long loaded = loadedBytes();
+        if (loaded <= budgetBytes) {
+            return;
+        }
+        List<SessionRuntime> candidates = new ArrayList<>(runtimes.values());
+        candidates.sort(Comparator.comparingLong(runtime -> runtime.lastUsedNanos));
+        for (SessionRuntime runtime : candidates) {
+            if (loaded <= budgetBytes) {
+                break;
+            }
+            long bytes = runtime.estimatedMemoryBytes();
+            if (bytes > 0 && runtime.evictIfUnused()) {
+                loaded -= bytes;
+                logger.info("Unloaded session {} ({} MB) to stay within the memory budget of {} MB",
+                        runtime.sessionId, bytes / MB, budgetBytes / MB);
+            }
+        }
+    }
+
+    /**
+     * The services of one loaded session. The RAG service, which holds the
+     * index, is created on first use and dropped again on eviction.
+     */
+    public final class SessionRuntime {
+        private final String sessionId;
+        private final Semaphore turn = new Semaphore(1, true);
+        private final AtomicInteger waitingTurns = new AtomicInteger();
+        private volatile long lastUsedNanos = System.nanoTime();
+        private int users;
+        private Session session;
+        private ResourceService resourceService;
+        private volatile RAGService ragService;
+
+        private SessionRuntime(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public synchronized Session getSession() {
+            if (session == null) {
+                DatabaseService databaseService = DatabaseService.getInstance();
+                if (databaseService == null) {
+                    throw new IllegalStateException("Database unavailable, cannot load session " + sessionId);
+                }
+                session = databaseService.getSession(sessionId);
+                if (session == null) {
+                    throw new IllegalArgumentException("No such session: " + sessionId);
+                }
+            }
+            return session;
+        }
+
+        public synchronized ResourceService getResourceService() {
+            if (resourceService == null) {
+                resourceService = new ResourceService(sessionId);
+            }
+            return resourceService;
+        }
+
+        /**
+         * The session's RAG service, loading its index if it was unloaded
+         */
+        public synchronized RAGService getRagService() {
+            if (ragService == null) {
+                long start = System.nanoTime();
+                ragService = new RAGService(sessionId, getSession().getModel());
+                LOADS.increment(1);
+                logger.info("Loaded session {} in {} ms", sessionId, (System.nanoTime() - start) / 1_000_000);
+            }
+            return ragService;
+        }
+
+        public boolean isLoaded() {
+            return ragService != null;
+        }
+
+        public long estimatedMemoryBytes() {
+            RAGService loaded = ragService;
+            return loaded != null ? loaded.estimatedMemoryBytes() : 0;
+        }
+
+        private boolean overMemoryLimit() {
+            return estimatedMemoryBytes() > sessionLimitBytes;
+        }
+
+        private synchronized void retain() {
+            users++;
+            lastUsedNanos = System.nanoTime();
+        }
+
+        private synchronized void release() {
+            users--;
+            lastUsedNanos = System.nanoTime();
+        }
+
+        private synchronized void reload() {
+            session = null;
+            if (ragService != null) {
+                ragService = null;
+                getRagService();
+            }
+        }
+
+        private synchronized void updateRetrieval(RetrievalConfig retrievalConfig) {
+            session = null;
+            if (ragService != null) {
+                ragService.setRetrievalConfig(retrievalConfig);
+            }
+        }
+
+        /**
+         * Unload the index and remove its storage; the RAG service is
+         * created again, with the current settings, on next use
+         */
+        private synchronized void clearIndex() {
+            unload();
+            DocumentIndexingService.clearStoredIndex(sessionId);
+        }
+
+        private synchronized void unload() {
+            session = null;
+            ragService = null;
+        }
+
+        /**
+         * Drop the index unless someone is using the session. Jobs always
+         * commit the index, so nothing is lost.
+         */
+        private synchronized boolean evictIfUnused() {
+            if (users > 0 || ragService == null) {
+                return false;
+            }
+            unload();
+            EVICTIONS.increment(1);
+            return true;
+        }
+    }
+}
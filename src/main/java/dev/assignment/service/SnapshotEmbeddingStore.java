@@ -0,0 +1,408 @@
+package dev.assignment.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import dev.assignment.metrics.VectorSearchEvent;
+import dev.assignment.util.SegmentMetadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+/**
+ * In-memory embedding store with copy-on-write generations. Every write
+ * builds a new immutable generation and publishes it atomically, so a search
+ * always runs against one consistent generation and never waits for a
+ * writer. Writers are serialized. Entries are grouped by file, so a write
+ * copies the file table and the lists of the files it touches rather than
+ * the whole store.
+ */
+public class SnapshotEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private static final double EPSILON = 1e-8;
+    /** Rough per-entry cost of the id, metadata and object headers */
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    /**
+     * An embedding held by the store, with the segment it was computed from
+     */
+    public record StoredEmbedding(String id, Embedding embedding, TextSegment segment) {
+    }
+
+    private record Entry(StoredEmbedding stored, double norm) {
+    }
+
+    private record Generation(Map<String, List<Entry>> files, int size) {
+    }
+
+    private record Footprint(Generation generation, long bytes) {
+    }
+
+    /**
+     * Groups embeddings by file as they arrive and publishes them in a single
+     * generation, so a load streams its rows without buffering them first and
+     * without publishing a generation per file. Not thread-safe.
+     */
+    public final class Loader {
+
+        private final Map<String, List<Entry>> files = new LinkedHashMap<>();
+        private int size = 0;
+
+        private Loader() {
+        }
+
+        /**
+         * Add one embedding; nothing is visible to searches until published
+         *
+         * @throws IllegalArgumentException if the vector does not have the
+         *                                  store's dimension
+         */
+        public void add(Embedding embedding, TextSegment segment) {
+            files.computeIfAbsent(fileKey(segment), key -> new ArrayList<>())
+                    .add(entry(UUID.randomUUID().toString(), embedding, segment));
+            size++;
+        }
+
+        /**
+         * Number of embeddings added so far
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Append everything added to the store in one generation
+         */
+        public void publish() {
+            if (!files.isEmpty()) {
+                merge(files);
+                files.clear();
+            }
+        }
+    }
+
+    private final int dimension;
+    private final Object writeLock = new Object();
+    private volatile Generation current = new Generation(Map.of(), 0);
+    private volatile Footprint footprint = new Footprint(current, 0);
+
+    /**
+     * A store accepting vectors of any dimension
+     */
+    public SnapshotEmbeddingStore() {
+        this(0);
+    }
+
+    /**
+     * A store rejecting vectors that do not have the given dimension, e.g.
+     * ones persisted for another embedding model
+     */
+    public SnapshotEmbeddingStore(int dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * Dimension of the vectors the store accepts, or 0 for any
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Number of embeddings in the current generation
+     */
+    public int size() {
+        return current.size();
+    }
+
+    /**
+     * Rough heap footprint of the current generation: vectors, segment text
+     * and a fixed overhead per entry. Computed once per generation.
+     */
+    public long estimatedBytes() {
+        Generation generation = current;
+        Footprint measured = footprint;
+        if (measured.generation() == generation) {
+            return measured.bytes();
+        }
+        long bytes = 0;
+        for (List<Entry> fileEntries : generation.files().values()) {
+            for (Entry entry : fileEntries) {
+                StoredEmbedding stored = entry.stored();
+                bytes += ENTRY_OVERHEAD_BYTES + 4L * stored.embedding().vector().length;
+                if (stored.segment() != null) {
+                    bytes += 2L * stored.segment().text().length();
+                }
+            }
+        }
+        footprint = new Footprint(generation, bytes);
+        return bytes;
+    }
+
+    /**
+     * Every embedding of the current generation, e.g. to persist the store.
+     * Later writes do not affect the returned list.
+     */
+    public List<StoredEmbedding> snapshot() {
+        Generation generation = current;
+        List<StoredEmbedding> entries = new ArrayList<>(generation.size());
+        for (List<Entry> fileEntries : generation.files().values()) {
+            for (Entry entry : fileEntries) {
+                entries.add(entry.stored());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Replace all embeddings of a file in a single generation, so searches
+     * see either the old or the new version of the file, never a mix or
+     * neither
+     */
+    public void replaceFile(String fileName, List<Embedding> embeddings, List<TextSegment> segments) {
+        List<Entry> entries = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            entries.add(entry(UUID.randomUUID().toString(), embeddings.get(i), segments.get(i)));
+        }
+
+        synchronized (writeLock) {
+            Map<String, List<Entry>> files = new HashMap<>(current.files());
+            if (entries.isEmpty()) {
+                files.remove(fileName);
+            } else {
+                files.put(fileName, List.copyOf(entries));
+            }
+            publish(files);
+        }
+    }
+
+    /**
+     * Start a bulk load, e.g. of a session's persisted embeddings
+     */
+    public Loader loader() {
+        return new Loader();
+    }
+
+    /**
+     * Remove all embeddings of a file
+     */
+    public void removeFile(String fileName) {
+        synchronized (writeLock) {
+            if (current.files().containsKey(fileName)) {
+                Map<String, List<Entry>> files = new HashMap<>(current.files());
+                files.remove(fileName);
+                publish(files);
+            }
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        append(List.of(entry(id, embedding, null)));
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = UUID.randomUUID().toString();
+        append(List.of(entry(id, embedding, segment)));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return addAll(embeddings, null);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+        List<String> ids = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        addAll(ids, embeddings, segments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        List<Entry> entries = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            entries.add(entry(ids.get(i), embeddings.get(i), segments != null ? segments.get(i) : null));
+        }
+        append(entries);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        Set<String> toRemove = new HashSet<>(ids);
+        removeIf(entry -> toRemove.contains(entry.stored().id()));
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        removeIf(entry -> entry.stored().segment() != null && filter.test(entry.stored().segment().metadata()));
+    }
+
+    @Override
+    public void removeAll() {
+        synchronized (writeLock) {
+            publish(Map.of());
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        VectorSearchEvent event = new VectorSearchEvent();
+        event.begin();
+        int scanned = 0;
+        Generation generation = current;
+        float[] query = request.queryEmbedding().vector();
+        double queryNorm = norm(query);
+        Filter filter = request.filter();
+
+        PriorityQueue<EmbeddingMatch<TextSegment>> top = new PriorityQueue<>(
+                Comparator.comparingDouble(EmbeddingMatch::score));
+
+        for (List<Entry> fileEntries : generation.files().values()) {
+            for (Entry entry : fileEntries) {
+                StoredEmbedding stored = entry.stored();
+                scanned++;
+                if (filter != null && (stored.segment() == null || !filter.test(stored.segment().metadata()))) {
+                    continue;
+                }
+
+                double cosine = dot(query, stored.embedding().vector()) / Math.max(queryNorm * entry.norm(), EPSILON);
+                double score = RelevanceScore.fromCosineSimilarity(cosine);
+                if (score < request.minScore()) {
+                    continue;
+                }
+
+                top.add(new EmbeddingMatch<>(score, stored.id(), stored.embedding(), stored.segment()));
+                if (top.size() > request.maxResults()) {
+                    top.poll();
+                }
+            }
+        }
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(top);
+        matches.sort(Comparator.comparingDouble(EmbeddingMatch<TextSegment>::score).reversed());
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.candidatesScanned = scanned;
+            event.maxResults = request.maxResults();
+            event.minScore = request.minScore();
+            event.matches = matches.size();
+            event.commit();
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    private void append(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Entry>> added = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            added.computeIfAbsent(fileKey(entry.stored().segment()), key -> new ArrayList<>()).add(entry);
+        }
+        merge(added);
+    }
+
+    /**
+     * Append entries grouped by file to the current generation and publish
+     * the result as one new generation
+     */
+    private void merge(Map<String, List<Entry>> added) {
+        synchronized (writeLock) {
+            Map<String, List<Entry>> files = new HashMap<>(current.files());
+            added.forEach((fileName, fileEntries) -> {
+                List<Entry> merged = new ArrayList<>(files.getOrDefault(fileName, List.of()));
+                merged.addAll(fileEntries);
+                files.put(fileName, List.copyOf(merged));
+            });
+            publish(files);
+        }
+    }
+
+    private void removeIf(Predicate<Entry> predicate) {
+        synchronized (writeLock) {
+            Map<String, List<Entry>> files = new HashMap<>();
+            boolean changed = false;
+            for (Map.Entry<String, List<Entry>> file : current.files().entrySet()) {
+                List<Entry> kept = file.getValue().stream().filter(predicate.negate()).toList();
+                changed |= kept.size() != file.getValue().size();
+                if (!kept.isEmpty()) {
+                    files.put(file.getKey(), kept);
+                }
+            }
+            if (changed) {
+                publish(files);
+            }
+        }
+    }
+
+    /**
+     * Make a new generation visible to searches; called with the write lock
+     * held
+     */
+    private void publish(Map<String, List<Entry>> files) {
+        int size = 0;
+        for (List<Entry> fileEntries : files.values()) {
+            size += fileEntries.size();
+        }
+        current = new Generation(Map.copyOf(files), size);
+    }
+
+    private Entry entry(String id, Embedding embedding, TextSegment segment) {
+        if (dimension > 0 && embedding.dimension() != dimension) {
+            throw new IllegalArgumentException(
+                    "Embedding dimension mismatch: " + embedding.dimension() + " vs " + dimension);
+        }
+        return new Entry(new StoredEmbedding(id, embedding, segment), norm(embedding.vector()));
+    }
+
+    private static String fileKey(TextSegment segment) {
+        String fileName = segment != null ? SegmentMetadata.getFileName(segment) : null;
+        return fileName != null ? fileName : "";
+    }
+
+    private static double norm(float[] vector) {
+        return Math.sqrt(dot(vector, vector));
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException(
+                    "Embedding dimension mismatch: " + a.length + " vs " + b.length);
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
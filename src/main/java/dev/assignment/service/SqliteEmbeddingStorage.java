@@ -0,0 +1,295 @@
+package dev.assignment.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dev.assignment.util.SegmentMetadata;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * Embedding storage backed by the indexed_files and segments tables of the
+ * session database. Vectors are stored as little-endian float32 BLOBs, and
+ * every file is written or removed in a single transaction.
+ */
+public class SqliteEmbeddingStorage implements EmbeddingStorage {
+
+    private static final Logger logger = LogManager.getLogger(SqliteEmbeddingStorage.class);
+
+    private final String sessionId;
+
+    public SqliteEmbeddingStorage(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    @Override
+    public void load(SnapshotEmbeddingStore embeddingStore, Map<String, Long> indexedFiles) {
+        Connection connection = getConnection();
+        if (connection == null) {
+            return;
+        }
+
+        String filesSql = "SELECT file_name, last_modified FROM indexed_files WHERE session_id = ?";
+        String segmentsSql = "SELECT file_name, segment_index, start_offset, end_offset, page, text, vector " +
+                "FROM segments WHERE session_id = ? ORDER BY file_name, segment_index";
+
+        synchronized (connection) {
+            try {
+                importFileCache(connection);
+
+                try (PreparedStatement pstmt = connection.prepareStatement(filesSql)) {
+                    pstmt.setString(1, sessionId);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        indexedFiles.put(rs.getString("file_name"), rs.getLong("last_modified"));
+                    }
+                }
+
+                // Rows go straight into the store's loader, which publishes
+                // them as a single generation once all are read
+                SnapshotEmbeddingStore.Loader loader = embeddingStore.loader();
+                try (PreparedStatement pstmt = connection.prepareStatement(segmentsSql)) {
+                    pstmt.setString(1, sessionId);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        Metadata metadata = new Metadata();
+                        metadata.put(SegmentMetadata.FILE_NAME, rs.getString("file_name"));
+                        metadata.put(SegmentMetadata.INDEX, rs.getInt("segment_index"));
+                        metadata.put(SegmentMetadata.START_OFFSET, rs.getInt("start_offset"));
+                        metadata.put(SegmentMetadata.END_OFFSET, rs.getInt("end_offset"));
+                        if (rs.getInt("page") > 0) {
+                            metadata.put(SegmentMetadata.PAGE, rs.getInt("page"));
+                        }
+
+                        loader.add(new Embedding(fromBlob(rs.getBytes("vector"))),
+                                TextSegment.from(rs.getString("text"), metadata));
+                    }
+                }
+                loader.publish();
+
+                logger.info("Loaded {} stored embeddings for {} files", loader.size(), indexedFiles.size());
+            } catch (SQLException e) {
+                logger.error("Failed to load stored embeddings for session {}", sessionId, e);
+                indexedFiles.clear();
+            } catch (IllegalArgumentException e) {
+                // Vectors of another embedding model; the files are indexed again
+                logger.warn("Stored embeddings of session {} do not fit its index: {}", sessionId, e.getMessage());
+                embeddingStore.removeAll();
+                indexedFiles.clear();
+            }
+        }
+    }
+
+    @Override
+    public void saveFile(String fileName, long lastModified, List<TextSegment> segments, List<Embedding> embeddings) {
+        Connection connection = getConnection();
+        if (connection == null) {
+            return;
+        }
+
+        synchronized (connection) {
+            try {
+                connection.setAutoCommit(false);
+                writeFile(connection, fileName, lastModified, segments, embeddings);
+                connection.commit();
+                logger.debug("Stored {} segments for {}", segments.size(), fileName);
+            } catch (SQLException e) {
+                rollbackQuietly(connection);
+                logger.error("Failed to store embeddings for {}", fileName, e);
+            } finally {
+                restoreAutoCommit(connection);
+            }
+        }
+    }
+
+    @Override
+    public void removeFile(String fileName) {
+        Connection connection = getConnection();
+        if (connection == null) {
+            return;
+        }
+
+        // Segments are removed by ON DELETE CASCADE
+        String sql = "DELETE FROM indexed_files WHERE session_id = ? AND file_name = ?";
+
+        synchronized (connection) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, sessionId);
+                pstmt.setString(2, fileName);
+                pstmt.executeUpdate();
+                logger.debug("Removed stored embeddings for {}", fileName);
+            } catch (SQLException e) {
+                logger.error("Failed to remove stored embeddings for {}", fileName, e);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        // A leftover file cache would be imported again on the next load
+        EmbeddingCacheService.deleteCache(sessionId);
+
+        Connection connection = getConnection();
+        if (connection == null) {
+            return;
+        }
+
+        // Segments are removed by ON DELETE CASCADE
+        String sql = "DELETE FROM indexed_files WHERE session_id = ?";
+
+        synchronized (connection) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, sessionId);
+                int files = pstmt.executeUpdate();
+                logger.debug("Removed stored embeddings of {} files", files);
+            } catch (SQLException e) {
+                logger.error("Failed to clear stored embeddings of session {}", sessionId, e);
+            }
+        }
+    }
+
+    @Override
+    public void commit(SnapshotEmbeddingStore embeddingStore, Map<String, Long> indexedFiles) {
+        // Every file is already committed by saveFile and removeFile
+    }
+
+    private void writeFile(Connection connection, String fileName, long lastModified,
+            List<TextSegment> segments, List<Embedding> embeddings) throws SQLException {
+        String upsertFileSql = "INSERT INTO indexed_files (session_id, file_name, last_modified) VALUES (?, ?, ?) " +
+                "ON CONFLICT (session_id, file_name) DO UPDATE SET last_modified = excluded.last_modified";
+        String deleteSegmentsSql = "DELETE FROM segments WHERE session_id = ? AND file_name = ?";
+        String insertSegmentSql = "INSERT INTO segments " +
+                "(session_id, file_name, segment_index, start_offset, end_offset, page, text, vector) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement upsertFile = connection.prepareStatement(upsertFileSql);
+                PreparedStatement deleteSegments = connection.prepareStatement(deleteSegmentsSql);
+                PreparedStatement insertSegment = connection.prepareStatement(insertSegmentSql)) {
+            upsertFile.setString(1, sessionId);
+            upsertFile.setString(2, fileName);
+            upsertFile.setLong(3, lastModified);
+            upsertFile.executeUpdate();
+
+            deleteSegments.setString(1, sessionId);
+            deleteSegments.setString(2, fileName);
+            deleteSegments.executeUpdate();
+
+            for (int i = 0; i < segments.size(); i++) {
+                TextSegment segment = segments.get(i);
+                insertSegment.setString(1, sessionId);
+                insertSegment.setString(2, fileName);
+                insertSegment.setInt(3, SegmentMetadata.getInt(segment, SegmentMetadata.INDEX, i));
+                insertSegment.setInt(4, SegmentMetadata.getInt(segment, SegmentMetadata.START_OFFSET, -1));
+                insertSegment.setInt(5, SegmentMetadata.getInt(segment, SegmentMetadata.END_OFFSET, -1));
+                insertSegment.setInt(6, SegmentMetadata.getInt(segment, SegmentMetadata.PAGE, -1));
+                insertSegment.setString(7, segment.text());
+                insertSegment.setBytes(8, toBlob(embeddings.get(i).vector()));
+                insertSegment.addBatch();
+            }
+            insertSegment.executeBatch();
+        }
+    }
+
+    /**
+     * Move embeddings from the file cache into the database the first time a
+     * session is opened with this backend, so switching backends does not
+     * require re-embedding
+     */
+    private void importFileCache(Connection connection) throws SQLException {
+        if (!EmbeddingCacheService.hasCache(sessionId) || hasStoredFiles(connection)) {
+            return;
+        }
+
+        Map<String, List<TextSegment>> segmentsByFile = new LinkedHashMap<>();
+        Map<String, List<Embedding>> embeddingsByFile = new LinkedHashMap<>();
+        Map<String, Long> cachedFiles;
+        try {
+            cachedFiles = EmbeddingCacheService.readCache(sessionId, (embedding, segment) -> {
+                String fileName = SegmentMetadata.getFileName(segment);
+                if (fileName != null) {
+                    segmentsByFile.computeIfAbsent(fileName, k -> new ArrayList<>()).add(segment);
+                    embeddingsByFile.computeIfAbsent(fileName, k -> new ArrayList<>()).add(embedding);
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("Could not read file cache for session {}, it will be re-indexed", sessionId, e);
+            return;
+        }
+
+        try {
+            connection.setAutoCommit(false);
+            for (Map.Entry<String, Long> entry : cachedFiles.entrySet()) {
+                String fileName = entry.getKey();
+                writeFile(connection, fileName, entry.getValue(),
+                        segmentsByFile.getOrDefault(fileName, List.of()),
+                        embeddingsByFile.getOrDefault(fileName, List.of()));
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollbackQuietly(connection);
+            throw e;
+        } finally {
+            restoreAutoCommit(connection);
+        }
+
+        EmbeddingCacheService.deleteCache(sessionId);
+        logger.info("Imported file cache of session {} into the database ({} files)", sessionId, cachedFiles.size());
+    }
+
+    private boolean hasStoredFiles(Connection connection) throws SQLException {
+        String sql = "SELECT 1 FROM indexed_files WHERE session_id = ? LIMIT 1";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, sessionId);
+            return pstmt.executeQuery().next();
+        }
+    }
+
+    private Connection getConnection() {
+        DatabaseService databaseService = DatabaseService.getInstance();
+        if (databaseService == null) {
+            logger.error("Database unavailable, embeddings for session {} are not persisted", sessionId);
+            return null;
+        }
+        return databaseService.getStorageConnection();
+    }
+
+    static byte[] toBlob(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    static float[] fromBlob(byte[] blob) {
+        float[] vector = new float[blob.length / Float.BYTES];
+        ByteBuffer.wrap(blob).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.error("Failed to roll back embedding storage transaction", e);
+        }
+    }
+
+    private static void restoreAutoCommit(Connection connection) {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Failed to restore auto-commit", e);
+        }
+    }
+}
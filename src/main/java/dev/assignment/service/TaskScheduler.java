@@ -0,0 +1,320 @@
+package dev.assignment.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Central scheduler for background work. I/O-bound tasks (API calls, disk
+ * and database access) run on virtual threads, CPU-bound tasks on a pool
+ * sized to the processor count, and jobs that mutate a session's
+ * knowledgebase or index run one at a time per session. Jobs that fan out
+ * over many files get a bounded slice of a pool instead of a pool of their
+ * own. Every task is named after what it does, and failures are logged
+ * instead of dying silently with their thread.
+ */
+public class TaskScheduler {
+
+    private static final Logger logger = LogManager.getLogger(TaskScheduler.class);
+
+    private static final int CPU_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private static TaskScheduler instance;
+
+    private final ExecutorService ioExecutor;
+    private final ExecutorService cpuExecutor;
+    private final Map<String, SessionLane> sessionLanes = new ConcurrentHashMap<>();
+    private volatile boolean shutdown = false;
+
+    private TaskScheduler() {
+        Thread.UncaughtExceptionHandler handler = (thread, e) -> logger.error("Uncaught exception in {}",
+                thread.getName(), e);
+
+        this.ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                .name("io-", 1)
+                .uncaughtExceptionHandler(handler)
+                .factory());
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.cpuExecutor = Executors.newFixedThreadPool(CPU_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "cpu-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler(handler);
+            return thread;
+        });
+    }
+
+    public static synchronized TaskScheduler getInstance() {
+        if (instance == null) {
+            instance = new TaskScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Run a blocking task on a virtual thread
+     */
+    public CompletableFuture<Void> runIo(String name, Runnable task) {
+        return submit(ioExecutor, name, new CancellationToken(), () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Compute a value with a blocking task on a virtual thread
+     */
+    public <T> CompletableFuture<T> supplyIo(String name, Callable<T> task) {
+        return submit(ioExecutor, name, new CancellationToken(), task);
+    }
+
+    /**
+     * Compute a value on the bounded pool for CPU-bound work
+     */
+    public <T> CompletableFuture<T> supplyCpu(String name, Callable<T> task) {
+        return submit(cpuExecutor, name, new CancellationToken(), task);
+    }
+
+    /**
+     * The CPU pool as a plain executor, for libraries that split their own
+     * work into tasks. Must not be waited on from a pool thread.
+     */
+    public Executor cpuExecutor() {
+        return cpuExecutor;
+    }
+
+    /**
+     * A share of the I/O executor running at most the given number of tasks
+     * at a time, e.g. for copying the files of an import
+     */
+    public Slice ioSlice(String name, int parallelism) {
+        return new Slice(name, new BoundedExecutor(ioExecutor, parallelism));
+    }
+
+    /**
+     * A share of the CPU pool running at most the given number of tasks at a
+     * time. Waiting tasks are queued without holding a pool thread.
+     */
+    public Slice cpuSlice(String name, int parallelism) {
+        return new Slice(name, new BoundedExecutor(cpuExecutor, Math.min(parallelism, CPU_THREADS)));
+    }
+
+    /**
+     * Run a task that mutates a session's knowledgebase or index. Tasks of
+     * the same session run one after another in submission order; a task
+     * whose token is cancelled while it waits is skipped. A session's lane
+     * is removed once it has no outstanding tasks.
+     */
+    public CompletableFuture<Void> runExclusive(String sessionId, String name, CancellationToken token,
+            Runnable task) {
+        // Reserved under the map's lock, so an idle lane is never removed
+        // between being looked up and receiving the task
+        SessionLane lane = sessionLanes.compute(sessionId, (id, existing) -> {
+            SessionLane reserved = existing != null ? existing : new SessionLane(ioExecutor);
+            reserved.outstanding++;
+            return reserved;
+        });
+        lane.tokens.add(token);
+
+        CompletableFuture<Void> future = submit(lane.executor, name + " [" + sessionId + "]", token, () -> {
+            task.run();
+            return null;
+        });
+        future.whenComplete((result, error) -> {
+            lane.tokens.remove(token);
+            sessionLanes.computeIfPresent(sessionId, (id, existing) -> {
+                if (existing == lane) {
+                    lane.outstanding--;
+                }
+                return existing.outstanding > 0 ? existing : null;
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Cancel every running and queued exclusive task of a session
+     */
+    public void cancelSession(String sessionId) {
+        SessionLane lane = sessionLanes.get(sessionId);
+        if (lane != null) {
+            lane.tokens.forEach(CancellationToken::cancel);
+        }
+    }
+
+    /**
+     * Cancel outstanding jobs and wait briefly for running tasks to stop
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        sessionLanes.values().forEach(lane -> lane.tokens.forEach(CancellationToken::cancel));
+
+        ioExecutor.shutdown();
+        cpuExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    || !cpuExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Background tasks still running after {} s, interrupting them", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioExecutor.shutdownNow();
+        cpuExecutor.shutdownNow();
+        logger.info("Task scheduler shut down");
+    }
+
+    private <T> CompletableFuture<T> submit(Executor executor, String name, CancellationToken token,
+            Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (shutdown) {
+            future.completeExceptionally(new RejectedExecutionException("Task scheduler is shut down"));
+            return future;
+        }
+
+        try {
+            executor.execute(() -> {
+                if (shutdown) {
+                    future.completeExceptionally(new CancellationException(name + " cancelled by shutdown"));
+                    return;
+                }
+                if (token.isCancelled()) {
+                    future.completeExceptionally(new CancellationException(name + " cancelled"));
+                    return;
+                }
+
+                Thread current = Thread.currentThread();
+                String threadName = current.getName();
+                current.setName(threadName + " " + name);
+                try {
+                    future.complete(task.call());
+                } catch (CancellationException e) {
+                    logger.debug("Task '{}' cancelled", name);
+                    future.completeExceptionally(e);
+                } catch (Exception e) {
+                    logger.error("Task '{}' failed", name, e);
+                    future.completeExceptionally(e);
+                } finally {
+                    current.setName(threadName);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * A bounded share of the scheduler's pools. Its tasks are named after the
+     * slice and stop with the scheduler like any other task.
+     */
+    public final class Slice {
+
+        private final String name;
+        private final Executor executor;
+
+        private Slice(String name, Executor executor) {
+            this.name = name;
+            this.executor = executor;
+        }
+
+        public <T> CompletableFuture<T> supply(Callable<T> task) {
+            return submit(executor, name, new CancellationToken(), task);
+        }
+    }
+
+    /**
+     * The tasks of one session, run one at a time on the I/O executor in
+     * submission order
+     */
+    private static final class SessionLane {
+
+        private final BoundedExecutor executor;
+        private final Set<CancellationToken> tokens = ConcurrentHashMap.newKeySet();
+        /** Submitted tasks not yet completed; guarded by the lane map */
+        private int outstanding = 0;
+
+        SessionLane(Executor executor) {
+            this.executor = new BoundedExecutor(executor, 1);
+        }
+    }
+
+    /**
+     * Runs at most a given number of tasks at a time on another executor,
+     * in submission order
+     */
+    private static final class BoundedExecutor implements Executor {
+
+        private final Executor executor;
+        private final int parallelism;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private int running = 0;
+
+        BoundedExecutor(Executor executor, int parallelism) {
+            this.executor = executor;
+            this.parallelism = Math.max(1, parallelism);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (this) {
+                tasks.add(task);
+            }
+            dispatch();
+        }
+
+        private void dispatch() {
+            List<Runnable> rejected = new ArrayList<>();
+            synchronized (this) {
+                while (running < parallelism && !tasks.isEmpty()) {
+                    Runnable task = tasks.poll();
+                    running++;
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                task.run();
+                            } finally {
+                                finished();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        running--;
+                        rejected.add(task);
+                        rejected.addAll(tasks);
+                        tasks.clear();
+                    }
+                }
+            }
+            // Only a shut down executor rejects; the tasks then just fail
+            // their futures, so run them here rather than leave them waiting
+            rejected.forEach(Runnable::run);
+        }
+
+        private void finished() {
+            synchronized (this) {
+                running--;
+            }
+            dispatch();
+        }
+    }
+}
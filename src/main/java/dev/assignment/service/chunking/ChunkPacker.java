@@ -0,0 +1,210 @@
+package dev.assignment.service.chunking;
+
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import dev.assignment.model.ChunkingConfig;
+import dev.assignment.util.TokenCounter;
+
+/**
+ * Greedily packs contiguous pieces of text into chunks of at most the
+ * configured number of tokens. Consecutive chunks share trailing pieces up
+ * to the configured overlap. A piece that starts a section (a heading or a
+ * page) closes the current chunk once it is at least half full, and no
+ * overlap is carried across it. Pieces larger than a chunk are split at
+ * line, sentence and word boundaries first.
+ */
+class ChunkPacker implements Iterator<TextChunk> {
+
+    private static final Pattern SENTENCE_END = Pattern.compile("[.!?][\"')\\]]*\\s+");
+    private static final Pattern WORD_END = Pattern.compile("\\s+");
+    private static final Pattern LINE_END = Pattern.compile("\\r\\n|[\\r\\n\\f]");
+
+    /**
+     * A contiguous slice of the source text
+     */
+    record Piece(String text, int start, boolean sectionStart, int page) {
+    }
+
+    private final Iterator<Piece> pieces;
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    private final Deque<Piece> pending = new ArrayDeque<>();
+    private final Deque<TextChunk> ready = new ArrayDeque<>();
+    private final List<Piece> current = new ArrayList<>();
+    private final List<Integer> currentTokens = new ArrayList<>();
+    private int tokens = 0;
+    private boolean hasNewContent = false;
+    private boolean finished = false;
+    private int nextIndex = 0;
+
+    ChunkPacker(Iterator<Piece> pieces, ChunkingConfig config) {
+        this.pieces = pieces;
+        this.maxTokens = config.chunkSize();
+        this.overlapTokens = config.chunkOverlap();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (ready.isEmpty() && !finished) {
+            if (!pending.isEmpty()) {
+                add(pending.poll());
+            } else if (pieces.hasNext()) {
+                add(pieces.next());
+            } else {
+                emit();
+                finished = true;
+            }
+        }
+        return !ready.isEmpty();
+    }
+
+    @Override
+    public TextChunk next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return ready.poll();
+    }
+
+    private void add(Piece piece) {
+        int pieceTokens = TokenCounter.count(piece.text());
+        if (pieceTokens > maxTokens) {
+            List<Piece> parts = splitOversized(piece);
+            // A single character of more tokens than a chunk cannot be split
+            // further and becomes an oversized chunk of its own
+            if (parts.size() > 1) {
+                for (int i = parts.size() - 1; i >= 0; i--) {
+                    pending.addFirst(parts.get(i));
+                }
+                return;
+            }
+        }
+
+        if (piece.sectionStart() && !current.isEmpty() && (tokens >= maxTokens / 2 || !hasNewContent)) {
+            emit();
+            clear();
+        }
+
+        if (tokens + pieceTokens > maxTokens && !current.isEmpty()) {
+            emit();
+            carryOverlap(pieceTokens);
+        }
+
+        current.add(piece);
+        currentTokens.add(pieceTokens);
+        tokens += pieceTokens;
+        hasNewContent = true;
+    }
+
+    /**
+     * Keep the trailing pieces of the emitted chunk that fit in the overlap
+     * and still leave room for the next piece
+     */
+    private void carryOverlap(int nextPieceTokens) {
+        int budget = Math.min(overlapTokens, maxTokens - nextPieceTokens);
+        int carried = 0;
+        int first = current.size();
+        while (first > 1 && carried + currentTokens.get(first - 1) <= budget) {
+            first--;
+            carried += currentTokens.get(first);
+        }
+
+        List<Piece> carriedPieces = new ArrayList<>(current.subList(first, current.size()));
+        List<Integer> carriedTokens = new ArrayList<>(currentTokens.subList(first, currentTokens.size()));
+        clear();
+        current.addAll(carriedPieces);
+        currentTokens.addAll(carriedTokens);
+        tokens = carried;
+    }
+
+    private void clear() {
+        current.clear();
+        currentTokens.clear();
+        tokens = 0;
+        hasNewContent = false;
+    }
+
+    /**
+     * Turn the current pieces into a chunk, trimming surrounding whitespace.
+     * Chunks made only of carried-over text are not emitted.
+     */
+    private void emit() {
+        if (current.isEmpty() || !hasNewContent) {
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (Piece piece : current) {
+            text.append(piece.text());
+        }
+
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+
+        int offset = current.get(0).start();
+        ready.add(new TextChunk(nextIndex++, text.substring(start, end), offset + start, offset + end,
+                current.get(0).page()));
+    }
+
+    /**
+     * Split a piece that does not fit in a chunk, using the coarsest boundary
+     * that yields more than one part and cutting by tokens as a last resort.
+     * Every cut takes at least one character, so splitting always progresses.
+     */
+    private List<Piece> splitOversized(Piece piece) {
+        for (Pattern boundary : new Pattern[] { LINE_END, SENTENCE_END, WORD_END }) {
+            List<Piece> parts = splitAfter(piece, boundary);
+            if (parts.size() > 1) {
+                return parts;
+            }
+        }
+
+        List<Piece> parts = new ArrayList<>();
+        String text = piece.text();
+        int i = 0;
+        while (i < text.length()) {
+            int length = TokenCounter.fittingLength(CharBuffer.wrap(text, i, text.length()), maxTokens);
+            int end = length > 0 ? i + length : text.offsetByCodePoints(i, 1);
+            parts.add(new Piece(text.substring(i, end), piece.start() + i, piece.sectionStart() && i == 0,
+                    piece.page()));
+            i = end;
+        }
+        return parts;
+    }
+
+    private static List<Piece> splitAfter(Piece piece, Pattern boundary) {
+        List<Piece> parts = new ArrayList<>();
+        String text = piece.text();
+        Matcher matcher = boundary.matcher(text);
+        int partStart = 0;
+
+        while (matcher.find()) {
+            if (matcher.end() < text.length()) {
+                parts.add(new Piece(text.substring(partStart, matcher.end()), piece.start() + partStart,
+                        piece.sectionStart() && partStart == 0, piece.page()));
+                partStart = matcher.end();
+            }
+        }
+        parts.add(new Piece(text.substring(partStart), piece.start() + partStart,
+                piece.sectionStart() && partStart == 0, piece.page()));
+        return parts;
+    }
+}
@@ -0,0 +1,19 @@
+package dev.assignment.service.chunking;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+/**
+ * Splits document text into chunks for embedding. Chunks are produced
+ * lazily while the reader is consumed; I/O errors surface as
+ * {@link java.io.UncheckedIOException} from the iterator.
+ */
+public interface Chunker {
+
+    /**
+     * Short name used in logs and evaluation reports
+     */
+    String name();
+
+    Iterator<TextChunk> split(Reader reader);
+}
@@ -0,0 +1,23 @@
+package dev.assignment.service.chunking;
+
+import dev.assignment.model.ChunkingConfig;
+import dev.assignment.service.ResourceService;
+
+/**
+ * Selects the chunking strategy for a knowledge base file by its extension
+ */
+public class Chunkers {
+
+    private Chunkers() {
+        // Prevent instantiation
+    }
+
+    public static Chunker forFile(String fileName, ChunkingConfig config) {
+        String extension = ResourceService.getFileExtension(fileName).toLowerCase();
+        return switch (extension) {
+            case ".md", ".mdx" -> new MarkdownChunker(config);
+            case ".pdf" -> new PdfPageChunker(config);
+            default -> new TokenChunker(config);
+        };
+    }
+}
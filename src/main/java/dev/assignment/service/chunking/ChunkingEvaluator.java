@@ -0,0 +1,202 @@
+package dev.assignment.service.chunking;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import dev.assignment.model.ChunkingConfig;
+import dev.assignment.service.OpenAiModels;
+import dev.assignment.service.ResourceService;
+import dev.assignment.util.AppConfig;
+import dev.assignment.util.SegmentMetadata;
+import dev.assignment.util.TokenCounter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * Command-line harness comparing chunking strategies on a set of documents.
+ * For every strategy it reports the number of chunks, the embedding tokens
+ * and their cost, and the retrieval hit-rate: the share of questions whose
+ * expected file is among the top results.
+ *
+ * <pre>
+ * ChunkingEvaluator &lt;documents dir&gt; &lt;questions.tsv&gt; [chunk size] [overlap] [--dry-run]
+ * </pre>
+ *
+ * Each line of the questions file is {@code question<TAB>expected file name};
+ * lines starting with '#' are ignored. With --dry-run nothing is embedded and
+ * costs are estimated from approximate token counts.
+ */
+public class ChunkingEvaluator {
+
+    /**
+     * Price of text-embedding-3-small in USD per million tokens
+     */
+    private static final double PRICE_PER_MILLION_TOKENS = 0.02;
+    private static final int TOP_K = 5;
+    private static final int EMBEDDING_BATCH_SIZE = 32;
+
+    private record Question(String text, String expectedFile) {
+    }
+
+    private record Report(String strategy, int chunks, long tokens, double hitRate) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ChunkingEvaluator <documents dir> <questions.tsv> "
+                    + "[chunk size] [overlap] [--dry-run]");
+            System.exit(1);
+        }
+
+        List<String> positional = new ArrayList<>();
+        boolean dryRun = false;
+        for (String arg : args) {
+            if (arg.equals("--dry-run")) {
+                dryRun = true;
+            } else {
+                positional.add(arg);
+            }
+        }
+
+        Path documentsDir = Path.of(positional.get(0));
+        List<Question> questions = readQuestions(Path.of(positional.get(1)));
+        ChunkingConfig config = positional.size() >= 4
+                ? new ChunkingConfig(Integer.parseInt(positional.get(2)), Integer.parseInt(positional.get(3)))
+                : ChunkingConfig.DEFAULT;
+
+        List<File> documents = new ArrayList<>();
+        try (var files = Files.list(documentsDir)) {
+            files.filter(Files::isRegularFile).map(Path::toFile).sorted().forEach(documents::add);
+        }
+
+        Map<String, Function<String, Chunker>> strategies = new LinkedHashMap<>();
+        strategies.put("recursive", fileName -> new RecursiveCharacterChunker(config));
+        strategies.put("token", fileName -> new TokenChunker(config));
+        strategies.put("content-aware", fileName -> Chunkers.forFile(fileName, config));
+
+        EmbeddingModel embeddingModel = dryRun ? null
+                : OpenAiModels.embeddingModel(AppConfig.getString("OPENAI_API_KEY", null))
+                .modelName("text-embedding-3-small")
+                .build();
+        List<Embedding> questionEmbeddings = dryRun ? List.of() : embedQuestions(embeddingModel, questions);
+
+        System.out.printf("%d documents, %d questions, chunk size %d, overlap %d tokens%n%n",
+                documents.size(), questions.size(), config.chunkSize(), config.chunkOverlap());
+
+        List<Report> reports = new ArrayList<>();
+        for (Map.Entry<String, Function<String, Chunker>> strategy : strategies.entrySet()) {
+            reports.add(evaluate(strategy.getKey(), strategy.getValue(), documents, questions,
+                    embeddingModel, questionEmbeddings));
+        }
+
+        System.out.printf("%-14s %8s %12s %10s %10s%n", "strategy", "chunks", "tokens", "cost USD", "hit@" + TOP_K);
+        for (Report report : reports) {
+            System.out.printf("%-14s %8d %12d %10.4f %10s%n",
+                    report.strategy(), report.chunks(), report.tokens(),
+                    report.tokens() * PRICE_PER_MILLION_TOKENS / 1_000_000,
+                    dryRun ? "-" : String.format("%.1f%%", report.hitRate() * 100));
+        }
+    }
+
+    private static Report evaluate(String strategy, Function<String, Chunker> chunkerForFile, List<File> documents,
+            List<Question> questions, EmbeddingModel embeddingModel, List<Embedding> questionEmbeddings)
+            throws IOException {
+        InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+        int chunkCount = 0;
+        long tokenCount = 0;
+
+        for (File document : documents) {
+            List<TextSegment> batch = new ArrayList<>(EMBEDDING_BATCH_SIZE);
+            try (Reader reader = ResourceService.openContentReader(document)) {
+                Iterator<TextChunk> chunks = chunkerForFile.apply(document.getName()).split(reader);
+                while (chunks.hasNext()) {
+                    TextChunk chunk = chunks.next();
+                    chunkCount++;
+
+                    Metadata metadata = new Metadata();
+                    metadata.put(SegmentMetadata.FILE_NAME, document.getName());
+                    batch.add(TextSegment.from(chunk.text(), metadata));
+                    if (batch.size() == EMBEDDING_BATCH_SIZE) {
+                        tokenCount += embed(embeddingModel, store, batch);
+                    }
+                }
+                tokenCount += embed(embeddingModel, store, batch);
+            }
+        }
+
+        if (embeddingModel == null) {
+            return new Report(strategy, chunkCount, tokenCount, 0);
+        }
+
+        int hits = 0;
+        for (int i = 0; i < questions.size(); i++) {
+            List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                    .queryEmbedding(questionEmbeddings.get(i))
+                    .maxResults(TOP_K)
+                    .build())
+                    .matches();
+            String expected = questions.get(i).expectedFile();
+            if (matches.stream().anyMatch(match -> expected.equals(SegmentMetadata.getFileName(match.embedded())))) {
+                hits++;
+            }
+        }
+        return new Report(strategy, chunkCount, tokenCount, questions.isEmpty() ? 0 : (double) hits / questions.size());
+    }
+
+    /**
+     * Embed and store a batch, returning the tokens billed for it. Without a
+     * model the tokens are only estimated.
+     */
+    private static long embed(EmbeddingModel embeddingModel, InMemoryEmbeddingStore<TextSegment> store,
+            List<TextSegment> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long estimated = batch.stream().mapToLong(segment -> TokenCounter.count(segment.text())).sum();
+        long tokens = estimated;
+        if (embeddingModel != null) {
+            Response<List<Embedding>> response = embeddingModel.embedAll(batch);
+            store.addAll(response.content(), batch);
+            if (response.tokenUsage() != null && response.tokenUsage().inputTokenCount() != null) {
+                tokens = response.tokenUsage().inputTokenCount();
+            }
+        }
+        batch.clear();
+        return tokens;
+    }
+
+    private static List<Embedding> embedQuestions(EmbeddingModel embeddingModel, List<Question> questions) {
+        List<TextSegment> segments = questions.stream().map(question -> TextSegment.from(question.text())).toList();
+        return segments.isEmpty() ? List.of() : embeddingModel.embedAll(segments).content();
+    }
+
+    private static List<Question> readQuestions(Path file) throws IOException {
+        List<Question> questions = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\t", 2);
+            if (parts.length == 2) {
+                questions.add(new Question(parts[0].trim(), parts[1].trim()));
+            }
+        }
+        return questions;
+    }
+}
@@ -0,0 +1,132 @@
+package dev.assignment.service.chunking;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads text line by line, keeping line terminators so consecutive lines
+ * are contiguous slices of the source. A form feed ends a line and starts a
+ * new page. Overlong lines are returned in parts to keep memory bounded.
+ */
+class LineReader implements Iterator<LineReader.Line> {
+
+    static final char PAGE_BREAK = '\f';
+
+    private static final int READ_SIZE = 8 * 1024;
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+
+    /**
+     * A line of text, starting at a character offset of the source
+     */
+    record Line(String text, int start, int page, boolean pageStart) {
+
+        boolean isBlank() {
+            return text.isBlank();
+        }
+    }
+
+    private final Reader reader;
+    private final char[] readBuffer = new char[READ_SIZE];
+    private int readPosition = 0;
+    private int readLimit = 0;
+    private boolean endOfInput = false;
+
+    private int offset = 0;
+    private int page = 1;
+    private boolean pageStart = false;
+    private Line next;
+
+    LineReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !endOfInput) {
+            try {
+                next = readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Line next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Line line = next;
+        next = null;
+        return line;
+    }
+
+    private Line readLine() throws IOException {
+        StringBuilder text = new StringBuilder();
+        boolean pageBreak = false;
+
+        while (text.length() < MAX_LINE_LENGTH) {
+            int c = read();
+            if (c == -1) {
+                break;
+            }
+            text.append((char) c);
+            if (c == '\n' || c == PAGE_BREAK) {
+                pageBreak = c == PAGE_BREAK;
+                break;
+            }
+            if (c == '\r') {
+                if (peek() == '\n') {
+                    text.append((char) read());
+                }
+                break;
+            }
+        }
+
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        Line line = new Line(text.toString(), offset, page, pageStart);
+        offset += text.length();
+        pageStart = pageBreak;
+        if (pageBreak) {
+            page++;
+        }
+        return line;
+    }
+
+    private int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return readBuffer[readPosition++];
+    }
+
+    private int peek() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return readBuffer[readPosition];
+    }
+
+    private boolean fill() throws IOException {
+        while (readPosition == readLimit) {
+            if (endOfInput) {
+                return false;
+            }
+            int read = reader.read(readBuffer);
+            if (read == -1) {
+                endOfInput = true;
+                return false;
+            }
+            readPosition = 0;
+            readLimit = read;
+        }
+        return true;
+    }
+}
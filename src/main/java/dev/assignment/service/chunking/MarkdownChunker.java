@@ -0,0 +1,86 @@
+package dev.assignment.service.chunking;
+
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+import dev.assignment.model.ChunkingConfig;
+
+/**
+ * Heading-aware chunker for Markdown. Headings start a new section, so
+ * chunks follow the document structure, and fenced code blocks are kept in
+ * one piece unless they are larger than a chunk on their own.
+ */
+public class MarkdownChunker implements Chunker {
+
+    private static final Pattern HEADING = Pattern.compile("^ {0,3}#{1,6}(\\s.*)?$", Pattern.DOTALL);
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(```|~~~).*", Pattern.DOTALL);
+
+    /**
+     * Fenced blocks longer than this are passed on line by line
+     */
+    private static final int MAX_BLOCK_LENGTH = 64 * 1024;
+
+    private final ChunkingConfig config;
+
+    public MarkdownChunker(ChunkingConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public String name() {
+        return "markdown";
+    }
+
+    @Override
+    public Iterator<TextChunk> split(Reader reader) {
+        return new ChunkPacker(new BlockIterator(new LineReader(reader)), config);
+    }
+
+    /**
+     * Turns lines into pieces: headings become section starts and fenced
+     * code blocks are merged into a single piece
+     */
+    private static class BlockIterator implements Iterator<ChunkPacker.Piece> {
+
+        private final LineReader lines;
+        private LineReader.Line lookahead;
+
+        BlockIterator(LineReader lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return lookahead != null || lines.hasNext();
+        }
+
+        @Override
+        public ChunkPacker.Piece next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LineReader.Line line = lookahead != null ? lookahead : lines.next();
+            lookahead = null;
+
+            if (HEADING.matcher(line.text()).matches()) {
+                return new ChunkPacker.Piece(line.text(), line.start(), true, -1);
+            }
+            if (!FENCE.matcher(line.text()).matches()) {
+                return new ChunkPacker.Piece(line.text(), line.start(), false, -1);
+            }
+
+            String marker = line.text().strip().substring(0, 3);
+            StringBuilder block = new StringBuilder(line.text());
+            while (lines.hasNext() && block.length() < MAX_BLOCK_LENGTH) {
+                LineReader.Line blockLine = lines.next();
+                block.append(blockLine.text());
+                if (blockLine.text().strip().startsWith(marker)) {
+                    break;
+                }
+            }
+            return new ChunkPacker.Piece(block.toString(), line.start(), false, -1);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package dev.assignment.service.chunking;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+import dev.assignment.model.ChunkingConfig;
+
+/**
+ * Chunker for extracted PDF text. Pages are separated by form feeds; a new
+ * page closes the current chunk unless it is still small, so chunks rarely
+ * span pages and every chunk records the page it starts on.
+ */
+public class PdfPageChunker implements Chunker {
+
+    private final ChunkingConfig config;
+
+    public PdfPageChunker(ChunkingConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public String name() {
+        return "pdf-page";
+    }
+
+    @Override
+    public Iterator<TextChunk> split(Reader reader) {
+        LineReader lines = new LineReader(reader);
+        Iterator<ChunkPacker.Piece> pieces = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public ChunkPacker.Piece next() {
+                LineReader.Line line = lines.next();
+                return new ChunkPacker.Piece(line.text(), line.start(), line.pageStart(), line.page());
+            }
+        };
+        return new ChunkPacker(pieces, config);
+    }
+}
@@ -0,0 +1,32 @@
+package dev.assignment.service.chunking;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+import dev.assignment.model.ChunkingConfig;
+import dev.assignment.util.TokenCounter;
+
+/**
+ * The original character-based recursive splitting, with sizes converted
+ * from tokens. Kept as the baseline for evaluating the other strategies.
+ */
+public class RecursiveCharacterChunker implements Chunker {
+
+    private final ChunkingConfig config;
+
+    public RecursiveCharacterChunker(ChunkingConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public String name() {
+        return "recursive";
+    }
+
+    @Override
+    public Iterator<TextChunk> split(Reader reader) {
+        return new StreamingTextSplitter(reader,
+                config.chunkSize() * TokenCounter.CHARS_PER_TOKEN,
+                config.chunkOverlap() * TokenCounter.CHARS_PER_TOKEN);
+    }
+}
@@ -0,0 +1,195 @@
+package dev.assignment.service.chunking;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits text read from a {@link Reader} into chunks lazily. Only one chunk
+ * plus the look-ahead needed to find its boundary is buffered, so memory
+ * does not grow with the document.
+ *
+ * Chunks follow the rules of the recursive splitter: at most
+ * {@code maxChunkSize} characters, cut at the coarsest boundary available
+ * (paragraph, line, sentence, word) and consecutive chunks overlapping by
+ * about {@code overlap} characters, starting on a word boundary.
+ */
+public class StreamingTextSplitter implements Iterator<TextChunk> {
+
+    private static final int READ_SIZE = 8 * 1024;
+    private static final String[] SENTENCE_ENDS = { ". ", "! ", "? ", ".\n", "!\n", "?\n" };
+
+    private final Reader reader;
+    private final int maxChunkSize;
+    private final int overlap;
+    private final char[] readBuffer = new char[READ_SIZE];
+
+    private final StringBuilder buffer = new StringBuilder();
+    private int bufferStart = 0;
+    private long charactersRead = 0;
+    private boolean endOfInput = false;
+    private int nextIndex = 0;
+    private TextChunk next;
+
+    public StreamingTextSplitter(Reader reader, int maxChunkSize, int overlap) {
+        if (maxChunkSize <= 0 || overlap < 0 || overlap >= maxChunkSize) {
+            throw new IllegalArgumentException(
+                    "Invalid chunk size " + maxChunkSize + " / overlap " + overlap);
+        }
+        this.reader = reader;
+        this.maxChunkSize = maxChunkSize;
+        this.overlap = overlap;
+    }
+
+    /**
+     * Number of characters consumed from the reader so far. Once iteration is
+     * complete this is the length of the whole text.
+     */
+    public long getCharactersRead() {
+        return charactersRead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readNextChunk();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public TextChunk next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TextChunk chunk = next;
+        next = null;
+        return chunk;
+    }
+
+    private TextChunk readNextChunk() throws IOException {
+        while (true) {
+            fill(maxChunkSize + 1);
+            if (buffer.isEmpty()) {
+                return null;
+            }
+
+            int cut;
+            int nextStart;
+            if (endOfInput && buffer.length() <= maxChunkSize) {
+                cut = buffer.length();
+                nextStart = cut;
+            } else {
+                cut = findCut();
+                nextStart = findNextStart(cut);
+            }
+
+            TextChunk chunk = toChunk(cut);
+            buffer.delete(0, nextStart);
+            bufferStart += nextStart;
+
+            if (chunk != null) {
+                return chunk;
+            }
+        }
+    }
+
+    /**
+     * Read until the buffer holds at least {@code size} characters or the
+     * input is exhausted
+     */
+    private void fill(int size) throws IOException {
+        while (!endOfInput && buffer.length() < size) {
+            int read = reader.read(readBuffer);
+            if (read == -1) {
+                endOfInput = true;
+            } else {
+                buffer.append(readBuffer, 0, read);
+                charactersRead += read;
+            }
+        }
+    }
+
+    /**
+     * Choose where the current chunk ends: the last paragraph break within the
+     * size limit, falling back to line, sentence and word boundaries, and to
+     * a hard cut when the window has none. Boundaries in the first half of the
+     * window are ignored so chunks are not needlessly small.
+     */
+    private int findCut() {
+        int window = Math.min(maxChunkSize, buffer.length());
+        int minimum = window / 2;
+
+        int cut = lastBoundary("\n\n", window, minimum);
+        if (cut < 0) {
+            cut = lastBoundary("\n", window, minimum);
+        }
+        if (cut < 0) {
+            for (String sentenceEnd : SENTENCE_ENDS) {
+                cut = Math.max(cut, lastBoundary(sentenceEnd, window, minimum));
+            }
+        }
+        if (cut < 0) {
+            cut = lastBoundary(" ", window, minimum);
+        }
+        return cut > 0 ? cut : window;
+    }
+
+    /**
+     * Position just after the last occurrence of a separator ending within the
+     * window, or -1 if there is none past the minimum
+     */
+    private int lastBoundary(String separator, int window, int minimum) {
+        int position = buffer.lastIndexOf(separator, window - separator.length());
+        if (position < 0) {
+            return -1;
+        }
+        int end = position + separator.length();
+        return end > minimum ? end : -1;
+    }
+
+    /**
+     * Start of the next chunk: {@code overlap} characters before the cut,
+     * moved forward to the next word so the overlap does not begin mid-word
+     */
+    private int findNextStart(int cut) {
+        if (overlap == 0) {
+            return cut;
+        }
+        int start = Math.max(1, cut - overlap);
+        if (!Character.isWhitespace(buffer.charAt(start - 1))) {
+            while (start < cut && !Character.isWhitespace(buffer.charAt(start))) {
+                start++;
+            }
+        }
+        while (start < cut && Character.isWhitespace(buffer.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Build the chunk for buffer[0, cut) with surrounding whitespace removed,
+     * or null if it is blank
+     */
+    private TextChunk toChunk(int cut) {
+        int start = 0;
+        int end = cut;
+        while (start < end && Character.isWhitespace(buffer.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(buffer.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        return new TextChunk(nextIndex++, buffer.substring(start, end), bufferStart + start, bufferStart + end);
+    }
+}
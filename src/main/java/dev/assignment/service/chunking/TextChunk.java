@@ -0,0 +1,12 @@
+package dev.assignment.service.chunking;
+
+/**
+ * A chunk of document text with its character offsets in the source text.
+ * The page is 1-based, or -1 when the source has no pages.
+ */
+public record TextChunk(int index, String text, int startOffset, int endOffset, int page) {
+
+    public TextChunk(int index, String text, int startOffset, int endOffset) {
+        this(index, text, startOffset, endOffset, -1);
+    }
+}
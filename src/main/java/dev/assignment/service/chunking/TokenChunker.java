@@ -0,0 +1,42 @@
+package dev.assignment.service.chunking;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+import dev.assignment.model.ChunkingConfig;
+
+/**
+ * General-purpose chunker: packs lines into chunks measured in tokens,
+ * splitting long lines at sentence and word boundaries
+ */
+public class TokenChunker implements Chunker {
+
+    private final ChunkingConfig config;
+
+    public TokenChunker(ChunkingConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public String name() {
+        return "token";
+    }
+
+    @Override
+    public Iterator<TextChunk> split(Reader reader) {
+        LineReader lines = new LineReader(reader);
+        Iterator<ChunkPacker.Piece> pieces = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public ChunkPacker.Piece next() {
+                LineReader.Line line = lines.next();
+                return new ChunkPacker.Piece(line.text(), line.start(), false, -1);
+            }
+        };
+        return new ChunkPacker(pieces, config);
+    }
+}
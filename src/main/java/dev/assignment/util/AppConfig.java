@@ -0,0 +1,168 @@
+package dev.assignment.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Optional application settings read from system properties, the .env file
+ * or the environment, in that order
+ */
+public class AppConfig {
+
+    private static final Logger logger = LogManager.getLogger(AppConfig.class);
+
+    private static final Dotenv dotenv = Dotenv.configure()
+            .ignoreIfMissing()
+            .load();
+
+    /**
+     * Embedding storage backend: "file" (Java-serialized cache per session) or
+     * "sqlite" (segments and vectors stored in rag_sessions.db)
+     */
+    public static final String EMBEDDING_STORAGE = "EMBEDDING_STORAGE";
+
+    /**
+     * Number of files indexed concurrently during a bulk import; raise it
+     * with the embedding API rate limit
+     */
+    public static final String INDEXING_THREADS = "INDEXING_THREADS";
+
+    /**
+     * Base URL of an OpenAI-compatible API, e.g. http://localhost:8089/v1 for
+     * the stub server used in load tests; the public API when unset
+     */
+    public static final String OPENAI_BASE_URL = "OPENAI_BASE_URL";
+
+    /**
+     * Port of the local Prometheus metrics endpoint; disabled when unset
+     */
+    public static final String METRICS_PORT = "METRICS_PORT";
+
+    /**
+     * Keep a continuous Flight Recorder recording of the last half hour that
+     * can be saved from the status bar
+     */
+    public static final String JFR_RECORDING = "JFR_RECORDING";
+
+    /**
+     * Port of the headless HTTP server (RagServer); 8080 when unset
+     */
+    public static final String SERVER_PORT = "SERVER_PORT";
+
+    /**
+     * Largest in-memory index of one session in MB; indexing that would grow
+     * a session beyond it stops
+     */
+    public static final String SESSION_MEMORY_LIMIT_MB = "SESSION_MEMORY_LIMIT_MB";
+
+    /**
+     * Memory in MB shared by the indexes of all loaded sessions; the least
+     * recently used idle sessions are unloaded when it is exceeded
+     */
+    public static final String SESSION_MEMORY_BUDGET_MB = "SESSION_MEMORY_BUDGET_MB";
+
+    /**
+     * Minutes after which an unused session's index is unloaded and reloaded
+     * from its on-disk cache on next use
+     */
+    public static final String SESSION_IDLE_MINUTES = "SESSION_IDLE_MINUTES";
+
+    /**
+     * Number of likely follow-up questions embedded after each answer, so a
+     * follow-up skips the embedding request; 0 (the default) disables it
+     */
+    public static final String PREFETCH_FOLLOW_UPS = "PREFETCH_FOLLOW_UPS";
+
+    /**
+     * Most tokens of retrieved context put into one prompt; lowered further
+     * when the model's context window is nearly full
+     */
+    public static final String MAX_CONTEXT_TOKENS = "MAX_CONTEXT_TOKENS";
+
+    /**
+     * Path of a cross-encoder ONNX model, e.g. ms-marco-MiniLM-L-6-v2, used
+     * to re-rank retrieved segments; unset (the default) keeps the hybrid
+     * lexical re-ranking
+     */
+    public static final String RERANKER_MODEL = "RERANKER_MODEL";
+
+    /**
+     * Path of the cross-encoder's tokenizer.json; defaults to the one next
+     * to the model
+     */
+    public static final String RERANKER_TOKENIZER = "RERANKER_TOKENIZER";
+
+    /**
+     * Number of re-rankings the cross-encoder runs at once
+     */
+    public static final String RERANKER_THREADS = "RERANKER_THREADS";
+
+    /**
+     * 95th percentile latency in milliseconds the cross-encoder may take;
+     * above it queries fall back to the hybrid re-ranking
+     */
+    public static final String RERANKER_P95_BUDGET_MS = "RERANKER_P95_BUDGET_MS";
+
+    private AppConfig() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Get a string setting
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.isBlank()) {
+            value = dotenv.get(key);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Get an integer setting, falling back to the default if it is not a number
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid integer for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a decimal setting, falling back to the default if it is not a number
+     */
+    public static double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid number for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a boolean setting ("true", "yes", "1" or "on" enable it)
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return switch (value.toLowerCase()) {
+            case "true", "yes", "1", "on" -> true;
+            default -> false;
+        };
+    }
+}
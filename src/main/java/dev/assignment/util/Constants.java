@@ -1,5 +1,7 @@
 package dev.assignment.util;
 
+import java.util.Map;
+
 /**
  * Application constants
  */
@@ -19,16 +21,65 @@ public class Constants {
             "gpt-5-nano"
     };
 
+    /**
+     * Context window in tokens of each available model
+     */
+    public static final Map<String, Integer> MODEL_CONTEXT_WINDOWS = Map.of(
+            "gpt-4o-mini", 128_000,
+            "gpt-4o", 128_000,
+            "gpt-4.1", 1_047_576,
+            "gpt-4.1-mini", 1_047_576,
+            "gpt-4.1-nano", 1_047_576,
+            "gpt-5", 400_000,
+            "gpt-5-mini", 400_000,
+            "gpt-5-nano", 400_000);
+
+    /**
+     * Context window assumed for models not listed above
+     */
+    public static final int DEFAULT_CONTEXT_WINDOW = 128_000;
+
     /**
      * Default model
      */
     public static final String DEFAULT_MODEL = "gpt-4o-mini";
 
+    /**
+     * Embedding models a session can use: OpenAI's, or a quantized
+     * all-MiniLM-L6-v2 run in-process on the CPU
+     */
+    public static final String[] AVAILABLE_EMBEDDING_MODELS = {
+            "text-embedding-3-small",
+            "all-minilm-l6-v2-q"
+    };
+
+    /**
+     * Dimension of the vectors of each available embedding model
+     */
+    public static final Map<String, Integer> EMBEDDING_MODEL_DIMENSIONS = Map.of(
+            "text-embedding-3-small", 1536,
+            "all-minilm-l6-v2-q", 384);
+
+    /**
+     * Default embedding model
+     */
+    public static final String DEFAULT_EMBEDDING_MODEL = "text-embedding-3-small";
+
+    /**
+     * The embedding model that runs in-process instead of calling an API
+     */
+    public static final String LOCAL_EMBEDDING_MODEL = "all-minilm-l6-v2-q";
+
     /**
      * Maximum query length in characters
      */
     public static final int MAX_QUERY_LENGTH = 4000;
 
+    /**
+     * Maximum query length in chat model tokens
+     */
+    public static final int MAX_QUERY_TOKENS = 1000;
+
     /**
      * Maximum number of documents per knowledge base
      */
@@ -39,6 +90,13 @@ public class Constants {
      */
     public static final long MAX_DOCUMENT_SIZE_BYTES = 50 * 1024 * 1024;
 
+    /**
+     * Get the context window of a model in tokens
+     */
+    public static int getContextWindow(String model) {
+        return MODEL_CONTEXT_WINDOWS.getOrDefault(model, DEFAULT_CONTEXT_WINDOW);
+    }
+
     private Constants() {
         // Prevent instantiation
     }
@@ -0,0 +1,70 @@
+package dev.assignment.util;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * Metadata keys attached to indexed text segments
+ */
+public class SegmentMetadata {
+
+    /**
+     * Name of the knowledge base file the segment was taken from
+     */
+    public static final String FILE_NAME = "fileName";
+
+    /**
+     * Position of the segment within its file (0-based)
+     */
+    public static final String INDEX = "index";
+
+    /**
+     * Character offset of the segment start in the extracted text, or -1
+     */
+    public static final String START_OFFSET = "startOffset";
+
+    /**
+     * Character offset just past the segment end in the extracted text, or -1
+     */
+    public static final String END_OFFSET = "endOffset";
+
+    /**
+     * Page the segment starts on (1-based), only set for paged documents
+     */
+    public static final String PAGE = "page";
+
+    private SegmentMetadata() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Get the file name of a segment, or null if it has none
+     */
+    public static String getFileName(TextSegment segment) {
+        Metadata metadata = segment.metadata();
+        if (metadata == null || !metadata.containsKey(FILE_NAME)) {
+            return null;
+        }
+        return metadata.getString(FILE_NAME);
+    }
+
+    /**
+     * Get an integer metadata value. Values restored from the file cache are
+     * stored as strings, so both representations are accepted.
+     */
+    public static int getInt(TextSegment segment, String key, int defaultValue) {
+        Metadata metadata = segment.metadata();
+        if (metadata == null || !metadata.containsKey(key)) {
+            return defaultValue;
+        }
+        Object value = metadata.toMap().get(key);
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        try {
+            return Integer.parseInt(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package dev.assignment.util;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+
+/**
+ * Exact token counts from the BPE vocabularies of the OpenAI models, computed
+ * offline with JTokkit. Segments are counted with cl100k_base, the vocabulary
+ * of the embedding model; prompts and chat messages with the vocabulary of
+ * the chat model, o200k_base for every model in
+ * {@link Constants#AVAILABLE_MODELS}.
+ */
+public class TokenCounter {
+
+    /**
+     * Average number of characters per token in English prose, for sizes that
+     * are set in characters
+     */
+    public static final int CHARS_PER_TOKEN = 4;
+
+    /**
+     * Upper bound on the characters of one token, limiting how much text is
+     * encoded to find a prefix that fits
+     */
+    private static final int MAX_CHARS_PER_TOKEN = 64;
+
+    private static final EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+    private static final Encoding EMBEDDING_ENCODING = registry.getEncoding(EncodingType.CL100K_BASE);
+    private static final Encoding CHAT_ENCODING = registry.getEncoding(EncodingType.O200K_BASE);
+
+    private TokenCounter() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Count the tokens of a text as the embedding model sees them
+     */
+    public static int count(CharSequence text) {
+        return EMBEDDING_ENCODING.countTokensOrdinary(text.toString());
+    }
+
+    /**
+     * Count the tokens of a text as a chat model sees them
+     */
+    public static int count(CharSequence text, String model) {
+        return encodingFor(model).countTokensOrdinary(text.toString());
+    }
+
+    /**
+     * Length of the longest start of a text that has at most the given number
+     * of embedding model tokens. The prefix never ends between the halves of
+     * a surrogate pair, so it is 0 when even the first character does not fit.
+     */
+    public static int fittingLength(CharSequence text, int maxTokens) {
+        String window = text.subSequence(0, (int) Math.min(text.length(), (long) maxTokens * MAX_CHARS_PER_TOKEN))
+                .toString();
+        int budget = maxTokens;
+        while (budget > 0) {
+            String decoded = EMBEDDING_ENCODING.decode(EMBEDDING_ENCODING.encodeOrdinary(window, budget).getTokens());
+            // A token list cut inside a multi-byte character decodes to a
+            // replacement character, which ends the common prefix
+            int length = 0;
+            int limit = Math.min(decoded.length(), window.length());
+            while (length < limit && decoded.charAt(length) == window.charAt(length)) {
+                length++;
+            }
+            if (length > 0 && Character.isHighSurrogate(window.charAt(length - 1))) {
+                length--;
+            }
+
+            // Encoding the prefix on its own can take a token more than the
+            // truncated encoding did
+            int excess = count(window.substring(0, length)) - maxTokens;
+            if (excess <= 0) {
+                return length;
+            }
+            budget -= excess;
+        }
+        return 0;
+    }
+
+    /**
+     * Cut a text to at most the given number of chat model tokens
+     */
+    public static String truncate(String text, int maxTokens, String model) {
+        Encoding encoding = encodingFor(model);
+        return encoding.decode(encoding.encodeOrdinary(text, maxTokens).getTokens());
+    }
+
+    private static Encoding encodingFor(String model) {
+        if (model == null) {
+            return CHAT_ENCODING;
+        }
+        return registry.getEncodingForModel(model).orElse(CHAT_ENCODING);
+    }
+}
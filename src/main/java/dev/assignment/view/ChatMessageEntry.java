@@ -44,7 +44,7 @@ public final class ChatMessageEntry extends VBox {
 
         // Add sources label if available (for AI messages)
         if (!message.isUser() && message.hasSources()) {
-            setSources(message.sources());
+            setSources(message.sourcesText());
         }
 
         setSpacing(0);
@@ -64,6 +64,13 @@ public final class ChatMessageEntry extends VBox {
         messageLabel.setText(messageLabel.getText() + text);
     }
 
+    /**
+     * Highlight this message as the target of a chat search
+     */
+    public void markAsSearchHit() {
+        messageLabel.getStyleClass().add("search-hit");
+    }
+
     /**
      * Set the sources for the message
      */
@@ -1,5 +1,8 @@
 package dev.assignment.view;
 
+import dev.assignment.model.ChunkingConfig;
+import dev.assignment.model.EmbeddingConfig;
+import dev.assignment.model.RetrievalConfig;
 import dev.assignment.model.Session;
 import dev.assignment.service.DatabaseService;
 import dev.assignment.util.Constants;
@@ -14,6 +17,15 @@ public class EditSessionDialog {
     private final Alert dialog;
     private final TextField nameField;
     private final ComboBox<String> modelComboBox;
+    private final ComboBox<String> embeddingModelComboBox;
+    private final Spinner<Integer> chunkSizeSpinner;
+    private final Spinner<Integer> chunkOverlapSpinner;
+    private final Spinner<Integer> maxResultsSpinner;
+    private final Spinner<Integer> candidatesSpinner;
+    private final Spinner<Integer> maxCandidatesSpinner;
+    private final Spinner<Double> minScoreSpinner;
+    private final Spinner<Double> clusterMarginSpinner;
+    private final Spinner<Double> scoreGapSpinner;
     private final Session session;
 
     /**
@@ -37,13 +49,89 @@ public class EditSessionDialog {
         modelComboBox.setValue(session.getModel());
         modelComboBox.setPrefWidth(300);
 
+        Label embeddingModelLabel = new Label("Embedding model:");
+        embeddingModelComboBox = new ComboBox<>();
+        embeddingModelComboBox.getItems().addAll(Constants.AVAILABLE_EMBEDDING_MODELS);
+        embeddingModelComboBox.setValue(session.getEmbeddingConfig().model());
+        embeddingModelComboBox.setPrefWidth(300);
+
+        ChunkingConfig chunking = session.getChunkingConfig();
+
+        Label chunkSizeLabel = new Label("Chunk size (tokens):");
+        chunkSizeSpinner = new Spinner<>(ChunkingConfig.MIN_CHUNK_SIZE, ChunkingConfig.MAX_CHUNK_SIZE,
+                chunking.chunkSize(), 16);
+        chunkSizeSpinner.setEditable(true);
+        chunkSizeSpinner.setPrefWidth(300);
+
+        Label chunkOverlapLabel = new Label("Chunk overlap (tokens):");
+        chunkOverlapSpinner = new Spinner<>(0, chunking.chunkSize() / 2, chunking.chunkOverlap(), 4);
+        chunkOverlapSpinner.setEditable(true);
+        chunkOverlapSpinner.setPrefWidth(300);
+
+        // Overlap may be at most half a chunk
+        chunkSizeSpinner.valueProperty().addListener((observable, oldValue, newValue) -> {
+            SpinnerValueFactory.IntegerSpinnerValueFactory overlapFactory =
+                    (SpinnerValueFactory.IntegerSpinnerValueFactory) chunkOverlapSpinner.getValueFactory();
+            overlapFactory.setMax(newValue / 2);
+            if (overlapFactory.getValue() > newValue / 2) {
+                overlapFactory.setValue(newValue / 2);
+            }
+        });
+
+        Label chunkingHint = new Label("Changing the embedding model or chunking re-indexes the knowledge base.");
+
+        RetrievalConfig retrieval = session.getRetrievalConfig();
+
+        Label maxResultsLabel = new Label("Results per query:");
+        maxResultsSpinner = new Spinner<>(1, RetrievalConfig.MAX_RESULTS, retrieval.maxResults());
+        Label candidatesLabel = new Label("Candidates to re-rank (normal / widened):");
+        candidatesSpinner = new Spinner<>(retrieval.maxResults(), RetrievalConfig.MAX_CANDIDATES,
+                retrieval.candidates());
+        maxCandidatesSpinner = new Spinner<>(retrieval.candidates(), RetrievalConfig.MAX_CANDIDATES,
+                retrieval.maxCandidates(), 5);
+        Label minScoreLabel = new Label("Minimum similarity:");
+        minScoreSpinner = new Spinner<>(0.0, 1.0, retrieval.minScore(), 0.05);
+        Label clusterMarginLabel = new Label("Widen when top scores are within:");
+        clusterMarginSpinner = new Spinner<>(0.0, 1.0, retrieval.clusterMargin(), 0.01);
+        Label scoreGapLabel = new Label("Cut off at a score drop of:");
+        scoreGapSpinner = new Spinner<>(0.01, 1.0, retrieval.scoreGap(), 0.01);
+        for (Spinner<?> spinner : new Spinner<?>[] { maxResultsSpinner, candidatesSpinner, maxCandidatesSpinner,
+                minScoreSpinner, clusterMarginSpinner, scoreGapSpinner }) {
+            spinner.setEditable(true);
+            spinner.setPrefWidth(300);
+        }
+
+        // Results <= candidates <= widened candidates
+        maxResultsSpinner.valueProperty().addListener((observable, oldValue, newValue) -> keepAtLeast(
+                candidatesSpinner, newValue));
+        candidatesSpinner.valueProperty().addListener((observable, oldValue, newValue) -> keepAtLeast(
+                maxCandidatesSpinner, newValue));
+
         VBox content = new VBox(10);
         content.setPadding(new Insets(10));
         content.getChildren().addAll(
                 sessionNameLabel,
                 nameField,
                 modelLabel,
-                modelComboBox);
+                modelComboBox,
+                embeddingModelLabel,
+                embeddingModelComboBox,
+                chunkSizeLabel,
+                chunkSizeSpinner,
+                chunkOverlapLabel,
+                chunkOverlapSpinner,
+                chunkingHint,
+                maxResultsLabel,
+                maxResultsSpinner,
+                candidatesLabel,
+                candidatesSpinner,
+                maxCandidatesSpinner,
+                minScoreLabel,
+                minScoreSpinner,
+                clusterMarginLabel,
+                clusterMarginSpinner,
+                scoreGapLabel,
+                scoreGapSpinner);
 
         dialog.getDialogPane().setContent(content);
 
@@ -78,9 +166,42 @@ public class EditSessionDialog {
 
         if (!newName.isEmpty()) {
             DatabaseService.getInstance().updateSession(session.getId(), newName, newModel);
+
+            ChunkingConfig newChunking = new ChunkingConfig(chunkSizeSpinner.getValue(),
+                    Math.min(chunkOverlapSpinner.getValue(), chunkSizeSpinner.getValue() / 2));
+            if (!newChunking.equals(session.getChunkingConfig())) {
+                DatabaseService.getInstance().updateSessionChunking(session.getId(), newChunking);
+            }
+
+            EmbeddingConfig newEmbedding = EmbeddingConfig.forModel(embeddingModelComboBox.getValue());
+            if (!newEmbedding.equals(session.getEmbeddingConfig())) {
+                DatabaseService.getInstance().updateSessionEmbedding(session.getId(), newEmbedding);
+            }
+
+            int maxResults = maxResultsSpinner.getValue();
+            int candidates = Math.max(candidatesSpinner.getValue(), maxResults);
+            RetrievalConfig newRetrieval = new RetrievalConfig(maxResults, candidates,
+                    Math.max(maxCandidatesSpinner.getValue(), candidates), minScoreSpinner.getValue(),
+                    clusterMarginSpinner.getValue(), scoreGapSpinner.getValue());
+            if (!newRetrieval.equals(session.getRetrievalConfig())) {
+                DatabaseService.getInstance().updateSessionRetrieval(session.getId(), newRetrieval);
+            }
             return true;
         }
 
         return false;
     }
+
+    /**
+     * Set the lower bound of an integer spinner, moving its value up if
+     * needed
+     */
+    private static void keepAtLeast(Spinner<Integer> spinner, int min) {
+        SpinnerValueFactory.IntegerSpinnerValueFactory factory =
+                (SpinnerValueFactory.IntegerSpinnerValueFactory) spinner.getValueFactory();
+        factory.setMin(min);
+        if (factory.getValue() < min) {
+            factory.setValue(min);
+        }
+    }
 }
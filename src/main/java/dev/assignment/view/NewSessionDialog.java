@@ -1,5 +1,6 @@
 package dev.assignment.view;
 
+import dev.assignment.model.EmbeddingConfig;
 import dev.assignment.model.Session;
 import dev.assignment.service.DatabaseService;
 import dev.assignment.util.Constants;
@@ -19,6 +20,7 @@ public class NewSessionDialog {
     private final Alert dialog;
     private final TextField nameField;
     private final ComboBox<String> modelComboBox;
+    private final ComboBox<String> embeddingModelComboBox;
 
     /**
      * Create a new session dialog
@@ -38,13 +40,21 @@ public class NewSessionDialog {
         modelComboBox.setValue(Constants.DEFAULT_MODEL);
         modelComboBox.setPrefWidth(300);
 
+        Label embeddingModelLabel = new Label("Embedding model:");
+        embeddingModelComboBox = new ComboBox<>();
+        embeddingModelComboBox.getItems().addAll(Constants.AVAILABLE_EMBEDDING_MODELS);
+        embeddingModelComboBox.setValue(Constants.DEFAULT_EMBEDDING_MODEL);
+        embeddingModelComboBox.setPrefWidth(300);
+
         VBox content = new VBox(10);
         content.setPadding(new Insets(10));
         content.getChildren().addAll(
                 nameLabel,
                 nameField,
                 modelLabel,
-                modelComboBox);
+                modelComboBox,
+                embeddingModelLabel,
+                embeddingModelComboBox);
 
         dialog.getDialogPane().setContent(content);
 
@@ -92,6 +102,12 @@ public class NewSessionDialog {
         newSession.setModel(model);
         databaseService.updateSession(newSession.getId(), name, model);
 
+        EmbeddingConfig embedding = EmbeddingConfig.forModel(embeddingModelComboBox.getValue());
+        if (!embedding.equals(newSession.getEmbeddingConfig())) {
+            newSession.setEmbeddingConfig(embedding);
+            databaseService.updateSessionEmbedding(newSession.getId(), embedding);
+        }
+
         return newSession;
     }
 
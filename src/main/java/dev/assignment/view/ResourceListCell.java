@@ -1,6 +1,11 @@
 package dev.assignment.view;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import dev.assignment.model.DocumentStats;
 import dev.assignment.model.Resource;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
@@ -9,17 +14,23 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 
 /**
- * Custom ListCell for displaying Resource items
+ * Custom ListCell for displaying Resource items. Rows only show persisted
+ * statistics; missing ones are requested from the stats loader and filled in
+ * when they arrive, so rendering never reads a document.
  */
 public class ResourceListCell extends ListCell<Resource> {
 
+    private static final String PLACEHOLDER = "…";
+
     private final HBox container;
     private final Label nameLabel;
     private final Label countLabel;
     private final Region spacer;
+    private final Function<Resource, CompletableFuture<DocumentStats>> statsLoader;
 
-    public ResourceListCell() {
+    public ResourceListCell(Function<Resource, CompletableFuture<DocumentStats>> statsLoader) {
         super();
+        this.statsLoader = statsLoader;
 
         container = new HBox(10);
         container.setAlignment(Pos.CENTER_LEFT);
@@ -44,9 +55,26 @@ public class ResourceListCell extends ListCell<Resource> {
             setGraphic(null);
         } else {
             nameLabel.setText(resource.getFileName());
-            countLabel.setText(resource.getFormattedCharacterCount());
+            if (resource.getStats() != null) {
+                countLabel.setText(resource.getStats().summary());
+            } else {
+                countLabel.setText(PLACEHOLDER);
+                requestStats(resource);
+            }
             setText(null);
             setGraphic(container);
         }
     }
+
+    private void requestStats(Resource resource) {
+        statsLoader.apply(resource).whenComplete((stats, error) -> Platform.runLater(() -> {
+            if (stats != null) {
+                resource.setStats(stats);
+            }
+            // The cell may have been reused for another resource meanwhile
+            if (getItem() == resource) {
+                countLabel.setText(stats != null ? stats.summary() : "? chars");
+            }
+        }));
+    }
 }
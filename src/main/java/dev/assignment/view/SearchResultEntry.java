@@ -0,0 +1,44 @@
+package dev.assignment.view;
+
+import java.time.format.DateTimeFormatter;
+
+import dev.assignment.model.MessageSearchResult;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+
+/**
+ * Custom component for displaying a chat search result in the sidebar
+ */
+public class SearchResultEntry extends VBox {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd MMM yyyy, h.mma");
+
+    private final MessageSearchResult result;
+
+    public SearchResultEntry(MessageSearchResult result, Runnable onResultSelected) {
+        this.result = result;
+
+        getStyleClass().add("search-result-entry");
+        setSpacing(2);
+
+        Label sessionLabel = new Label(result.sessionName() + " · " + result.timestamp().format(TIMESTAMP_FORMAT));
+        sessionLabel.getStyleClass().add("muted-label");
+
+        Label snippetLabel = new Label((result.isUser() ? "You: " : "AI: ") + result.snippet());
+        snippetLabel.getStyleClass().add("search-result-snippet");
+        snippetLabel.setWrapText(true);
+        snippetLabel.setMaxWidth(Double.MAX_VALUE);
+
+        getChildren().addAll(sessionLabel, snippetLabel);
+
+        setOnMouseClicked(e -> {
+            if (onResultSelected != null) {
+                onResultSelected.run();
+            }
+        });
+    }
+
+    public MessageSearchResult getResult() {
+        return result;
+    }
+}
@@ -1,9 +1,14 @@
 package dev.assignment.view;
 
+import java.util.List;
 import java.util.function.Consumer;
 
+import dev.assignment.model.MessageSearchResult;
 import dev.assignment.model.Session;
 import dev.assignment.service.DatabaseService;
+import dev.assignment.service.TaskScheduler;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -11,15 +16,22 @@ import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
 
 /**
  * Custom sidebar component for displaying and managing sessions
  */
 public class SessionSidebar extends VBox {
 
+    private static final int SEARCH_PAGE_SIZE = 20;
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+
+    private final TextField searchField;
+    private final PauseTransition searchDebounce;
     private final VBox sessionListContainer;
     private final ScrollPane scrollPane;
     private final Button newSessionButton;
@@ -27,12 +39,24 @@ public class SessionSidebar extends VBox {
     private Session currentSession;
     private Consumer<Session> onSessionSelected;
     private Runnable onSessionChanged;
+    private Consumer<MessageSearchResult> onSearchResultSelected;
+    private String activeSearch;
+    private int searchOffset;
 
     public SessionSidebar() {
         setAlignment(Pos.CENTER);
         setPadding(new Insets(20, 0, 20, 20));
         setSpacing(0);
 
+        searchField = new TextField();
+        searchField.setPromptText("Search chats...");
+        searchField.setMaxWidth(Double.MAX_VALUE);
+        VBox.setMargin(searchField, new Insets(0, 20, 10, 0));
+
+        searchDebounce = new PauseTransition(SEARCH_DEBOUNCE);
+        searchDebounce.setOnFinished(e -> handleSearch(searchField.getText()));
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> searchDebounce.playFromStart());
+
         scrollPane = new ScrollPane();
         scrollPane.setFitToWidth(true);
         scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
@@ -53,7 +77,7 @@ public class SessionSidebar extends VBox {
         newSessionButton.setOnAction(e -> handleNewSession());
         VBox.setMargin(newSessionButton, new Insets(0, 20, 0, 0));
 
-        getChildren().addAll(scrollPane, newSessionButton);
+        getChildren().addAll(searchField, scrollPane, newSessionButton);
     }
 
     /**
@@ -74,6 +98,15 @@ public class SessionSidebar extends VBox {
         this.onSessionChanged = onSessionChanged;
     }
 
+    /**
+     * Set callback for when a chat search result is selected
+     * 
+     * @param onSearchResultSelected - the callback to set
+     */
+    public void setOnSearchResultSelected(Consumer<MessageSearchResult> onSearchResultSelected) {
+        this.onSearchResultSelected = onSearchResultSelected;
+    }
+
     /**
      * Load sessions from the database and display them in the sidebar
      */
@@ -132,6 +165,7 @@ public class SessionSidebar extends VBox {
      * Handle session changes (rename, delete, etc.) and notify parent controller
      */
     private void handleSessionChanged() {
+        clearSearch();
         String currentSessionId = currentSession != null ? currentSession.getId() : null;
 
         loadSessions();
@@ -167,6 +201,10 @@ public class SessionSidebar extends VBox {
      * session
      */
     private void refreshSessionStyling() {
+        if (activeSearch != null) {
+            return;
+        }
+
         for (int i = 0; i < sessionListContainer.getChildren().size(); i++) {
             if (sessionListContainer.getChildren().get(i) instanceof SidebarSessionEntry) {
                 SidebarSessionEntry sessionBox = (SidebarSessionEntry) sessionListContainer.getChildren().get(i);
@@ -186,6 +224,7 @@ public class SessionSidebar extends VBox {
         Session newSession = dialog.showAndWait();
 
         if (newSession != null) {
+            clearSearch();
             loadSessions();
             selectSession(newSession);
             if (onSessionChanged != null) {
@@ -194,6 +233,115 @@ public class SessionSidebar extends VBox {
         }
     }
 
+    /**
+     * Run a chat search, or go back to the session list when the query is blank
+     * 
+     * @param query - the text typed into the search field
+     */
+    private void handleSearch(String query) {
+        if (query == null || query.isBlank()) {
+            if (activeSearch != null) {
+                activeSearch = null;
+                loadSessions();
+            }
+            return;
+        }
+
+        activeSearch = query.trim();
+        searchOffset = 0;
+        runSearch(activeSearch, false);
+    }
+
+    /**
+     * Fetch one page of search results off the JavaFX thread
+     * 
+     * @param query  - the search query
+     * @param append - whether to append to the results already shown
+     */
+    private void runSearch(String query, boolean append) {
+        DatabaseService databaseService = DatabaseService.getInstance();
+        if (databaseService == null) {
+            return;
+        }
+
+        int offset = searchOffset;
+        TaskScheduler.getInstance().runIo("message-search", () -> {
+            List<MessageSearchResult> results = databaseService.searchMessages(query, SEARCH_PAGE_SIZE + 1, offset);
+
+            Platform.runLater(() -> {
+                if (!query.equals(activeSearch)) {
+                    return; // A newer search has replaced this one
+                }
+                boolean hasMore = results.size() > SEARCH_PAGE_SIZE;
+                List<MessageSearchResult> page = hasMore ? results.subList(0, SEARCH_PAGE_SIZE) : results;
+                searchOffset = offset + page.size();
+                showSearchResults(page, append, hasMore);
+            });
+        });
+    }
+
+    /**
+     * Display search results in place of the session list
+     */
+    private void showSearchResults(List<MessageSearchResult> results, boolean append, boolean hasMore) {
+        if (!append) {
+            sessionListContainer.getChildren().clear();
+        } else {
+            sessionListContainer.getChildren().removeIf(node -> node instanceof Button);
+        }
+
+        if (!append && results.isEmpty()) {
+            Label emptyLabel = new Label("No matching messages.");
+            emptyLabel.getStyleClass().add("muted-label");
+            emptyLabel.setMaxWidth(Double.MAX_VALUE);
+            emptyLabel.setAlignment(Pos.CENTER);
+            sessionListContainer.getChildren().add(emptyLabel);
+            return;
+        }
+
+        for (MessageSearchResult result : results) {
+            sessionListContainer.getChildren().add(
+                    new SearchResultEntry(result, () -> selectSearchResult(result)));
+        }
+
+        if (hasMore) {
+            Button loadMoreButton = new Button("Load more results");
+            loadMoreButton.setMaxWidth(Double.MAX_VALUE);
+            loadMoreButton.setMnemonicParsing(false);
+            loadMoreButton.setOnAction(e -> runSearch(activeSearch, true));
+            VBox.setMargin(loadMoreButton, new Insets(0, 20, 0, 0));
+            sessionListContainer.getChildren().add(loadMoreButton);
+        }
+    }
+
+    /**
+     * Select the session a search result belongs to and notify listeners
+     * 
+     * @param result - the selected search result
+     */
+    private void selectSearchResult(MessageSearchResult result) {
+        sessions.stream()
+                .filter(s -> s.getId().equals(result.sessionId()))
+                .findFirst()
+                .ifPresent(session -> currentSession = session);
+
+        if (onSearchResultSelected != null) {
+            onSearchResultSelected.accept(result);
+        }
+    }
+
+    /**
+     * Leave search mode without reloading the session list
+     */
+    private void clearSearch() {
+        searchDebounce.stop();
+        activeSearch = null;
+        if (!searchField.getText().isEmpty()) {
+            searchField.clear();
+            searchDebounce.stop();
+        }
+    }
+
     public Session getCurrentSession() {
         return currentSession;
     }
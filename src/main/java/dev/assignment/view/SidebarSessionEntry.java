@@ -2,6 +2,7 @@ package dev.assignment.view;
 
 import dev.assignment.model.Session;
 import dev.assignment.service.DatabaseService;
+import dev.assignment.service.SessionRuntimeManager;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Alert;
@@ -128,6 +129,7 @@ public class SidebarSessionEntry extends HBox {
                     return;
                 }
 
+                SessionRuntimeManager.getInstance().remove(session.getId());
                 databaseService.deleteSession(session.getId());
                 if (onSessionChanged != null) {
                     onSessionChanged.run();
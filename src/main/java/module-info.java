@@ -17,6 +17,21 @@ module dev.assignment {
     // dotenv-java for loading environment variables
     requires io.github.cdimascio.dotenv.java;
 
+    // JTokkit for counting tokens offline
+    requires jtokkit;
+
+    // ONNX Runtime models for local embeddings and re-ranking
+    requires langchain4j.embeddings;
+    requires langchain4j.embeddings.all.minilm.l6.v2.q;
+    requires langchain4j.onnx.scoring;
+    requires com.microsoft.onnxruntime;
+
+    // JDK HTTP server for the headless server and the load-test stub of the OpenAI API
+    requires jdk.httpserver;
+
+    // Flight Recorder events for stage timings
+    requires jdk.jfr;
+
     // Open packages to javafx.fxml for reflection-based access
     opens dev.assignment to javafx.fxml;
     opens dev.assignment.controller to javafx.fxml;
@@ -25,8 +40,12 @@ module dev.assignment {
     exports dev.assignment;
     exports dev.assignment.controller;
     exports dev.assignment.handler;
+    exports dev.assignment.loadtest;
+    exports dev.assignment.metrics;
     exports dev.assignment.model;
+    exports dev.assignment.server;
     exports dev.assignment.service;
+    exports dev.assignment.service.chunking;
     exports dev.assignment.view;
     exports dev.assignment.util;
 }